@@ -0,0 +1,86 @@
+package uk.ac.exeter.QCRoutines.benchmarks;
+
+import java.util.TreeSet;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import uk.ac.exeter.QCRoutines.data.ColumnarRecordSet;
+import uk.ac.exeter.QCRoutines.data.DataRecord;
+import uk.ac.exeter.QCRoutines.data.DataRecordException;
+import uk.ac.exeter.QCRoutines.data.NoSuchColumnException;
+
+/**
+ * A record from the synthetic data sets built by {@link RecordSetGenerator}.
+ * The time is held in seconds since the epoch in the first column,
+ * followed by the longitude and latitude.
+ */
+public class BenchmarkRecord extends DataRecord {
+
+	/**
+	 * The index of the time column
+	 */
+	static final int TIME_COLUMN = 1;
+
+	/**
+	 * The index of the longitude column
+	 */
+	static final int LONGITUDE_COLUMN = 2;
+
+	/**
+	 * The index of the latitude column
+	 */
+	static final int LATITUDE_COLUMN = 3;
+
+	/**
+	 * The factory used to create views of records in a {@link ColumnarRecordSet}
+	 */
+	public static final ColumnarRecordSet.RecordFactory FACTORY = new ColumnarRecordSet.RecordFactory() {
+		@Override
+		public DataRecord createRecord(ColumnarRecordSet recordSet, int row) {
+			return new BenchmarkRecord(recordSet, row);
+		}
+	};
+
+	/**
+	 * Create a view of a record in a record set
+	 * @param recordSet The record set
+	 * @param row The index of the record in the set
+	 */
+	public BenchmarkRecord(ColumnarRecordSet recordSet, int row) {
+		super(recordSet, row);
+	}
+
+	@Override
+	public DateTime getTime() throws DataRecordException {
+		long seconds = (long) getDoubleValue(TIME_COLUMN);
+		return new DateTime(seconds * 1000L, DateTimeZone.UTC);
+	}
+
+	@Override
+	public TreeSet<Integer> getDateTimeColumns() {
+		TreeSet<Integer> result = new TreeSet<Integer>();
+		result.add(TIME_COLUMN);
+		return result;
+	}
+
+	@Override
+	public double getLongitude() throws NoSuchColumnException {
+		return getDoubleValue(LONGITUDE_COLUMN);
+	}
+
+	@Override
+	public int getLongitudeColumn() {
+		return LONGITUDE_COLUMN;
+	}
+
+	@Override
+	public double getLatitude() throws NoSuchColumnException {
+		return getDoubleValue(LATITUDE_COLUMN);
+	}
+
+	@Override
+	public int getLatitudeColumn() {
+		return LATITUDE_COLUMN;
+	}
+}
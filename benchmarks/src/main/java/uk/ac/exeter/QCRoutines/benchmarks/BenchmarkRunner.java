@@ -0,0 +1,39 @@
+package uk.ac.exeter.QCRoutines.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler enabled, so the allocation rate
+ * is reported alongside the timings. The command line accepts the same
+ * options as the standard JMH runner, for example a benchmark name pattern
+ * or {@code -p rows=10000}.
+ */
+public final class BenchmarkRunner {
+
+	/**
+	 * This class only has a main method
+	 */
+	private BenchmarkRunner() {
+	}
+
+	/**
+	 * Run the benchmarks
+	 * @param args The JMH command line options
+	 * @throws RunnerException If the benchmarks fail
+	 * @throws CommandLineOptionException If the command line is invalid
+	 */
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+		options.addProfiler(GCProfiler.class);
+
+		new Runner(options.build()).run();
+	}
+}
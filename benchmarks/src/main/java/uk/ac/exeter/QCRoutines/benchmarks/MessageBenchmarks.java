@@ -0,0 +1,104 @@
+package uk.ac.exeter.QCRoutines.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.exeter.QCRoutines.data.ColumnarRecordSet;
+import uk.ac.exeter.QCRoutines.data.DataRecord;
+import uk.ac.exeter.QCRoutines.messages.Message;
+import uk.ac.exeter.QCRoutines.messages.MessageException;
+import uk.ac.exeter.QCRoutines.messages.MessageSummary;
+import uk.ac.exeter.QCRoutines.messages.RebuildCode;
+import uk.ac.exeter.QCRoutines.routines.Routine;
+
+/**
+ * Measures the encoding and decoding of messages as rebuild codes,
+ * and the building of message summaries.
+ *
+ * The messages are those generated by running every routine
+ * benchmarked in {@link RoutineBenchmarks} over 10,000 records.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MessageBenchmarks {
+
+	/**
+	 * The routines whose messages are used
+	 */
+	private static final String[] ROUTINES = {"RangeCheck", "Outlier", "ShipSpeed", "HighDelta", "ConstantValue", "TimeGap"};
+
+	/**
+	 * The messages
+	 */
+	private List<Message> messages;
+
+	/**
+	 * The rebuild codes for the messages
+	 */
+	private String codes;
+
+	/**
+	 * Generate the messages
+	 * @throws Exception If the messages cannot be generated
+	 */
+	@Setup
+	public void generate() throws Exception {
+		ColumnarRecordSet records = RecordSetGenerator.generate(10000, 42L);
+		for (String name : ROUTINES) {
+			Routine routine = RoutineBenchmarks.createRoutine(name, records.getColumnConfig());
+			routine.processRecords(records.getRecords());
+		}
+
+		messages = new ArrayList<Message>();
+		for (DataRecord record : records.getRecords()) {
+			messages.addAll(record.getMessages());
+		}
+
+		codes = RebuildCode.getRebuildCodes(messages);
+	}
+
+	/**
+	 * Encode the messages as rebuild codes
+	 * @return The codes
+	 * @throws MessageException If a message cannot be encoded
+	 */
+	@Benchmark
+	public String encodeRebuildCodes() throws MessageException {
+		return RebuildCode.getRebuildCodes(messages);
+	}
+
+	/**
+	 * Decode the messages from their rebuild codes
+	 * @return The messages
+	 * @throws MessageException If a code cannot be decoded
+	 */
+	@Benchmark
+	public List<Message> decodeRebuildCodes() throws MessageException {
+		return RebuildCode.getMessagesFromRebuildCodes(codes);
+	}
+
+	/**
+	 * Summarise the messages
+	 * @return The summaries
+	 */
+	@Benchmark
+	public List<MessageSummary> getMessageSummaries() {
+		return MessageSummary.getMessageSummaries(messages);
+	}
+}
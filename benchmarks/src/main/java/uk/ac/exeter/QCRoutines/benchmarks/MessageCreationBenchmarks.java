@@ -0,0 +1,113 @@
+package uk.ac.exeter.QCRoutines.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.ac.exeter.QCRoutines.config.ColumnConfig;
+import uk.ac.exeter.QCRoutines.data.ColumnarRecordSet;
+import uk.ac.exeter.QCRoutines.data.DataColumn;
+import uk.ac.exeter.QCRoutines.data.DataRecord;
+import uk.ac.exeter.QCRoutines.messages.Flag;
+import uk.ac.exeter.QCRoutines.messages.MessageException;
+import uk.ac.exeter.QCRoutines.routines.ConstantValue.ConstantValueMessage;
+import uk.ac.exeter.QCRoutines.routines.RangeCheck.RangeCheckMessage;
+
+/**
+ * Measures the construction of the messages raised by the routines.
+ *
+ * Run with {@link BenchmarkRunner}, which adds the GC profiler;
+ * {@code gc.alloc.rate.norm} is then the number of bytes allocated
+ * for each message. The messages are passed to a {@link Blackhole}
+ * so that they cannot be removed by escape analysis.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MessageCreationBenchmarks {
+
+	/**
+	 * The number of messages created in each invocation
+	 */
+	private static final int MESSAGE_COUNT = 1000;
+
+	/**
+	 * The temperature column of each record
+	 */
+	private DataColumn[] temperatureColumns;
+
+	/**
+	 * The salinity column of each record
+	 */
+	private DataColumn[] salinityColumns;
+
+	/**
+	 * The line number of each record
+	 */
+	private int[] lineNumbers;
+
+	/**
+	 * Generate the records and look up their columns
+	 * @throws Exception If the records cannot be generated
+	 */
+	@Setup
+	public void generate() throws Exception {
+		ColumnarRecordSet records = RecordSetGenerator.generate(MESSAGE_COUNT, 42L);
+		ColumnConfig columnConfig = records.getColumnConfig();
+		int temperatureColumn = columnConfig.getColumnIndex("Temperature");
+		int salinityColumn = columnConfig.getColumnIndex("Salinity");
+
+		List<DataRecord> recordList = records.getRecords();
+		temperatureColumns = new DataColumn[MESSAGE_COUNT];
+		salinityColumns = new DataColumn[MESSAGE_COUNT];
+		lineNumbers = new int[MESSAGE_COUNT];
+
+		for (int i = 0; i < MESSAGE_COUNT; i++) {
+			DataRecord record = recordList.get(i);
+			temperatureColumns[i] = record.getColumn(temperatureColumn);
+			salinityColumns[i] = record.getColumn(salinityColumn);
+			lineNumbers[i] = record.getLineNumber();
+		}
+	}
+
+	/**
+	 * Create a range check message for each record
+	 * @param blackhole Consumes the messages
+	 * @throws MessageException If a message cannot be created
+	 */
+	@Benchmark
+	@OperationsPerInvocation(MESSAGE_COUNT)
+	public void createRangeCheckMessages(Blackhole blackhole) throws MessageException {
+		for (int i = 0; i < MESSAGE_COUNT; i++) {
+			blackhole.consume(new RangeCheckMessage(lineNumbers[i], temperatureColumns[i], Flag.BAD, 45.0, -5.0, 40.0));
+		}
+	}
+
+	/**
+	 * Create a constant value message for each record
+	 * @param blackhole Consumes the messages
+	 * @throws MessageException If a message cannot be created
+	 */
+	@Benchmark
+	@OperationsPerInvocation(MESSAGE_COUNT)
+	public void createConstantValueMessages(Blackhole blackhole) throws MessageException {
+		for (int i = 0; i < MESSAGE_COUNT; i++) {
+			blackhole.consume(new ConstantValueMessage(lineNumbers[i], salinityColumns[i], 180.0, 120.0));
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package uk.ac.exeter.QCRoutines.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.exeter.QCRoutines.messages.Flag;
+import uk.ac.exeter.QCRoutines.messages.Message;
+import uk.ac.exeter.QCRoutines.messages.MessageSummary;
+import uk.ac.exeter.QCRoutines.routines.ConstantValue.ConstantValueMessage;
+import uk.ac.exeter.QCRoutines.routines.RangeCheck.RangeCheckMessage;
+import uk.ac.exeter.QCRoutines.routines.ShipSpeed.ShipSpeedMessage;
+
+/**
+ * Measures the summarising of 1,000,000 messages of four kinds:
+ * range check messages for two columns, constant value messages and
+ * ship speed messages.
+ *
+ * Each message is built with the basic constructor, so no two messages
+ * share their column sets. Before the benchmark runs, the setup checks
+ * that the messages are grouped into exactly four summaries whose counts
+ * add up to the number of messages, and fails if they are not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MessageSummaryBenchmarks {
+
+	/**
+	 * The number of messages
+	 */
+	private static final int MESSAGE_COUNT = 1000000;
+
+	/**
+	 * The number of summaries the messages should be grouped into
+	 */
+	private static final int SUMMARY_COUNT = 4;
+
+	/**
+	 * The messages
+	 */
+	private List<Message> messages;
+
+	/**
+	 * Generate the messages, and check that they are grouped correctly
+	 * @throws Exception If the messages cannot be generated
+	 */
+	@Setup
+	public void generate() throws Exception {
+		messages = new ArrayList<Message>(MESSAGE_COUNT);
+
+		for (int i = 0; i < MESSAGE_COUNT; i++) {
+			int lineNumber = i + 1;
+			switch (i % SUMMARY_COUNT) {
+			case 0:
+				messages.add(new RangeCheckMessage(lineNumber, columns(4), names("Temperature"), Flag.QUESTIONABLE, "36.2", "-2.0:35.0"));
+				break;
+			case 1:
+				messages.add(new RangeCheckMessage(lineNumber, columns(5), names("Salinity"), Flag.BAD, "52.0", "0.0:45.0"));
+				break;
+			case 2:
+				messages.add(new ConstantValueMessage(lineNumber, columns(5), names("Salinity"), Flag.BAD, "180.0", "120.0"));
+				break;
+			default:
+				messages.add(new ShipSpeedMessage(lineNumber, columns(1, 2, 3), names("Time", "Longitude", "Latitude"), Flag.QUESTIONABLE, "41.3", "40.0"));
+			}
+		}
+
+		checkSummaries(MessageSummary.getMessageSummaries(messages));
+	}
+
+	/**
+	 * Summarise the messages
+	 * @return The summaries
+	 */
+	@Benchmark
+	public List<MessageSummary> getMessageSummaries() {
+		return MessageSummary.getMessageSummaries(messages);
+	}
+
+	/**
+	 * Check that the messages have been grouped into the expected summaries
+	 * @param summaries The summaries
+	 * @throws IllegalStateException If the grouping is wrong
+	 */
+	private static void checkSummaries(List<MessageSummary> summaries) {
+		if (summaries.size() != SUMMARY_COUNT) {
+			throw new IllegalStateException("Expected " + SUMMARY_COUNT + " message summaries, got " + summaries.size());
+		}
+
+		long total = 0;
+		for (MessageSummary summary : summaries) {
+			total += summary.getQuestionableCount() + summary.getBadCount();
+		}
+
+		if (total != MESSAGE_COUNT) {
+			throw new IllegalStateException("Expected the summaries to count " + MESSAGE_COUNT + " messages, got " + total);
+		}
+	}
+
+	/**
+	 * Build a new set of column indices
+	 * @param columnIndices The column indices
+	 * @return The set
+	 */
+	private static TreeSet<Integer> columns(Integer... columnIndices) {
+		return new TreeSet<Integer>(Arrays.asList(columnIndices));
+	}
+
+	/**
+	 * Build a new set of column names
+	 * @param columnNames The column names
+	 * @return The set
+	 */
+	private static TreeSet<String> names(String... columnNames) {
+		return new TreeSet<String>(Arrays.asList(columnNames));
+	}
+}
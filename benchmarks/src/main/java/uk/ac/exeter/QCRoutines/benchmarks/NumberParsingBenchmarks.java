@@ -0,0 +1,134 @@
+package uk.ac.exeter.QCRoutines.benchmarks;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.exeter.QCRoutines.util.RoutineUtils;
+
+/**
+ * Compares {@link RoutineUtils#isNumeric(CharSequence)} and
+ * {@link RoutineUtils#parseNumeric(CharSequence)} with calling
+ * {@link Double#parseDouble(String)} and catching the exception.
+ *
+ * Each invocation parses {@link #VALUE_COUNT} values of one kind: numbers
+ * as they appear in data files, the default missing value markers, or text.
+ * The results are reported per value.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NumberParsingBenchmarks {
+
+	/**
+	 * The number of values parsed in each invocation
+	 */
+	private static final int VALUE_COUNT = 1000;
+
+	/**
+	 * Missing value markers, using the spellings found in data files
+	 */
+	private static final String[] MISSING_VALUES = {"", "NaN", "N/A", "NA", "-999", "-999.0", "-9999", "-9999.9"};
+
+	/**
+	 * Text values from columns that should be numeric
+	 */
+	private static final String[] TEXT_VALUES = {"Y", "ABC123", "sensor offline", "12.3.4", "1,5", "--1", "0x1A", "1e"};
+
+	/**
+	 * The kind of values to parse: {@code numeric}, {@code missing} or {@code text}
+	 */
+	@Param({"numeric", "missing", "text"})
+	public String values;
+
+	/**
+	 * The values to parse
+	 */
+	private String[] parseValues;
+
+	/**
+	 * Generate the values
+	 */
+	@Setup
+	public void generate() {
+		Random random = new Random(42L);
+		parseValues = new String[VALUE_COUNT];
+
+		for (int i = 0; i < VALUE_COUNT; i++) {
+			if (values.equals("numeric")) {
+				switch (i % 4) {
+				case 0:
+					parseValues[i] = String.format(Locale.ROOT, "%.3f", 10 + random.nextGaussian() * 5);
+					break;
+				case 1:
+					parseValues[i] = String.format(Locale.ROOT, "%.2f", 1013 + random.nextGaussian() * 10);
+					break;
+				case 2:
+					parseValues[i] = String.format(Locale.ROOT, "%.4f", -180 + random.nextDouble() * 360);
+					break;
+				default:
+					parseValues[i] = String.valueOf(random.nextInt(1000));
+				}
+			} else if (values.equals("missing")) {
+				parseValues[i] = MISSING_VALUES[i % MISSING_VALUES.length];
+			} else if (values.equals("text")) {
+				parseValues[i] = TEXT_VALUES[i % TEXT_VALUES.length];
+			} else {
+				throw new IllegalArgumentException("Unknown values '" + values + "'");
+			}
+		}
+	}
+
+	/**
+	 * Check each value with {@code isNumeric} and parse it with {@code parseNumeric}
+	 * @return The sum of the numeric values
+	 */
+	@Benchmark
+	@OperationsPerInvocation(VALUE_COUNT)
+	public double isNumericThenParse() {
+		double sum = 0;
+		for (String value : parseValues) {
+			if (RoutineUtils.isNumeric(value)) {
+				sum += RoutineUtils.parseNumeric(value);
+			}
+		}
+
+		return sum;
+	}
+
+	/**
+	 * Parse each value with {@link Double#parseDouble(String)}, catching the
+	 * exception for values that are not numeric
+	 * @return The sum of the numeric values
+	 */
+	@Benchmark
+	@OperationsPerInvocation(VALUE_COUNT)
+	public double parseDoubleAndCatch() {
+		double sum = 0;
+		for (String value : parseValues) {
+			try {
+				sum += Double.parseDouble(value);
+			} catch (NumberFormatException e) {
+				// Not numeric
+			}
+		}
+
+		return sum;
+	}
+}
@@ -0,0 +1,266 @@
+package uk.ac.exeter.QCRoutines.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import uk.ac.exeter.QCRoutines.config.ColumnConfig;
+import uk.ac.exeter.QCRoutines.config.ConfigException;
+import uk.ac.exeter.QCRoutines.data.ColumnarRecordSet;
+import uk.ac.exeter.QCRoutines.data.DataRecordException;
+
+/**
+ * Builds synthetic record sets that resemble SOCAT underway data:
+ * one record per minute from a ship steaming at around 20 km/h,
+ * with slowly varying temperature, salinity, pressure and fCO2.
+ *
+ * A small fraction of values are spikes, missing values or
+ * runs of constant values, so every routine has something to report.
+ * The same seed always gives the same records.
+ */
+public final class RecordSetGenerator {
+
+	/**
+	 * The column configuration resource
+	 */
+	private static final String COLUMN_CONFIG_RESOURCE = "/socat_columns.csv";
+
+	/**
+	 * The start time of each data set (2014-01-01 00:00 UTC), in seconds
+	 */
+	private static final long START_TIME = 1388534400L;
+
+	/**
+	 * The time between records in seconds
+	 */
+	private static final int RECORD_INTERVAL = 60;
+
+	/**
+	 * The fraction of values that are spikes
+	 */
+	private static final double SPIKE_FRACTION = 0.001;
+
+	/**
+	 * The fraction of values that are missing
+	 */
+	private static final double MISSING_FRACTION = 0.001;
+
+	/**
+	 * The fraction of records that start a run of constant salinity values
+	 */
+	private static final double CONSTANT_RUN_FRACTION = 0.0005;
+
+	/**
+	 * The fraction of records that are followed by a gap in the time series
+	 */
+	private static final double TIME_GAP_FRACTION = 0.0002;
+
+	/**
+	 * The value used for missing measurements
+	 */
+	private static final String MISSING_VALUE = "-999";
+
+	/**
+	 * The name of the ship in every record
+	 */
+	private static final String PLATFORM = "Benchmark Ship";
+
+	/**
+	 * This class only has static methods
+	 */
+	private RecordSetGenerator() {
+	}
+
+	/**
+	 * Load the column configuration for the synthetic records. The configuration
+	 * is a singleton, so it is only loaded once.
+	 * @return The column configuration
+	 * @throws IOException If the configuration resource cannot be copied
+	 * @throws ConfigException If the configuration is invalid
+	 */
+	public static synchronized ColumnConfig getColumnConfig() throws IOException, ConfigException {
+		ColumnConfig result;
+
+		try {
+			result = ColumnConfig.getInstance();
+		} catch (ConfigException e) {
+			// ColumnConfig reads from a file, so copy the resource out of the jar
+			File configFile = File.createTempFile("socat_columns", ".csv");
+			configFile.deleteOnExit();
+
+			InputStream in = RecordSetGenerator.class.getResourceAsStream(COLUMN_CONFIG_RESOURCE);
+			if (null == in) {
+				throw new IOException("Missing resource " + COLUMN_CONFIG_RESOURCE);
+			}
+
+			try {
+				OutputStream out = new FileOutputStream(configFile);
+				try {
+					byte[] buffer = new byte[4096];
+					int read = in.read(buffer);
+					while (read > 0) {
+						out.write(buffer, 0, read);
+						read = in.read(buffer);
+					}
+				} finally {
+					out.close();
+				}
+			} finally {
+				in.close();
+			}
+
+			ColumnConfig.init(configFile.getAbsolutePath());
+			result = ColumnConfig.getInstance();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Generate a record set
+	 * @param rowCount The number of records
+	 * @param seed The seed for the random number generator
+	 * @return The record set
+	 * @throws IOException If the column configuration cannot be loaded
+	 * @throws ConfigException If the column configuration is invalid
+	 * @throws DataRecordException If a generated record is invalid
+	 */
+	public static ColumnarRecordSet generate(int rowCount, long seed) throws IOException, ConfigException, DataRecordException {
+		ColumnarRecordSet result = new ColumnarRecordSet(getColumnConfig(), BenchmarkRecord.FACTORY);
+		Random random = new Random(seed);
+
+		long time = START_TIME;
+		double lon = -30.0;
+		double lat = 50.0;
+		double heading = random.nextDouble() * 2 * Math.PI;
+		double temperature = 15.0;
+		double salinity = 35.0;
+		double pressure = 1013.0;
+		double fCO2 = 380.0;
+		int constantRun = 0;
+
+		List<String> fields = new ArrayList<String>(9);
+
+		for (int row = 0; row < rowCount; row++) {
+
+			// Around 20 km/h, about 0.003 degrees per minute
+			heading += random.nextGaussian() * 0.05;
+			lon = wrapLongitude(lon + Math.sin(heading) * 0.003 / Math.cos(Math.toRadians(lat)));
+			lat += Math.cos(heading) * 0.003;
+			if (lat > 70.0 || lat < -70.0) {
+				heading = Math.PI - heading;
+			}
+
+			temperature = clamp(temperature + random.nextGaussian() * 0.01, -1.5, 30.0);
+			pressure = clamp(pressure + random.nextGaussian() * 0.05, 980.0, 1040.0);
+			fCO2 = clamp(fCO2 + random.nextGaussian() * 0.5, 250.0, 500.0);
+
+			if (constantRun > 0) {
+				constantRun--;
+			} else {
+				salinity = clamp(salinity + random.nextGaussian() * 0.005, 30.0, 38.0);
+				if (random.nextDouble() < CONSTANT_RUN_FRACTION) {
+					constantRun = 30 + random.nextInt(90);
+				}
+			}
+
+			fields.clear();
+
+			// Column indices are 1-based, so the first field is never used
+			fields.add("");
+			fields.add(String.valueOf(time));
+			fields.add(format(lon));
+			fields.add(format(lat));
+			fields.add(measurement(random, temperature, 10.0));
+			fields.add(measurement(random, salinity, 5.0));
+			fields.add(measurement(random, pressure, 50.0));
+			fields.add(measurement(random, fCO2, 200.0));
+			fields.add(PLATFORM);
+
+			result.addRecord(row + 1, fields);
+
+			time += RECORD_INTERVAL;
+			if (random.nextDouble() < TIME_GAP_FRACTION) {
+				time += RECORD_INTERVAL * (60 + random.nextInt(600));
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Create a copy of a record set, so each benchmark iteration starts
+	 * from the same state. The record set being copied must not have any
+	 * messages, since {@link ColumnarRecordSet#append(ColumnarRecordSet)}
+	 * shares the message lists between the two sets.
+	 * @param recordSet The record set to copy
+	 * @return The copy
+	 */
+	public static ColumnarRecordSet copy(ColumnarRecordSet recordSet) {
+		ColumnarRecordSet result = new ColumnarRecordSet(recordSet.getColumnConfig(), BenchmarkRecord.FACTORY);
+		result.append(recordSet);
+		return result;
+	}
+
+	/**
+	 * Format a measurement, occasionally replacing it with a spike or a missing value
+	 * @param random The random number generator
+	 * @param value The measurement
+	 * @param spikeSize The size of a spike
+	 * @return The formatted value
+	 */
+	private static String measurement(Random random, double value, double spikeSize) {
+		String result;
+
+		double chance = random.nextDouble();
+		if (chance < MISSING_FRACTION) {
+			result = MISSING_VALUE;
+		} else if (chance < MISSING_FRACTION + SPIKE_FRACTION) {
+			result = format(value + (random.nextBoolean() ? spikeSize : -spikeSize));
+		} else {
+			result = format(value);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Format a value to three decimal places, as it would appear in a data file
+	 * @param value The value
+	 * @return The formatted value
+	 */
+	private static String format(double value) {
+		return String.valueOf(Math.round(value * 1000.0) / 1000.0);
+	}
+
+	/**
+	 * Limit a value to a range
+	 * @param value The value
+	 * @param min The minimum
+	 * @param max The maximum
+	 * @return The limited value
+	 */
+	private static double clamp(double value, double min, double max) {
+		return Math.max(min, Math.min(max, value));
+	}
+
+	/**
+	 * Wrap a longitude into the range -180 to 180
+	 * @param lon The longitude
+	 * @return The wrapped longitude
+	 */
+	private static double wrapLongitude(double lon) {
+		double result = lon;
+		if (result > 180.0) {
+			result -= 360.0;
+		} else if (result < -180.0) {
+			result += 360.0;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,156 @@
+package uk.ac.exeter.QCRoutines.benchmarks;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.exeter.QCRoutines.config.ColumnConfig;
+import uk.ac.exeter.QCRoutines.data.ColumnarRecordSet;
+import uk.ac.exeter.QCRoutines.routines.Routine;
+
+/**
+ * Measures the time taken by each routine to check a complete record set.
+ *
+ * Each invocation checks a fresh copy of the generated records, so messages
+ * and flags from earlier invocations do not build up. The copy is made
+ * outside the measured time, but the GC profiler still counts its allocations.
+ * {@link #copyBaseline()} measures the copy on its own, so its allocation
+ * rate can be subtracted from the routine results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class RoutineBenchmarks {
+
+	/**
+	 * The routine class and parameters for each benchmarked routine
+	 */
+	private static final Map<String, String[]> ROUTINES = new HashMap<String, String[]>();
+
+	static {
+		ROUTINES.put("RangeCheck", new String[] {"Temperature", "-1", "28", "-2", "35"});
+		ROUTINES.put("Outlier", new String[] {"Salinity", "3"});
+		ROUTINES.put("OutlierWindowed", new String[] {"Salinity", "3", "60"});
+		ROUTINES.put("ShipSpeed", new String[] {"30", "60"});
+		ROUTINES.put("HighDelta", new String[] {"Temperature", "2"});
+		ROUTINES.put("ConstantValue", new String[] {"Salinity", "20"});
+		ROUTINES.put("TimeGap", new String[] {"1"});
+		ROUTINES.put("FixedValue", new String[] {"Platform", "Y"});
+	}
+
+	/**
+	 * The number of records to check
+	 */
+	@Param({"10000", "1000000", "10000000"})
+	private int rows;
+
+	/**
+	 * The routine to run
+	 */
+	@Param({"RangeCheck", "Outlier", "OutlierWindowed", "ShipSpeed", "HighDelta", "ConstantValue", "TimeGap", "FixedValue"})
+	private String routine;
+
+	/**
+	 * The generated records, which are never checked directly
+	 */
+	private ColumnarRecordSet pristine;
+
+	/**
+	 * The copy of the records checked by the current invocation
+	 */
+	private ColumnarRecordSet records;
+
+	/**
+	 * The routine for the current invocation
+	 */
+	private Routine instance;
+
+	/**
+	 * Generate the records
+	 * @throws Exception If the records cannot be generated
+	 */
+	@Setup(Level.Trial)
+	public void generate() throws Exception {
+		pristine = RecordSetGenerator.generate(rows, 42L);
+	}
+
+	/**
+	 * Copy the records and create the routine
+	 * @throws Exception If the routine cannot be created
+	 */
+	@Setup(Level.Invocation)
+	public void prepare() throws Exception {
+		records = RecordSetGenerator.copy(pristine);
+		instance = createRoutine(routine, records.getColumnConfig());
+	}
+
+	/**
+	 * Release the checked records before the next copy is made
+	 */
+	@TearDown(Level.Invocation)
+	public void release() {
+		records = null;
+		instance = null;
+	}
+
+	/**
+	 * Check the records
+	 * @return The routine, so its messages are not optimised away
+	 * @throws Exception If the routine fails
+	 */
+	@Benchmark
+	public Routine processRecords() throws Exception {
+		instance.processRecords(records.getRecords());
+		return instance;
+	}
+
+	/**
+	 * Do nothing with the copied records, to measure the cost of making the copy
+	 * @return The copied records
+	 */
+	@Benchmark
+	public ColumnarRecordSet copyBaseline() {
+		return records;
+	}
+
+	/**
+	 * Create and initialise a routine
+	 * @param name The benchmark name of the routine
+	 * @param columnConfig The column configuration
+	 * @return The routine
+	 * @throws Exception If the routine cannot be created
+	 */
+	static Routine createRoutine(String name, ColumnConfig columnConfig) throws Exception {
+		String[] parameters = ROUTINES.get(name);
+		if (null == parameters) {
+			throw new IllegalArgumentException("Unknown routine '" + name + "'");
+		}
+
+		String className = name.startsWith("Outlier") ? "Outlier" : name;
+		Class<?> routineClass = Class.forName("uk.ac.exeter.QCRoutines.routines." + className + "." + className + "Routine");
+
+		Routine result = (Routine) routineClass.newInstance();
+		List<String> parameterList = Arrays.asList(parameters);
+		result.initialise(parameterList, columnConfig);
+		return result;
+	}
+}
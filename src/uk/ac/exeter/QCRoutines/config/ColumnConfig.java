@@ -6,12 +6,16 @@ import java.io.IOException;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import uk.ac.exeter.QCRoutines.data.DataColumn;
 import uk.ac.exeter.QCRoutines.data.DataRecord;
+import uk.ac.exeter.QCRoutines.messages.ColumnSet;
 import uk.ac.exeter.QCRoutines.util.RoutineUtils;
 
 /**
@@ -39,6 +43,11 @@ public class ColumnConfig {
 	 */
 	private static final int COL_FLAG_CASCADE = 3;
 	
+	/**
+	 * The index of the column that contains the column's missing values
+	 */
+	private static final int COL_MISSING_VALUES = 4;
+	
 	/**
 	 * The list of columns in the order in which they appear in the config file
 	 */
@@ -49,6 +58,19 @@ public class ColumnConfig {
 	 */
 	private Map<String, ColumnConfigItem> columnConfig;
 	
+	/**
+	 * Lookup table of column indices by column name. This is built
+	 * once the configuration has been loaded, and shared by all records.
+	 */
+	private Map<String, Integer> columnIndices;
+	
+	/**
+	 * The column sets for groups of columns, shared by all messages that refer
+	 * to the same columns. The table can only hold sets of configured columns,
+	 * and is released with the configuration.
+	 */
+	private ConcurrentMap<ColumnSet, ColumnSet> columnSets = new ConcurrentHashMap<ColumnSet, ColumnSet>();
+	
 	/**
 	 * The location of the metadata config file.
 	 * Must be set via {@link #init(String, Logger) before calling
@@ -144,15 +166,34 @@ public class ColumnConfig {
 				reader.close();
 			}
 
+			buildLookups();
+
 			for (ColumnConfigItem columnConfigItem : columnConfig.values()) {
 				columnConfigItem.parseFlagCascade(this);
 			}
 
+			for (int i = 1; i < columnNames.size(); i++) {
+				columnConfig.get(columnNames.get(i)).compileFlagCascades(this);
+			}
+
 		} catch (IOException e) {
 			throw new ConfigException(configFilename, "I/O Error while reading file", e);
 		}
 	}
 	
+	/**
+	 * Build the immutable column name/index lookup tables
+	 */
+	private void buildLookups() {
+		Map<String, Integer> indices = new HashMap<String, Integer>();
+		for (int i = 1; i < columnNames.size(); i++) {
+			indices.put(columnNames.get(i), columnConfig.get(columnNames.get(i)).getColumnIndex());
+		}
+		
+		columnIndices = Collections.unmodifiableMap(indices);
+		columnNames = Collections.unmodifiableList(columnNames);
+	}
+	
 	protected ColumnConfigItem createColumnConfigItem(int lineCount, int entryCount) {
 		return new ColumnConfigItem(lineCount, entryCount);
 	}
@@ -165,7 +206,7 @@ public class ColumnConfig {
 		
 		String columnName = fields.get(COL_NAME);
 
-		if (columnNames.contains(columnName)) {
+		if (columnConfig.containsKey(columnName)) {
 			throw new ConfigException(configFilename, columnName, lineCount, "Column is configured more than once");
 		} else if (columnName.indexOf('_') >= 0) {
 			throw new ConfigException(configFilename, lineCount, "Column names cannot contain the underscore character");
@@ -192,6 +233,10 @@ public class ColumnConfig {
 			String cascadeConfig = fields.get(COL_FLAG_CASCADE);
 			columnConfigItem.setFlagCascadeConfig(cascadeConfig);
 		}
+		
+		if (fields.size() > 4) {
+			columnConfigItem.setMissingValuesConfig(fields.get(COL_MISSING_VALUES));
+		}
 	}
 	
 	protected void storeConfigItem(ColumnConfigItem item) {
@@ -225,18 +270,23 @@ public class ColumnConfig {
 		
 		String columnName = null;
 		
-		for (String searchColumn : columnConfig.keySet()) {
-			
-			ColumnConfigItem columnConfigItem = columnConfig.get(searchColumn);
-			if (columnConfigItem.getColumnIndex() == columnIndex) {
-				columnName = searchColumn;
-				break;
-			}
+		if (columnIndex > 0 && columnIndex < columnNames.size()) {
+			columnName = columnNames.get(columnIndex);
 		}
 		
 		return columnName;
 	}
 	
+	/**
+	 * Retrieves the index of a named column in the data file
+	 * @param columnName The name of the column
+	 * @return The 1-based index of the column, or {@code -1} if the column does not exist
+	 */
+	public int getColumnIndex(String columnName) {
+		Integer columnIndex = columnIndices.get(columnName);
+		return (null == columnIndex ? -1 : columnIndex);
+	}
+	
 	/**
 	 * Returns the name of the configuration file
 	 * @return The name of the configuration file
@@ -251,7 +301,7 @@ public class ColumnConfig {
 	 * @return {@code true} if the column exists; {@code false} if it does not
 	 */
 	public boolean hasColumn(String column) {
-		return columnConfig.keySet().contains(column);
+		return columnConfig.containsKey(column);
 	}
 	
 	public List<DataColumn> getDataColumns(DataRecord record) {
@@ -268,6 +318,33 @@ public class ColumnConfig {
 		return result;
 	}
 	
+	/**
+	 * Returns the shared column set for the specified columns. The columns
+	 * must exist in this configuration.
+	 * @param columnIndices The 1-based column indices
+	 * @return The column set
+	 */
+	public ColumnSet getColumnSet(int... columnIndices) {
+		ColumnSet result;
+		
+		if (columnIndices.length == 1) {
+			result = columnConfig.get(columnNames.get(columnIndices[0])).getColumnSet();
+		} else {
+			String[] names = new String[columnIndices.length];
+			for (int i = 0; i < columnIndices.length; i++) {
+				names[i] = columnNames.get(columnIndices[i]);
+			}
+			
+			ColumnSet columnSet = ColumnSet.get(columnIndices, names);
+			result = columnSets.putIfAbsent(columnSet, columnSet);
+			if (null == result) {
+				result = columnSet;
+			}
+		}
+		
+		return result;
+	}
+	
 	public int getColumnCount() {
 		return columnNames.size() - 1;
 	}
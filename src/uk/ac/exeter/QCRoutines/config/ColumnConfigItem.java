@@ -4,8 +4,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import uk.ac.exeter.QCRoutines.messages.ColumnSet;
 import uk.ac.exeter.QCRoutines.messages.Flag;
 import uk.ac.exeter.QCRoutines.messages.InvalidFlagException;
+import uk.ac.exeter.QCRoutines.util.MissingValueMatcher;
+import uk.ac.exeter.QCRoutines.util.RoutineUtils;
 
 /**
  * Holds details of the configuration for a single SOCAT column
@@ -62,7 +65,26 @@ public class ColumnConfigItem {
 	 * The list of flag cascades for this column
 	 */
 	private List<FlagCascade> flagCascades = new ArrayList<FlagCascade>();
-
+	
+	/**
+	 * The columns flagged by this column's cascades when it is flagged as Questionable
+	 */
+	private FlagCascadeTargets questionableCascadeTargets = FlagCascadeTargets.EMPTY;
+	
+	/**
+	 * The columns flagged by this column's cascades when it is flagged as Bad
+	 */
+	private FlagCascadeTargets badCascadeTargets = FlagCascadeTargets.EMPTY;
+	
+	/**
+	 * The matcher for the column's missing values
+	 */
+	private MissingValueMatcher missingValues = MissingValueMatcher.DEFAULT;
+	
+	/**
+	 * The column set containing only this column, shared by all messages raised for it
+	 */
+	private ColumnSet columnSet = null;
 	
 	public ColumnConfigItem(int configFileLine, int columnIndex) {
 		this.configFileLine = configFileLine;
@@ -96,6 +118,14 @@ public class ColumnConfigItem {
 		return columnIndex;
 	}
 	
+	/**
+	 * Returns the column set containing only this column
+	 * @return The column set
+	 */
+	public ColumnSet getColumnSet() {
+		return columnSet;
+	}
+	
 	/**
 	 * Returns the data type of this column
 	 * @return The data type
@@ -135,7 +165,7 @@ public class ColumnConfigItem {
 							throw new ConfigException(columnConfig.getConfigFilename(), columnName, configFileLine, "Invalid bad cascade value for destionation column '" + column + "'");
 						}
 						
-						flagCascades.add(new FlagCascade(column, new Flag(questionableFlagCascade), new Flag(badFlagCascade)));
+						flagCascades.add(new FlagCascade(column, columnConfig.getColumnIndex(column), Flag.valueOf(questionableFlagCascade), Flag.valueOf(badFlagCascade)));
 						
 						
 					} catch (NumberFormatException e) {
@@ -153,6 +183,77 @@ public class ColumnConfigItem {
 		return flagCascades;
 	}
 	
+	/**
+	 * Returns the columns whose flags are changed by this column's flag cascades
+	 * when it is given the specified flag
+	 * @param flag The flag
+	 * @return The cascade targets
+	 */
+	public FlagCascadeTargets getCascadeTargets(Flag flag) {
+		FlagCascadeTargets result = FlagCascadeTargets.EMPTY;
+		if (flag.equals(Flag.QUESTIONABLE)) {
+			result = questionableCascadeTargets;
+		} else if (flag.equals(Flag.BAD)) {
+			result = badCascadeTargets;
+		}
+		return result;
+	}
+	
+	/**
+	 * Resolve this column's flag cascades into {@link FlagCascadeTargets}.
+	 * The flag cascades of all the columns must already have been parsed.
+	 * @param columnConfig The complete column configuration
+	 */
+	protected void compileFlagCascades(ColumnConfig columnConfig) {
+		questionableCascadeTargets = compileCascadeTargets(columnConfig, Flag.QUESTIONABLE);
+		badCascadeTargets = compileCascadeTargets(columnConfig, Flag.BAD);
+	}
+	
+	/**
+	 * Find the columns that this column's flag cascades change when it is given a flag
+	 * @param columnConfig The complete column configuration
+	 * @param flag The flag
+	 * @return The cascade targets
+	 */
+	private FlagCascadeTargets compileCascadeTargets(ColumnConfig columnConfig, Flag flag) {
+		List<ColumnConfigItem> targetColumns = new ArrayList<ColumnConfigItem>();
+		List<Flag> targetFlags = new ArrayList<Flag>();
+		
+		for (FlagCascade cascade : flagCascades) {
+			Flag cascadeFlag = cascade.getCascadeFlag(flag);
+			if (null != cascadeFlag) {
+				targetColumns.add(columnConfig.getColumnConfig(cascade.getDestinationColumn()));
+				targetFlags.add(cascadeFlag);
+			}
+		}
+		
+		FlagCascadeTargets result = FlagCascadeTargets.EMPTY;
+		if (targetColumns.size() > 0) {
+			result = new FlagCascadeTargets(targetColumns.toArray(new ColumnConfigItem[targetColumns.size()]), targetFlags.toArray(new Flag[targetFlags.size()]));
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Returns the matcher for the column's missing values. Unless missing
+	 * values are configured for the column, these are the
+	 * {@link RoutineUtils#DEFAULT_MISSING_VALUE_STRINGS}.
+	 * @return The missing value matcher
+	 */
+	public MissingValueMatcher getMissingValues() {
+		return missingValues;
+	}
+	
+	/**
+	 * Determines whether a value is one of the column's missing values
+	 * @param value The value
+	 * @return {@code true} if the value is {@code null} or a missing value; {@code false} otherwise
+	 */
+	public boolean isMissingValue(CharSequence value) {
+		return missingValues.matches(value);
+	}
+	
 	public boolean isNumeric() {
 		return (dataType.equals(TYPE_NUMERIC));
 	}
@@ -163,6 +264,7 @@ public class ColumnConfigItem {
 	
 	protected void setColumnName(String columnName) {
 		this.columnName = columnName;
+		this.columnSet = ColumnSet.get(columnIndex, columnName);
 	}
 	
 	protected void setDataType(String dataType) throws InvalidDataTypeException {
@@ -181,6 +283,16 @@ public class ColumnConfigItem {
 		this.flagCascadeConfig = flagCascadeConfig;
 	}
 	
+	/**
+	 * Set the column's missing values from a configuration string
+	 * of values separated by semi-colons. These replace the default
+	 * missing values; empty values are always treated as missing.
+	 * @param missingValuesConfig The missing values configuration
+	 */
+	protected void setMissingValuesConfig(String missingValuesConfig) {
+		this.missingValues = new MissingValueMatcher(Arrays.asList(missingValuesConfig.split(";")));
+	}
+	
 	/**
 	 * Check that a data type string is valid
 	 * @param type The dat type string
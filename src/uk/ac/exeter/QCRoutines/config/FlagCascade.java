@@ -1,6 +1,5 @@
 package uk.ac.exeter.QCRoutines.config;
 
-import uk.ac.exeter.QCRoutines.data.DataColumn;
 import uk.ac.exeter.QCRoutines.data.DataRecord;
 import uk.ac.exeter.QCRoutines.data.NoSuchColumnException;
 import uk.ac.exeter.QCRoutines.messages.Flag;
@@ -9,22 +8,47 @@ public class FlagCascade {
 
 	private String destinationColumn;
 	
+	private int destinationIndex;
+	
 	private Flag questionableCascadeFlag;
 	
 	private Flag badCascadeFlag;
 	
-	public FlagCascade(String destinationColumn, Flag questionableCascadeFlag, Flag badCascadeFlag) {
+	public FlagCascade(String destinationColumn, int destinationIndex, Flag questionableCascadeFlag, Flag badCascadeFlag) {
 		this.destinationColumn = destinationColumn;
+		this.destinationIndex = destinationIndex;
 		this.questionableCascadeFlag = questionableCascadeFlag;
 		this.badCascadeFlag = badCascadeFlag;
 	}
 	
 	public void apply(DataRecord record, Flag sourceFlag) throws NoSuchColumnException {
-		DataColumn column = record.getColumn(destinationColumn);
+		Flag cascadeFlag = getCascadeFlag(sourceFlag);
+		if (null != cascadeFlag) {
+			record.getColumn(destinationIndex).setFlag(cascadeFlag);
+		}
+	}
+	
+	/**
+	 * Returns the flag applied to the destination column when the source column
+	 * is given the specified flag
+	 * @param sourceFlag The source column's flag
+	 * @return The destination column's flag, or {@code null} if the flag does not cascade
+	 */
+	public Flag getCascadeFlag(Flag sourceFlag) {
+		Flag result = null;
 		if (sourceFlag.equals(Flag.QUESTIONABLE)) {
-			column.setFlag(questionableCascadeFlag);
+			result = questionableCascadeFlag;
 		} else if (sourceFlag.equals(Flag.BAD)) {
-			column.setFlag(badCascadeFlag);
+			result = badCascadeFlag;
 		}
+		return result;
+	}
+	
+	public String getDestinationColumn() {
+		return destinationColumn;
+	}
+	
+	public int getDestinationIndex() {
+		return destinationIndex;
 	}
 }
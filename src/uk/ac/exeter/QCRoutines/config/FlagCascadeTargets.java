@@ -0,0 +1,76 @@
+package uk.ac.exeter.QCRoutines.config;
+
+import uk.ac.exeter.QCRoutines.messages.Flag;
+
+/**
+ * The columns whose flags are changed by a column's {@link FlagCascade}s when
+ * it is given a particular flag. These are resolved once when the column
+ * configuration is loaded, so cascades can be applied without looking up
+ * columns by name.
+ *
+ * Only the column's own cascades are included. The cascades of the target
+ * columns are followed when the cascades are applied, and only for
+ * targets whose flag is actually raised.
+ */
+public final class FlagCascadeTargets {
+
+	/**
+	 * An empty set of targets
+	 */
+	public static final FlagCascadeTargets EMPTY = new FlagCascadeTargets(new ColumnConfigItem[0], new Flag[0]);
+
+	/**
+	 * The target columns
+	 */
+	private final ColumnConfigItem[] columns;
+
+	/**
+	 * The flag to be applied to each target column
+	 */
+	private final Flag[] flags;
+
+	/**
+	 * Create a set of targets. The arrays must not be modified afterwards.
+	 * @param columns The target columns
+	 * @param flags The flag to be applied to each target column
+	 */
+	FlagCascadeTargets(ColumnConfigItem[] columns, Flag[] flags) {
+		this.columns = columns;
+		this.flags = flags;
+	}
+
+	/**
+	 * Returns the number of target columns
+	 * @return The number of target columns
+	 */
+	public int size() {
+		return columns.length;
+	}
+
+	/**
+	 * Returns a target column
+	 * @param position The position of the target in the set
+	 * @return The column configuration
+	 */
+	public ColumnConfigItem getColumn(int position) {
+		return columns[position];
+	}
+
+	/**
+	 * Returns the index of a target column
+	 * @param position The position of the target in the set
+	 * @return The column index
+	 */
+	public int getColumnIndex(int position) {
+		return columns[position].getColumnIndex();
+	}
+
+	/**
+	 * Returns the flag to be applied to a target column
+	 * @param position The position of the target in the set
+	 * @return The flag
+	 */
+	public Flag getFlag(int position) {
+		return flags[position];
+	}
+}
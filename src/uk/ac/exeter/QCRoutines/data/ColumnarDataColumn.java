@@ -0,0 +1,69 @@
+package uk.ac.exeter.QCRoutines.data;
+
+import uk.ac.exeter.QCRoutines.config.ColumnConfigItem;
+import uk.ac.exeter.QCRoutines.messages.Flag;
+
+/**
+ * A view of a single value in a {@link ColumnarRecordSet}.
+ * The value and flag are read from and written to the record set.
+ */
+class ColumnarDataColumn extends DataColumn {
+
+	/**
+	 * The record set holding the value
+	 */
+	private ColumnarRecordSet recordSet;
+	
+	/**
+	 * The index of the record in the record set
+	 */
+	private int row;
+	
+	/**
+	 * Create a view of a value in a record set
+	 * @param parent The record view that this column belongs to
+	 * @param columnConfig The column configuration
+	 * @param recordSet The record set
+	 * @param row The index of the record in the record set
+	 */
+	ColumnarDataColumn(DataRecord parent, ColumnConfigItem columnConfig, ColumnarRecordSet recordSet, int row) {
+		super(parent, columnConfig);
+		this.recordSet = recordSet;
+		this.row = row;
+	}
+	
+	@Override
+	public String getValue() {
+		return recordSet.getValue(row, getColumnIndex());
+	}
+	
+	@Override
+	public double getDoubleValue() {
+		return (columnConfig.isNumeric() ? recordSet.getDoubleValue(row, getColumnIndex()) : Double.NaN);
+	}
+	
+	@Override
+	public boolean getBooleanValue() {
+		return (columnConfig.isBoolean() ? recordSet.getBooleanValue(row, getColumnIndex()) : false);
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return recordSet.isMissingValue(row, getColumnIndex());
+	}
+	
+	@Override
+	public void setValue(String value) throws InvalidDataException {
+		recordSet.setValue(row, getColumnIndex(), value);
+	}
+	
+	@Override
+	public Flag getFlag() {
+		return recordSet.getFlag(row, getColumnIndex());
+	}
+	
+	@Override
+	protected void storeFlag(Flag flag) {
+		recordSet.setFlag(row, getColumnIndex(), flag);
+	}
+}
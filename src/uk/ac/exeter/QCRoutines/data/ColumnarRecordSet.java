@@ -0,0 +1,1067 @@
+package uk.ac.exeter.QCRoutines.data;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.text.ParseException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.ac.exeter.QCRoutines.config.ColumnConfig;
+import uk.ac.exeter.QCRoutines.config.ColumnConfigItem;
+import uk.ac.exeter.QCRoutines.messages.Flag;
+import uk.ac.exeter.QCRoutines.messages.Message;
+import uk.ac.exeter.QCRoutines.util.MissingValueMatcher;
+import uk.ac.exeter.QCRoutines.util.RoutineUtils;
+
+/**
+ * Holds a complete set of data records in columnar form.
+ *
+ * Numeric columns are stored as {@code double} arrays, boolean columns
+ * as bit sets and string columns as {@code String} arrays. The flag for each
+ * value is stored as a single byte. This avoids creating a {@link DataColumn}
+ * object for every value in the data set.
+ *
+ * Individual records are accessed through {@link DataRecord} views, which are
+ * created on demand by the {@link RecordFactory} supplied to the record set.
+ * All values, flags and messages set through a view are stored in the record set,
+ * so views can be discarded once they have been used.
+ *
+ * The string values returned by the views are exactly those that were stored,
+ * as they are for a {@link DataRecord} that holds its own values. Most numeric
+ * values are written in plain decimal form (such as {@code 12.340}), so only the number
+ * of decimal places is kept and the text is rebuilt from the value when it is needed.
+ * Boolean values are rebuilt as {@code Y} or {@code N}. The text of any other numeric
+ * or boolean value (such as {@code 1e3} or {@code true}) is kept separately.
+ */
+public class ColumnarRecordSet {
+
+	/**
+	 * The initial number of records that space is allocated for
+	 */
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * The number of significant digits that every {@code double} can hold exactly.
+	 * Decimal values with no more digits than this can be rebuilt from their {@code double} value.
+	 */
+	private static final int PLAIN_DIGITS = 15;
+
+	/**
+	 * The precision used to rebuild plain decimal values
+	 */
+	private static final MathContext PLAIN_PRECISION = new MathContext(PLAIN_DIGITS);
+
+	/**
+	 * The number of decimal places stored for numeric values whose text cannot be rebuilt
+	 */
+	private static final byte NOT_PLAIN = -1;
+
+	/**
+	 * The text of boolean {@code true} values
+	 */
+	private static final String TRUE_TEXT = "Y";
+
+	/**
+	 * The text of boolean {@code false} values
+	 */
+	private static final String FALSE_TEXT = "N";
+
+	/**
+	 * The column configuration for the records
+	 */
+	private ColumnConfig columnConfig;
+
+	/**
+	 * The factory used to build record views
+	 */
+	private RecordFactory recordFactory;
+
+	/**
+	 * The number of records in the set
+	 */
+	private int size = 0;
+
+	/**
+	 * The number of records that space is currently allocated for
+	 */
+	private int capacity;
+
+	/**
+	 * The line numbers of the records
+	 */
+	private int[] lineNumbers;
+
+	/**
+	 * The values of the numeric columns. Entries for non-numeric columns are {@code null}.
+	 */
+	private double[][] numericValues;
+
+	/**
+	 * The values of the boolean columns. Entries for non-boolean columns are {@code null}.
+	 */
+	private BitSet[] booleanValues;
+
+	/**
+	 * The values of the string columns. Entries for other columns are {@code null}.
+	 */
+	private String[][] stringValues;
+
+	/**
+	 * The number of decimal places in the text of each value in the numeric columns,
+	 * or {@link #NOT_PLAIN} if the text is held in {@link #otherText}.
+	 * Entries for non-numeric columns are {@code null}.
+	 */
+	private byte[][] decimalPlaces;
+
+	/**
+	 * The text of numeric and boolean values that cannot be rebuilt from the
+	 * value, keyed by {@link #getTextKey(int, int)}
+	 */
+	private Map<Long, String> otherText = new HashMap<Long, String>();
+
+	/**
+	 * Indicates which values are {@code null} in each column
+	 */
+	private BitSet[] nullValues;
+
+	/**
+	 * Indicates which values are {@code null} or one of the column's missing values,
+	 * as defined by {@link ColumnConfigItem#getMissingValues()}. These are calculated
+	 * when the values are stored.
+	 */
+	private BitSet[] missingValues;
+
+	/**
+	 * The missing value matcher for each column
+	 */
+	private MissingValueMatcher[] missingValueMatchers;
+
+	/**
+	 * The flags for each column
+	 */
+	private byte[][] flags;
+
+	/**
+	 * The messages for each record. Entries are only created when they are needed.
+	 */
+	private ArrayList<List<Message>> messages;
+
+	/**
+	 * The time of each record in milliseconds since the epoch, or {@link DataRecord#NO_TIME}
+	 * if the record has no time. Calculated with the positions when first needed.
+	 */
+	private long[] timeMillis;
+
+	/**
+	 * The longitude of each record. Calculated with the times when first needed.
+	 */
+	private double[] longitudes;
+
+	/**
+	 * The latitude of each record. Calculated with the times when first needed.
+	 */
+	private double[] latitudes;
+
+	/**
+	 * The records whose time could not be calculated
+	 */
+	private BitSet timeErrors;
+
+	/**
+	 * The records whose longitude could not be calculated
+	 */
+	private BitSet longitudeErrors;
+
+	/**
+	 * The records whose latitude could not be calculated
+	 */
+	private BitSet latitudeErrors;
+
+	/**
+	 * Indicates whether the record times and positions have been calculated
+	 */
+	private volatile boolean trackCalculated = false;
+
+	/**
+	 * Create an empty record set
+	 * @param columnConfig The column configuration for the records
+	 * @param recordFactory The factory used to build record views
+	 */
+	public ColumnarRecordSet(ColumnConfig columnConfig, RecordFactory recordFactory) {
+		this.columnConfig = columnConfig;
+		this.recordFactory = recordFactory;
+
+		capacity = DEFAULT_CAPACITY;
+		int columnSlots = columnConfig.getColumnCount() + 1;
+
+		lineNumbers = new int[capacity];
+		numericValues = new double[columnSlots][];
+		booleanValues = new BitSet[columnSlots];
+		stringValues = new String[columnSlots][];
+		decimalPlaces = new byte[columnSlots][];
+		nullValues = new BitSet[columnSlots];
+		missingValues = new BitSet[columnSlots];
+		missingValueMatchers = new MissingValueMatcher[columnSlots];
+		flags = new byte[columnSlots][];
+		messages = new ArrayList<List<Message>>(capacity);
+
+		// Column indices are 1-based
+		for (int i = 1; i < columnSlots; i++) {
+			ColumnConfigItem item = getColumnConfigItem(i);
+			if (item.isNumeric()) {
+				numericValues[i] = new double[capacity];
+				decimalPlaces[i] = new byte[capacity];
+			} else if (item.isBoolean()) {
+				booleanValues[i] = new BitSet();
+			} else {
+				stringValues[i] = new String[capacity];
+			}
+
+			nullValues[i] = new BitSet();
+			missingValues[i] = new BitSet();
+			missingValueMatchers[i] = item.getMissingValues();
+			flags[i] = new byte[capacity];
+		}
+	}
+
+	/**
+	 * Add a record to the set. The data fields are in the same form as those
+	 * passed to {@link DataRecord#DataRecord(int, ColumnConfig, List)}.
+	 * @param lineNumber The line number of the record
+	 * @param dataFields The data values for the record
+	 * @return The index of the new record in the set
+	 * @throws DataRecordException If the data fields do not match the columns/data types of the record
+	 */
+	public int addRecord(int lineNumber, List<String> dataFields) throws DataRecordException {
+
+		if (dataFields.size() > columnConfig.getColumnCount() + 1) {
+			throw new NoSuchColumnException(lineNumber, dataFields.size() - 1);
+		}
+
+		ensureCapacity(size + 1);
+		int row = size;
+		lineNumbers[row] = lineNumber;
+		messages.add(null);
+
+		for (int i = 1; i < nullValues.length; i++) {
+			String value = (i < dataFields.size() ? dataFields.get(i) : null);
+			try {
+				storeValue(lineNumber, row, i, value);
+			} catch (InvalidDataException e) {
+				// Remove the partially stored record
+				messages.remove(row);
+				throw e;
+			}
+		}
+
+		size++;
+		trackCalculated = false;
+		return row;
+	}
+
+	/**
+	 * Start adding a record whose values will be stored directly, without
+	 * creating a list of strings. Every column must then be set with one of
+	 * the {@code store} methods before the record is completed with
+	 * {@link #finishRecord()} or discarded with {@link #cancelRecord()}.
+	 * @param lineNumber The line number of the record
+	 * @return The index of the new record
+	 */
+	int startRecord(int lineNumber) {
+		ensureCapacity(size + 1);
+		lineNumbers[size] = lineNumber;
+		messages.add(null);
+		return size;
+	}
+
+	/**
+	 * Complete a record started with {@link #startRecord(int)}
+	 */
+	void finishRecord() {
+		size++;
+		trackCalculated = false;
+	}
+
+	/**
+	 * Discard a record started with {@link #startRecord(int)}
+	 */
+	void cancelRecord() {
+		messages.remove(size);
+	}
+
+	/**
+	 * Store a {@code null} value for a column of a record being added.
+	 * {@code null} values are always treated as missing.
+	 * @param row The record index
+	 * @param columnIndex The 1-based column index
+	 */
+	void storeNull(int row, int columnIndex) {
+		nullValues[columnIndex].set(row);
+		missingValues[columnIndex].set(row);
+		if (null != numericValues[columnIndex]) {
+			numericValues[columnIndex][row] = Double.NaN;
+			removeOtherText(row, columnIndex);
+		} else if (null != booleanValues[columnIndex]) {
+			booleanValues[columnIndex].clear(row);
+			removeOtherText(row, columnIndex);
+		} else {
+			stringValues[columnIndex][row] = null;
+		}
+	}
+
+	/**
+	 * Store the value of a numeric column for a record being added.
+	 * The caller must already have checked that the value is not a missing value.
+	 * @param row The record index
+	 * @param columnIndex The 1-based column index
+	 * @param value The value
+	 * @param text The original text of the value. This is only converted
+	 * to a {@code String} if it cannot be rebuilt from the value.
+	 */
+	void storeNumeric(int row, int columnIndex, double value, CharSequence text) {
+		numericValues[columnIndex][row] = value;
+
+		int places = getDecimalPlaces(text);
+		if (places == NOT_PLAIN) {
+			decimalPlaces[columnIndex][row] = NOT_PLAIN;
+			otherText.put(getTextKey(row, columnIndex), text.toString());
+		} else {
+			decimalPlaces[columnIndex][row] = (byte) places;
+			removeOtherText(row, columnIndex);
+		}
+
+		nullValues[columnIndex].clear(row);
+		missingValues[columnIndex].clear(row);
+	}
+
+	/**
+	 * Store the value of a boolean column for a record being added.
+	 * The caller must already have checked that the value is not a missing value.
+	 * @param row The record index
+	 * @param columnIndex The 1-based column index
+	 * @param value The value
+	 * @param text The original text of the value
+	 */
+	void storeBoolean(int row, int columnIndex, boolean value, String text) {
+		booleanValues[columnIndex].set(row, value);
+
+		if (text.equals(value ? TRUE_TEXT : FALSE_TEXT)) {
+			removeOtherText(row, columnIndex);
+		} else {
+			otherText.put(getTextKey(row, columnIndex), text);
+		}
+
+		nullValues[columnIndex].clear(row);
+		missingValues[columnIndex].clear(row);
+	}
+
+	/**
+	 * Store the value of a string column for a record being added.
+	 * The caller must already have checked that the value is not a missing value.
+	 * @param row The record index
+	 * @param columnIndex The 1-based column index
+	 * @param value The value
+	 */
+	void storeString(int row, int columnIndex, String value) {
+		stringValues[columnIndex][row] = value;
+		nullValues[columnIndex].clear(row);
+		missingValues[columnIndex].clear(row);
+	}
+
+	/**
+	 * Store one of a column's missing values for a record being added.
+	 * If the value is valid for the column's data type it is stored like
+	 * any other value, so a missing value of {@code -999} in a numeric column
+	 * is still {@code -999}. Otherwise, as for empty values in numeric columns,
+	 * the value is stored as {@code null}. In both cases the value is marked as missing.
+	 * @param row The record index
+	 * @param columnIndex The 1-based column index
+	 * @param value The value
+	 */
+	void storeMissingValue(int row, int columnIndex, String value) {
+		if (storeTypedValue(row, columnIndex, value)) {
+			missingValues[columnIndex].set(row);
+		} else {
+			storeNull(row, columnIndex);
+		}
+	}
+
+	/**
+	 * Parse and store a value according to the column's data type
+	 * @param row The record index
+	 * @param columnIndex The 1-based column index
+	 * @param value The value
+	 * @return {@code true} if the value was stored; {@code false} if it is not valid for the column's data type
+	 */
+	private boolean storeTypedValue(int row, int columnIndex, String value) {
+		boolean result = true;
+
+		if (null != numericValues[columnIndex]) {
+			if (RoutineUtils.isNumeric(value)) {
+				storeNumeric(row, columnIndex, RoutineUtils.parseNumeric(value), value);
+			} else {
+				result = false;
+			}
+		} else if (null != booleanValues[columnIndex]) {
+			try {
+				storeBoolean(row, columnIndex, RoutineUtils.parseBoolean(value), value);
+			} catch (ParseException e) {
+				result = false;
+			}
+		} else {
+			storeString(row, columnIndex, value);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Append all the records in another record set to this set, including their
+	 * flags and messages. The other set must use the same column configuration,
+	 * and should not be used afterwards because the message lists are shared.
+	 * @param other The record set to append
+	 * @throws IllegalArgumentException If the record sets have different column configurations
+	 */
+	public void append(ColumnarRecordSet other) {
+		if (other.columnConfig != columnConfig) {
+			throw new IllegalArgumentException("Record sets have different column configurations");
+		}
+
+		int otherSize = other.size;
+		ensureCapacity(size + otherSize);
+
+		System.arraycopy(other.lineNumbers, 0, lineNumbers, size, otherSize);
+		for (int i = 1; i < nullValues.length; i++) {
+			if (null != numericValues[i]) {
+				System.arraycopy(other.numericValues[i], 0, numericValues[i], size, otherSize);
+				System.arraycopy(other.decimalPlaces[i], 0, decimalPlaces[i], size, otherSize);
+			} else if (null != booleanValues[i]) {
+				appendBits(other.booleanValues[i], booleanValues[i], otherSize);
+			} else {
+				System.arraycopy(other.stringValues[i], 0, stringValues[i], size, otherSize);
+			}
+
+			appendBits(other.nullValues[i], nullValues[i], otherSize);
+			appendBits(other.missingValues[i], missingValues[i], otherSize);
+			System.arraycopy(other.flags[i], 0, flags[i], size, otherSize);
+		}
+
+		for (Map.Entry<Long, String> entry : other.otherText.entrySet()) {
+			long key = entry.getKey();
+			int otherRow = (int) (key / nullValues.length);
+			if (otherRow < otherSize) {
+				otherText.put(getTextKey(size + otherRow, (int) (key % nullValues.length)), entry.getValue());
+			}
+		}
+
+		messages.addAll(other.messages.subList(0, otherSize));
+
+		size += otherSize;
+		trackCalculated = false;
+	}
+
+	/**
+	 * Returns the number of records in the set
+	 * @return The number of records
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the factory used to build record views
+	 * @return The record factory
+	 */
+	RecordFactory getRecordFactory() {
+		return recordFactory;
+	}
+
+	/**
+	 * Returns the column configuration for the records in the set
+	 * @return The column configuration
+	 */
+	public ColumnConfig getColumnConfig() {
+		return columnConfig;
+	}
+
+	/**
+	 * Returns the line number of the specified record
+	 * @param row The record index
+	 * @return The line number
+	 */
+	public int getLineNumber(int row) {
+		checkRow(row);
+		return lineNumbers[row];
+	}
+
+	/**
+	 * Returns the value of a column as a String
+	 * @param row The record index
+	 * @param columnIndex The 1-based column index
+	 * @return The value
+	 */
+	public String getValue(int row, int columnIndex) {
+		checkRow(row);
+
+		String result;
+		if (null != stringValues[columnIndex]) {
+			result = stringValues[columnIndex][row];
+		} else if (nullValues[columnIndex].get(row)) {
+			result = null;
+		} else if (null != numericValues[columnIndex]) {
+			int places = decimalPlaces[columnIndex][row];
+			if (places == NOT_PLAIN) {
+				result = otherText.get(getTextKey(row, columnIndex));
+			} else {
+				result = new BigDecimal(numericValues[columnIndex][row]).round(PLAIN_PRECISION).setScale(places, RoundingMode.HALF_EVEN).toPlainString();
+			}
+		} else {
+			result = otherText.get(getTextKey(row, columnIndex));
+			if (null == result) {
+				result = (booleanValues[columnIndex].get(row) ? TRUE_TEXT : FALSE_TEXT);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the value of a numeric column. {@code null} values are
+	 * returned as {@link Double#NaN}.
+	 * @param row The record index
+	 * @param columnIndex The 1-based column index
+	 * @return The value
+	 * @throws IllegalArgumentException If the column is not numeric
+	 */
+	public double getDoubleValue(int row, int columnIndex) {
+		checkRow(row);
+
+		double[] column = numericValues[columnIndex];
+		if (null == column) {
+			throw new IllegalArgumentException("Column " + columnIndex + " is not numeric");
+		}
+
+		return (nullValues[columnIndex].get(row) ? Double.NaN : column[row]);
+	}
+
+	/**
+	 * Returns the value of a boolean column. {@code null} values are
+	 * returned as {@code false}.
+	 * @param row The record index
+	 * @param columnIndex The 1-based column index
+	 * @return The value
+	 * @throws IllegalArgumentException If the column is not boolean
+	 */
+	public boolean getBooleanValue(int row, int columnIndex) {
+		checkRow(row);
+
+		BitSet column = booleanValues[columnIndex];
+		if (null == column) {
+			throw new IllegalArgumentException("Column " + columnIndex + " is not boolean");
+		}
+
+		return column.get(row);
+	}
+
+	/**
+	 * Determines whether or not the value of a column is {@code null}
+	 * @param row The record index
+	 * @param columnIndex The 1-based column index
+	 * @return {@code true} if the value is {@code null}; {@code false} if it is not
+	 */
+	public boolean isNull(int row, int columnIndex) {
+		checkRow(row);
+		return nullValues[columnIndex].get(row);
+	}
+
+	/**
+	 * Determines whether or not the value of a column is {@code null} or one
+	 * of the column's missing values
+	 * @param row The record index
+	 * @param columnIndex The 1-based column index
+	 * @return {@code true} if the value is missing; {@code false} if it is not
+	 */
+	public boolean isMissingValue(int row, int columnIndex) {
+		checkRow(row);
+		return missingValues[columnIndex].get(row);
+	}
+
+	/**
+	 * Returns the bit set indicating which values of a column are {@code null}
+	 * or one of the column's missing values. The bit set may have bits set beyond
+	 * the number of records, and must not be modified.
+	 * @param columnIndex The 1-based column index
+	 * @return The missing value bits
+	 */
+	public BitSet getMissingValues(int columnIndex) {
+		return missingValues[columnIndex];
+	}
+
+	/**
+	 * Returns the numeric values for a column. The array may be longer than the
+	 * number of records; {@code null} values are stored as {@link Double#NaN}.
+	 * The array must not be modified.
+	 * @param columnIndex The 1-based column index
+	 * @return The column values
+	 * @throws IllegalArgumentException If the column is not numeric
+	 */
+	public double[] getNumericColumn(int columnIndex) {
+		double[] column = numericValues[columnIndex];
+		if (null == column) {
+			throw new IllegalArgumentException("Column " + columnIndex + " is not numeric");
+		}
+
+		return column;
+	}
+
+	/**
+	 * Set the value of a column
+	 * @param row The record index
+	 * @param columnIndex The 1-based column index
+	 * @param value The value
+	 * @throws InvalidDataException If the value does not match the column's data type
+	 */
+	public void setValue(int row, int columnIndex, String value) throws InvalidDataException {
+		checkRow(row);
+		storeValue(lineNumbers[row], row, columnIndex, value);
+		trackCalculated = false;
+	}
+
+	/**
+	 * Returns the time of a record in milliseconds since the epoch. The times and
+	 * positions of all the records are calculated from the record views the first
+	 * time any of them is requested.
+	 * @param row The record index
+	 * @return The time, or {@link DataRecord#NO_TIME} if the record has no time
+	 * @throws DataRecordException If the time cannot be calculated
+	 */
+	public long getTimeMillis(int row) throws DataRecordException {
+		checkRow(row);
+		calculateTrack();
+
+		long result;
+		if (timeErrors.get(row)) {
+			result = DataRecord.toMillis(getRecord(row).getTime());
+		} else {
+			result = timeMillis[row];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the longitude of a record
+	 * @param row The record index
+	 * @return The longitude
+	 * @throws DataRecordException If the longitude cannot be calculated
+	 * @see #getTimeMillis(int)
+	 */
+	public double getLongitude(int row) throws DataRecordException {
+		checkRow(row);
+		calculateTrack();
+
+		double result;
+		if (longitudeErrors.get(row)) {
+			result = getRecord(row).getLongitude();
+		} else {
+			result = longitudes[row];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the latitude of a record
+	 * @param row The record index
+	 * @return The latitude
+	 * @throws DataRecordException If the latitude cannot be calculated
+	 * @see #getTimeMillis(int)
+	 */
+	public double getLatitude(int row) throws DataRecordException {
+		checkRow(row);
+		calculateTrack();
+
+		double result;
+		if (latitudeErrors.get(row)) {
+			result = getRecord(row).getLatitude();
+		} else {
+			result = latitudes[row];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the flag for a column
+	 * @param row The record index
+	 * @param columnIndex The 1-based column index
+	 * @return The flag
+	 */
+	public Flag getFlag(int row, int columnIndex) {
+		checkRow(row);
+		return Flag.fromCode(flags[columnIndex][row]);
+	}
+
+	/**
+	 * Set the flag for a column. This does not apply any flag cascades.
+	 * @param row The record index
+	 * @param columnIndex The 1-based column index
+	 * @param flag The flag
+	 */
+	public void setFlag(int row, int columnIndex, Flag flag) {
+		checkRow(row);
+		flags[columnIndex][row] = flag.getCode();
+	}
+
+	/**
+	 * Returns the flag codes for a column, as given by {@link Flag#getCode()}.
+	 * The array may be longer than the number of records.
+	 * Changes to the array are reflected in the record set, and do not apply any flag cascades.
+	 * @param columnIndex The 1-based column index
+	 * @return The flag codes
+	 */
+	public byte[] getFlagCodes(int columnIndex) {
+		return flags[columnIndex];
+	}
+
+	/**
+	 * Returns the list of messages for a record. The list is
+	 * held by the record set, so changes to it will be retained.
+	 *
+	 * Views of the same record may be created on several threads at once,
+	 * for example by {@link uk.ac.exeter.QCRoutines.routines.RoutineRunner#runParallel(List)},
+	 * so the list is created under a lock to make sure that every view gets the same list.
+	 * @param row The record index
+	 * @return The messages
+	 */
+	public List<Message> getMessages(int row) {
+		checkRow(row);
+
+		List<Message> result;
+		synchronized (messages) {
+			result = messages.get(row);
+			if (null == result) {
+				result = new ArrayList<Message>(1);
+				messages.set(row, result);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Create a {@link DataRecord} view of a record in the set
+	 * @param row The record index
+	 * @return The record view
+	 */
+	public DataRecord getRecord(int row) {
+		checkRow(row);
+		return recordFactory.createRecord(this, row);
+	}
+
+	/**
+	 * Returns a list view of all the records in the set. Record views
+	 * are created as they are retrieved from the list.
+	 * @return The records
+	 */
+	public List<DataRecord> getRecords() {
+		return new RecordList();
+	}
+
+	/**
+	 * Returns the record set behind a list of records, if the list was
+	 * created by {@link #getRecords()}. This allows routines to work directly
+	 * on the columns of the record set instead of on individual records.
+	 * @param records The records
+	 * @return The record set, or {@code null} if the list is not a view of a record set
+	 */
+	public static ColumnarRecordSet getRecordSet(List<DataRecord> records) {
+		ColumnarRecordSet result = null;
+		if (records instanceof RecordList) {
+			result = ((RecordList) records).getRecordSet();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Build the list of columns for a record view
+	 * @param record The record view
+	 * @param row The record index
+	 * @return The record's columns
+	 */
+	protected List<DataColumn> getDataColumns(final DataRecord record, final int row) {
+		return new AbstractList<DataColumn>() {
+
+			@Override
+			public DataColumn get(int columnIndex) {
+				DataColumn result = null;
+
+				// Column indices are 1-based, so there is no zeroth column
+				if (columnIndex > 0) {
+					result = new ColumnarDataColumn(record, getColumnConfigItem(columnIndex), ColumnarRecordSet.this, row);
+				}
+
+				return result;
+			}
+
+			@Override
+			public int size() {
+				return nullValues.length;
+			}
+		};
+	}
+
+	/**
+	 * Validate and store a value
+	 * @param lineNumber The line number of the record, used for error reporting
+	 * @param row The record index
+	 * @param columnIndex The 1-based column index
+	 * @param value The value
+	 * @throws InvalidDataException If the value is not a missing value and does not match the column's data type
+	 */
+	private void storeValue(int lineNumber, int row, int columnIndex, String value) throws InvalidDataException {
+		if (null == value) {
+			storeNull(row, columnIndex);
+		} else if (missingValueMatchers[columnIndex].matches(value)) {
+			storeMissingValue(row, columnIndex, value);
+		} else if (!storeTypedValue(row, columnIndex, value)) {
+			throw new InvalidDataException(lineNumber, new DataColumn(getColumnConfigItem(columnIndex), value));
+		}
+	}
+
+	/**
+	 * Calculate the times and positions of all the records, if this has not already been done.
+	 * Failures are recorded separately for the time, longitude and latitude of each record,
+	 * so only the value that failed is calculated again (and the error reported) when it is requested.
+	 */
+	private void calculateTrack() {
+		if (!trackCalculated) {
+			synchronized (this) {
+				if (!trackCalculated) {
+					long[] newTimes = new long[size];
+					double[] newLongitudes = new double[size];
+					double[] newLatitudes = new double[size];
+					BitSet newTimeErrors = new BitSet();
+					BitSet newLongitudeErrors = new BitSet();
+					BitSet newLatitudeErrors = new BitSet();
+
+					for (int row = 0; row < size; row++) {
+						DataRecord record = getRecord(row);
+						try {
+							newTimes[row] = DataRecord.toMillis(record.getTime());
+						} catch (DataRecordException e) {
+							newTimeErrors.set(row);
+						}
+						try {
+							newLongitudes[row] = record.getLongitude();
+						} catch (DataRecordException e) {
+							newLongitudeErrors.set(row);
+						}
+						try {
+							newLatitudes[row] = record.getLatitude();
+						} catch (DataRecordException e) {
+							newLatitudeErrors.set(row);
+						}
+					}
+
+					timeMillis = newTimes;
+					longitudes = newLongitudes;
+					latitudes = newLatitudes;
+					timeErrors = newTimeErrors;
+					longitudeErrors = newLongitudeErrors;
+					latitudeErrors = newLatitudeErrors;
+					trackCalculated = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Make sure that there is space for the specified number of records
+	 * @param required The number of records
+	 */
+	private void ensureCapacity(int required) {
+		if (required > capacity) {
+			int newCapacity = Math.max(required, capacity * 2);
+
+			lineNumbers = Arrays.copyOf(lineNumbers, newCapacity);
+			for (int i = 1; i < nullValues.length; i++) {
+				if (null != numericValues[i]) {
+					numericValues[i] = Arrays.copyOf(numericValues[i], newCapacity);
+					decimalPlaces[i] = Arrays.copyOf(decimalPlaces[i], newCapacity);
+				} else if (null != stringValues[i]) {
+					stringValues[i] = Arrays.copyOf(stringValues[i], newCapacity);
+				}
+				flags[i] = Arrays.copyOf(flags[i], newCapacity);
+			}
+
+			messages.ensureCapacity(newCapacity);
+			capacity = newCapacity;
+		}
+	}
+
+	/**
+	 * Returns the key of a value in {@link #otherText}
+	 * @param row The record index
+	 * @param columnIndex The 1-based column index
+	 * @return The key
+	 */
+	private long getTextKey(int row, int columnIndex) {
+		return (long) row * nullValues.length + columnIndex;
+	}
+
+	/**
+	 * Remove the text of a value from {@link #otherText}, if it is there
+	 * @param row The record index
+	 * @param columnIndex The 1-based column index
+	 */
+	private void removeOtherText(int row, int columnIndex) {
+		// Avoid creating a key when there is nothing to remove, which is the usual case
+		if (!otherText.isEmpty()) {
+			otherText.remove(getTextKey(row, columnIndex));
+		}
+	}
+
+	/**
+	 * Find the number of decimal places in a number written in plain decimal form,
+	 * with no exponent, no leading plus sign or zeros and at most {@link #PLAIN_DIGITS}
+	 * significant digits. The text of such numbers can be rebuilt exactly
+	 * from their {@code double} value and the number of decimal places.
+	 * @param text The text of the number
+	 * @return The number of decimal places, or {@link #NOT_PLAIN} if the number is not in plain form
+	 */
+	private static int getDecimalPlaces(CharSequence text) {
+		int result = NOT_PLAIN;
+
+		int length = text.length();
+		int position = 0;
+		boolean negative = (length > 0 && text.charAt(0) == '-');
+		if (negative) {
+			position++;
+		}
+
+		int integerStart = position;
+		int significantDigits = 0;
+		while (position < length && isDigit(text.charAt(position))) {
+			if (significantDigits > 0 || text.charAt(position) != '0') {
+				significantDigits++;
+			}
+			position++;
+		}
+
+		int integerDigits = position - integerStart;
+		if (integerDigits == 1 || (integerDigits > 1 && text.charAt(integerStart) != '0')) {
+			int places = 0;
+			boolean valid = true;
+
+			if (position < length && text.charAt(position) == '.') {
+				position++;
+				int fractionStart = position;
+				while (position < length && isDigit(text.charAt(position))) {
+					if (significantDigits > 0 || text.charAt(position) != '0') {
+						significantDigits++;
+					}
+					position++;
+				}
+				places = position - fractionStart;
+				valid = (places > 0);
+			}
+
+			// -0 would be rebuilt as 0
+			if (valid && position == length && significantDigits <= PLAIN_DIGITS
+					&& places <= Byte.MAX_VALUE && !(negative && significantDigits == 0)) {
+				result = places;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Determines whether a character is an ASCII digit
+	 * @param c The character
+	 * @return {@code true} if the character is a digit; {@code false} if it is not
+	 */
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * Copy bits from another record set's bit set to the end of the records in this set
+	 * @param source The other record set's bits
+	 * @param destination This record set's bits
+	 * @param count The number of records in the other record set
+	 */
+	private void appendBits(BitSet source, BitSet destination, int count) {
+		destination.clear(size, size + count);
+		for (int bit = source.nextSetBit(0); bit >= 0 && bit < count; bit = source.nextSetBit(bit + 1)) {
+			destination.set(size + bit);
+		}
+	}
+
+	/**
+	 * Make sure that a record index is valid
+	 * @param row The record index
+	 */
+	private void checkRow(int row) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("Record index " + row + " is out of range (size " + size + ")");
+		}
+	}
+
+	/**
+	 * Get the configuration for a column
+	 * @param columnIndex The 1-based column index
+	 * @return The column configuration
+	 */
+	private ColumnConfigItem getColumnConfigItem(int columnIndex) {
+		return columnConfig.getColumnConfig(columnConfig.getColumnList().get(columnIndex));
+	}
+
+	/**
+	 * Builds {@link DataRecord} views over a {@link ColumnarRecordSet}.
+	 * Implementations will normally call the {@link DataRecord#DataRecord(ColumnarRecordSet, int)}
+	 * constructor of a concrete record class.
+	 */
+	public interface RecordFactory {
+
+		/**
+		 * Create a view of a record in the record set
+		 * @param recordSet The record set
+		 * @param row The record index
+		 * @return The record view
+		 */
+		public DataRecord createRecord(ColumnarRecordSet recordSet, int row);
+	}
+
+	/**
+	 * A list view of the records in the record set
+	 */
+	private class RecordList extends AbstractList<DataRecord> {
+
+		@Override
+		public DataRecord get(int row) {
+			return getRecord(row);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Returns the record set that the list is a view of
+		 * @return The record set
+		 */
+		private ColumnarRecordSet getRecordSet() {
+			return ColumnarRecordSet.this;
+		}
+	}
+}
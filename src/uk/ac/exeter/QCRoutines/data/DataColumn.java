@@ -1,9 +1,9 @@
 package uk.ac.exeter.QCRoutines.data;
 
-import java.util.List;
+import java.text.ParseException;
 
 import uk.ac.exeter.QCRoutines.config.ColumnConfigItem;
-import uk.ac.exeter.QCRoutines.config.FlagCascade;
+import uk.ac.exeter.QCRoutines.messages.ColumnSet;
 import uk.ac.exeter.QCRoutines.messages.Flag;
 import uk.ac.exeter.QCRoutines.util.RoutineUtils;
 
@@ -13,6 +13,16 @@ public class DataColumn {
 	
 	private String value;
 	
+	/**
+	 * The parsed value of a numeric column
+	 */
+	private double doubleValue = Double.NaN;
+	
+	/**
+	 * The parsed value of a boolean column
+	 */
+	private boolean booleanValue = false;
+	
 	private Flag flag = Flag.GOOD;
 	
 	private DataRecord parent;
@@ -26,16 +36,27 @@ public class DataColumn {
 	public DataColumn(DataRecord parent, ColumnConfigItem columnConfig, String value) throws InvalidDataException {
 		this.parent = parent;
 		this.columnConfig = columnConfig;
-		this.value = value;
-		validateDataType();
+		this.value = validateDataType(value);
 	}
 	
 	public DataColumn(DataRecord parent, ColumnConfigItem columnConfig, String value, Flag flag) throws InvalidDataException {
 		this.parent = parent;
 		this.columnConfig = columnConfig;
-		this.value = value;
+		this.value = validateDataType(value);
 		this.flag = flag;
-		validateDataType();
+	}
+	
+	/**
+	 * Creates a column that is not attached to a record, holding a value that
+	 * has not been validated. This is used to report values that are rejected
+	 * by a {@link ColumnarRecordSet}.
+	 * @param columnConfig The column configuration
+	 * @param value The value
+	 */
+	DataColumn(ColumnConfigItem columnConfig, String value) {
+		this.parent = null;
+		this.columnConfig = columnConfig;
+		this.value = value;
 	}
 	
 	public String getName() {
@@ -46,67 +67,130 @@ public class DataColumn {
 		return value;
 	}
 	
-	private void validateDataType() throws InvalidDataException {
-		validateDataType(value);
+	/**
+	 * Returns the value of a numeric column. {@code null} values, and
+	 * the values of non-numeric columns, are returned as {@link Double#NaN}.
+	 * @return The numeric value
+	 */
+	public double getDoubleValue() {
+		return doubleValue;
+	}
+	
+	/**
+	 * Returns the value of a boolean column. {@code null} values, and
+	 * the values of non-boolean columns, are returned as {@code false}.
+	 * @return The boolean value
+	 */
+	public boolean getBooleanValue() {
+		return booleanValue;
 	}
 	
-	private void validateDataType(String value) throws InvalidDataException {
+	/**
+	 * Check that a value matches the column's data type, and store
+	 * the parsed numeric or boolean value so it does not need to be
+	 * parsed again.
+	 * 
+	 * As in a {@link ColumnarRecordSet}, one of the column's missing values
+	 * that does not match the data type (such as {@code N/A} in a numeric
+	 * column) is stored as {@code null} instead of being rejected.
+	 * @param value The value
+	 * @return The value to store
+	 * @throws InvalidDataException If the value does not match the column's data type
+	 */
+	private String validateDataType(String value) throws InvalidDataException {
+		
+		String result = value;
+		double parsedDouble = Double.NaN;
+		boolean parsedBoolean = false;
 		
 		if (null != value) {
 			
 			switch(columnConfig.getDataType()) {
 			case ColumnConfigItem.TYPE_NUMERIC: {
-				if (!RoutineUtils.isNumeric(value)) {
-					throw new InvalidDataException(parent.getLineNumber(), this);
+				if (RoutineUtils.isNumeric(value)) {
+					parsedDouble = RoutineUtils.parseNumeric(value);
+				} else if (columnConfig.isMissingValue(value)) {
+					result = null;
+				} else {
+					throw new InvalidDataException(parent.getLineNumber(), new DataColumn(columnConfig, value));
 				}
 				break;
 			}
 			case ColumnConfigItem.TYPE_BOOLEAN: {
-				if (!RoutineUtils.isBoolean(value)) {
-					throw new InvalidDataException(parent.getLineNumber(), this);
+				try {
+					parsedBoolean = RoutineUtils.parseBoolean(value);
+				} catch (ParseException e) {
+					if (columnConfig.isMissingValue(value)) {
+						result = null;
+					} else {
+						throw new InvalidDataException(parent.getLineNumber(), new DataColumn(columnConfig, value));
+					}
 				}
 				break;
 			}
 			}
 		}
+		
+		doubleValue = parsedDouble;
+		booleanValue = parsedBoolean;
+		
+		return result;
 	}
 	
 	public int getColumnIndex() {
 		return columnConfig.getColumnIndex();
 	}
 	
+	/**
+	 * Returns the shared column set containing only this column
+	 * @return The column set
+	 */
+	public ColumnSet getColumnSet() {
+		return columnConfig.getColumnSet();
+	}
+	
 	public String getDataType() {
 		return columnConfig.getDataType();
 	}
 	
 	public void resetFlag() {
-		flag = Flag.GOOD;
+		storeFlag(Flag.GOOD);
 	}
 	
 	public void setFlag(Flag flag) throws NoSuchColumnException {
-		if (flag.moreSignificantThan(this.flag)) {
-			this.flag = flag;
+		if (flag.moreSignificantThan(getFlag())) {
+			storeFlag(flag);
 
-			if (flag.equals(Flag.QUESTIONABLE) || flag.equals(Flag.BAD)) {
-				List<FlagCascade> cascades = columnConfig.getFlagCascades();
-				for (FlagCascade cascade : cascades) {
-					cascade.apply(parent, flag);
-				}
-			}
+			parent.applyCascades(columnConfig.getCascadeTargets(flag));
 		}
 	}
 	
 	public void setValue(String value) throws InvalidDataException {
-		validateDataType(value);
-		this.value = value;
+		this.value = validateDataType(value);
+		
+		if (null != parent) {
+			parent.clearCachedValues();
+		}
 	}
 	
 	public Flag getFlag() {
 		return flag;
 	}
 	
+	/**
+	 * Store the flag for this column, without applying any flag cascades
+	 * @param flag The flag
+	 */
+	protected void storeFlag(Flag flag) {
+		this.flag = flag;
+	}
+	
+	/**
+	 * Determines whether the value is {@code null} or one of the column's missing values
+	 * @return {@code true} if the value is missing; {@code false} if it is not
+	 */
 	public boolean isEmpty() {
-		return RoutineUtils.isEmpty(value);
+		return columnConfig.isMissingValue(getValue());
 	}
 	
 	public boolean isRequired() {
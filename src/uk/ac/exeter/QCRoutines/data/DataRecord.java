@@ -7,6 +7,9 @@ import java.util.TreeSet;
 import org.joda.time.DateTime;
 
 import uk.ac.exeter.QCRoutines.config.ColumnConfig;
+import uk.ac.exeter.QCRoutines.config.ColumnConfigItem;
+import uk.ac.exeter.QCRoutines.config.FlagCascadeTargets;
+import uk.ac.exeter.QCRoutines.messages.ColumnSet;
 import uk.ac.exeter.QCRoutines.messages.Flag;
 import uk.ac.exeter.QCRoutines.messages.Message;
 import uk.ac.exeter.QCRoutines.messages.MessageException;
@@ -14,6 +17,16 @@ import uk.ac.exeter.QCRoutines.messages.RebuildCode;
 
 public abstract class DataRecord {
 
+	/**
+	 * The value returned by {@link #getTimeMillis()} for records that have no time
+	 */
+	public static final long NO_TIME = Long.MIN_VALUE;
+	
+	/**
+	 * Indicates that the cached time has not been calculated
+	 */
+	private static final long TIME_NOT_CALCULATED = Long.MAX_VALUE;
+
 	/**
 	 * The output messages generated for this line, if any
 	 */
@@ -29,10 +42,53 @@ public abstract class DataRecord {
 	 */
 	protected List<DataColumn> data;
 	
+	/**
+	 * The column configuration for the record
+	 */
+	protected ColumnConfig columnConfig;
+	
+	/**
+	 * The record set holding this record's data, if this is a view of a {@link ColumnarRecordSet}
+	 */
+	private ColumnarRecordSet recordSet = null;
+	
+	/**
+	 * The index of this record in its record set
+	 */
+	private int row = -1;
+	
+	/**
+	 * The cached time of the record in milliseconds since the epoch
+	 */
+	private volatile long timeMillis = TIME_NOT_CALCULATED;
+	
+	/**
+	 * The cached longitude of the record. Only valid if {@link #longitudeCalculated} is set.
+	 */
+	private double longitude = Double.NaN;
+	
+	/**
+	 * Indicates whether the cached longitude has been calculated.
+	 * A calculated longitude may itself be NaN.
+	 */
+	private volatile boolean longitudeCalculated = false;
+	
+	/**
+	 * The cached latitude of the record. Only valid if {@link #latitudeCalculated} is set.
+	 */
+	private double latitude = Double.NaN;
+	
+	/**
+	 * Indicates whether the cached latitude has been calculated.
+	 * A calculated latitude may itself be NaN.
+	 */
+	private volatile boolean latitudeCalculated = false;
+	
 	
 	public DataRecord(int lineNumber, ColumnConfig columnConfig) {
 		this.messages = new ArrayList<Message>();
 		this.lineNumber = lineNumber;
+		this.columnConfig = columnConfig;
 		this.data = columnConfig.getDataColumns(this);
 	}
 	
@@ -44,14 +100,34 @@ public abstract class DataRecord {
 	public DataRecord(int lineNumber, ColumnConfig columnConfig, List<String> dataFields) throws DataRecordException {
 		this.messages = new ArrayList<Message>();
 		this.lineNumber = lineNumber;
+		this.columnConfig = columnConfig;
 		this.data = columnConfig.getDataColumns(this);
 
 		// Populate all the basic data columns
 		setDataValues(dataFields);
 	}
 	
+	/**
+	 * Builds a view of a record held in a {@link ColumnarRecordSet}.
+	 * The values, flags and messages of the record are held in the record set.
+	 * @param recordSet The record set
+	 * @param row The index of the record in the record set
+	 */
+	public DataRecord(ColumnarRecordSet recordSet, int row) {
+		this.messages = recordSet.getMessages(row);
+		this.lineNumber = recordSet.getLineNumber(row);
+		this.columnConfig = recordSet.getColumnConfig();
+		this.data = recordSet.getDataColumns(this, row);
+		this.recordSet = recordSet;
+		this.row = row;
+	}
+	
 	/**
 	 * Returns the date/time of this record as a single object.
+	 * Implementations that read the date and time from string columns
+	 * can use a shared {@link RecordTimeParser}. This method must not change
+	 * the record, since it may be called by several routines at once; a time
+	 * that cannot be parsed should be returned as {@code null}.
 	 * @return The date/time of this record.
 	 */
 	public abstract DateTime getTime() throws DataRecordException;
@@ -86,6 +162,98 @@ public abstract class DataRecord {
 	 */
 	public abstract int getLatitudeColumn();
 
+	/**
+	 * Returns the time of this record in milliseconds since the epoch. The time is
+	 * calculated from {@link #getTime()} once and cached; for views of a
+	 * {@link ColumnarRecordSet} the cache is held by the record set.
+	 * @return The time, or {@link #NO_TIME} if the record has no time
+	 * @throws DataRecordException If the time cannot be calculated
+	 */
+	public long getTimeMillis() throws DataRecordException {
+		long result;
+		
+		if (null != recordSet) {
+			result = recordSet.getTimeMillis(row);
+		} else {
+			result = timeMillis;
+			if (result == TIME_NOT_CALCULATED) {
+				result = toMillis(getTime());
+				timeMillis = result;
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Returns the longitude of this record, calculated from {@link #getLongitude()}
+	 * once and cached.
+	 * @return The longitude
+	 * @throws DataRecordException If the longitude cannot be calculated
+	 * @see #getTimeMillis()
+	 */
+	public double getCachedLongitude() throws DataRecordException {
+		double result;
+		
+		if (null != recordSet) {
+			result = recordSet.getLongitude(row);
+		} else {
+			if (longitudeCalculated) {
+				result = longitude;
+			} else {
+				result = getLongitude();
+				longitude = result;
+				longitudeCalculated = true;
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Returns the latitude of this record, calculated from {@link #getLatitude()}
+	 * once and cached.
+	 * @return The latitude
+	 * @throws DataRecordException If the latitude cannot be calculated
+	 * @see #getTimeMillis()
+	 */
+	public double getCachedLatitude() throws DataRecordException {
+		double result;
+		
+		if (null != recordSet) {
+			result = recordSet.getLatitude(row);
+		} else {
+			if (latitudeCalculated) {
+				result = latitude;
+			} else {
+				result = getLatitude();
+				latitude = result;
+				latitudeCalculated = true;
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Clear the cached time and position of this record. This is called
+	 * when any of the record's values are changed.
+	 */
+	void clearCachedValues() {
+		timeMillis = TIME_NOT_CALCULATED;
+		longitudeCalculated = false;
+		latitudeCalculated = false;
+	}
+	
+	/**
+	 * Convert a time to milliseconds since the epoch
+	 * @param time The time
+	 * @return The time in milliseconds, or {@link #NO_TIME} if the time is {@code null}
+	 */
+	static long toMillis(DateTime time) {
+		return (null == time ? NO_TIME : time.getMillis());
+	}
+	
 	/**
 	 * Returns the list of date/time column names
 	 * @return The list of date/time column names
@@ -155,6 +323,117 @@ public abstract class DataRecord {
 		return column.getValue();
 	}
 	
+	/**
+	 * Returns the value of a numeric column, parsed when the value was set.
+	 * {@code null} values are returned as {@link Double#NaN}.
+	 * @param columnIndex The 1-based column index
+	 * @return The value of that column
+	 * @throws NoSuchColumnException If the column does not exist
+	 */
+	public double getDoubleValue(int columnIndex) throws NoSuchColumnException {
+		DataColumn column = data.get(columnIndex);
+		if (null == column) {
+			throw new NoSuchColumnException(lineNumber, columnIndex);
+		}
+		
+		return column.getDoubleValue();
+	}
+	
+	/**
+	 * Returns the value of a named numeric column, parsed when the value was set.
+	 * {@code null} values are returned as {@link Double#NaN}.
+	 * @param columnName The name of the column
+	 * @return The value of that column
+	 * @throws NoSuchColumnException If the named column does not exist
+	 */
+	public double getDoubleValue(String columnName) throws NoSuchColumnException {
+		return data.get(getColumnIndex(columnName)).getDoubleValue();
+	}
+	
+	/**
+	 * Returns the value of a boolean column, parsed when the value was set.
+	 * {@code null} values are returned as {@code false}.
+	 * @param columnIndex The 1-based column index
+	 * @return The value of that column
+	 * @throws NoSuchColumnException If the column does not exist
+	 */
+	public boolean getBooleanValue(int columnIndex) throws NoSuchColumnException {
+		DataColumn column = data.get(columnIndex);
+		if (null == column) {
+			throw new NoSuchColumnException(lineNumber, columnIndex);
+		}
+		
+		return column.getBooleanValue();
+	}
+	
+	/**
+	 * Determines whether the value of a column is {@code null} or one of the
+	 * column's missing values. For views of a {@link ColumnarRecordSet} this
+	 * is read from the bit set calculated when the value was stored.
+	 * @param columnIndex The 1-based column index
+	 * @return {@code true} if the value is missing; {@code false} if it is not
+	 * @throws NoSuchColumnException If the column does not exist
+	 */
+	public boolean isMissingValue(int columnIndex) throws NoSuchColumnException {
+		boolean result;
+		
+		if (null != recordSet) {
+			if (columnIndex < 1 || columnIndex > columnConfig.getColumnCount()) {
+				throw new NoSuchColumnException(lineNumber, columnIndex);
+			}
+			result = recordSet.isMissingValue(row, columnIndex);
+		} else {
+			DataColumn column = data.get(columnIndex);
+			if (null == column) {
+				throw new NoSuchColumnException(lineNumber, columnIndex);
+			}
+			result = column.isEmpty();
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Apply a set of flag cascades to this record
+	 * @param targets The cascade targets
+	 * @throws NoSuchColumnException If a target column does not exist
+	 * @see uk.ac.exeter.QCRoutines.config.ColumnConfigItem#getCascadeTargets(Flag)
+	 */
+	void applyCascades(FlagCascadeTargets targets) throws NoSuchColumnException {
+		for (int i = 0; i < targets.size(); i++) {
+			applyCascadeFlag(targets.getColumn(i), targets.getFlag(i));
+		}
+	}
+	
+	/**
+	 * Apply a flag from a flag cascade to a column, if it is more significant
+	 * than the column's current flag. If the column's flag is raised, the column's
+	 * own cascades are then applied. Cascades stop at columns whose flag is not
+	 * raised, so cascades that form a cycle always come to an end.
+	 * @param column The column
+	 * @param flag The flag
+	 * @throws NoSuchColumnException If the column does not exist
+	 */
+	private void applyCascadeFlag(ColumnConfigItem column, Flag flag) throws NoSuchColumnException {
+		int columnIndex = column.getColumnIndex();
+		
+		if (null != recordSet) {
+			if (columnIndex < 1 || columnIndex > columnConfig.getColumnCount()) {
+				throw new NoSuchColumnException(lineNumber, columnIndex);
+			}
+			if (flag.moreSignificantThan(recordSet.getFlag(row, columnIndex))) {
+				recordSet.setFlag(row, columnIndex, flag);
+				applyCascades(column.getCascadeTargets(flag));
+			}
+		} else {
+			DataColumn dataColumn = data.get(columnIndex);
+			if (null == dataColumn) {
+				throw new NoSuchColumnException(lineNumber, columnIndex);
+			}
+			dataColumn.setFlag(flag);
+		}
+	}
+	
 	/**
 	 * Returns the name of the column corresponding to the specified column index
 	 * @param columnIndex The 1-based column index
@@ -178,6 +457,39 @@ public abstract class DataRecord {
 		return columnNames;
 	}
 	
+	/**
+	 * Returns the shared {@link ColumnSet} for the specified columns
+	 * @param columnIndices The 1-based column indices
+	 * @return The column set
+	 * @throws NoSuchColumnException If any of the columns do not exist
+	 */
+	public ColumnSet getColumnSet(TreeSet<Integer> columnIndices) throws NoSuchColumnException {
+		int[] indices = new int[columnIndices.size()];
+		int i = 0;
+		for (int columnIndex : columnIndices) {
+			indices[i] = columnIndex;
+			i++;
+		}
+		
+		return getColumnSet(indices);
+	}
+	
+	/**
+	 * Returns the shared {@link ColumnSet} for the specified columns
+	 * @param columnIndices The 1-based column indices
+	 * @return The column set
+	 * @throws NoSuchColumnException If any of the columns do not exist
+	 */
+	public ColumnSet getColumnSet(int... columnIndices) throws NoSuchColumnException {
+		for (int columnIndex : columnIndices) {
+			if (columnIndex < 1 || columnIndex > columnConfig.getColumnCount()) {
+				throw new NoSuchColumnException(lineNumber, columnIndex);
+			}
+		}
+		
+		return columnConfig.getColumnSet(columnIndices);
+	}
+	
 	/**
 	 * Returns the index of the named column
 	 * @param columnIndex The column name
@@ -186,16 +498,7 @@ public abstract class DataRecord {
 	 */
 	public int getColumnIndex(String columnName) throws NoSuchColumnException {
 		
-		int result = -1;
-		
-		// The zeroth column is always empty
-		for (int i = 1; i < data.size(); i++) {
-			DataColumn column = data.get(i);
-			if (column.getName().equals(columnName)) {
-				result = column.getColumnIndex();
-				break;
-			}
-		}
+		int result = columnConfig.getColumnIndex(columnName);
 		
 		if (result == -1) {
 			throw new NoSuchColumnException(lineNumber, columnName);
@@ -259,18 +562,35 @@ public abstract class DataRecord {
 	 */
 	public void addMessage(Message message) throws NoSuchColumnException {
 		
-		for (int columnIndex : message.getColumnIndices()) {
+		checkMessageColumns(message);
+		
+		ColumnSet columns = message.getColumns();
+		for (int i = 0; i < columns.getIndexCount(); i++) {
+			int columnIndex = columns.getIndex(i);
 			if (columnIndex != Message.NO_COLUMN_INDEX) {
-				DataColumn column = data.get(columnIndex);
-				if (null == column) {
-					throw new NoSuchColumnException(lineNumber, columnIndex);
-				}
-				column.setFlag(message.getFlag());
+				data.get(columnIndex).setFlag(message.getFlag());
 			}
 		}
 
 		messages.add(message);
 	}
+	
+	/**
+	 * Checks that all the columns referred to by a message exist in this record,
+	 * so that the message can be added without failing part way through.
+	 * The record is not changed.
+	 * @param message The message
+	 * @throws NoSuchColumnException If any of the columns do not exist
+	 */
+	public void checkMessageColumns(Message message) throws NoSuchColumnException {
+		ColumnSet columns = message.getColumns();
+		for (int i = 0; i < columns.getIndexCount(); i++) {
+			int columnIndex = columns.getIndex(i);
+			if (columnIndex != Message.NO_COLUMN_INDEX) {
+				getColumn(columnIndex);
+			}
+		}
+	}
 
 	/**
 	 * Replace all the messages for this record with the supplied list of messages.
@@ -280,8 +600,9 @@ public abstract class DataRecord {
 	 * @throws NoSuchColumnException 
 	 */
 	public void setMessages(List<Message> messages) throws NoSuchColumnException {
+		List<Message> newMessages = new ArrayList<Message>(messages);
 		clearMessages();
-		for (Message message : messages) {
+		for (Message message : newMessages) {
 			addMessage(message);
 		}
 	}
@@ -301,7 +622,7 @@ public abstract class DataRecord {
 	 * 'good' state.
 	 */
 	private void clearMessages() {
-		messages = new ArrayList<Message>();
+		messages.clear();
 		for (int i = 1; i < data.size(); i++) {
 			data.get(i).resetFlag();
 		}
@@ -312,9 +633,9 @@ public abstract class DataRecord {
 	 * @return The messages summary string
 	 */
 	public String getMessageSummaries() {
-		StringBuffer summaries = new StringBuffer();
+		StringBuilder summaries = new StringBuilder();
 		for (int i = 0; i < messages.size(); i++) {
-			summaries.append(messages.get(i).getShortMessage());
+			messages.get(i).appendShortMessage(summaries);
 			if (i < messages.size() - 1) {
 				summaries.append("; ");
 			}
@@ -327,13 +648,36 @@ public abstract class DataRecord {
 		return data.get(getColumnIndex(columnName));
 	}
 	
+	/**
+	 * Returns the column with the specified index
+	 * @param columnIndex The 1-based column index
+	 * @return The column
+	 * @throws NoSuchColumnException If the column does not exist
+	 */
+	public DataColumn getColumn(int columnIndex) throws NoSuchColumnException {
+		DataColumn column = (columnIndex > 0 && columnIndex < data.size() ? data.get(columnIndex) : null);
+		if (null == column) {
+			throw new NoSuchColumnException(lineNumber, columnIndex);
+		}
+		
+		return column;
+	}
+	
+	/**
+	 * Determines whether or not a column exists in the record. The
+	 * comparison of column names is case insensitive.
+	 * @param columnName The column name
+	 * @return {@code true} if the column exists; {@code false} if it does not
+	 */
 	public boolean columnExists(String columnName) {
-		boolean result = false;
+		boolean result = columnConfig.hasColumn(columnName);
 		
-		for (DataColumn column : data) {
-			if (column.getName().equalsIgnoreCase(columnName)) {
-				result = true;
-				break;
+		if (!result) {
+			for (String configuredName : columnConfig.getColumnList()) {
+				if (null != configuredName && configuredName.equalsIgnoreCase(columnName)) {
+					result = true;
+					break;
+				}
 			}
 		}
 			
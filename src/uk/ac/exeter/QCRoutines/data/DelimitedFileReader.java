@@ -0,0 +1,723 @@
+package uk.ac.exeter.QCRoutines.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import uk.ac.exeter.QCRoutines.config.ColumnConfig;
+import uk.ac.exeter.QCRoutines.config.ColumnConfigItem;
+import uk.ac.exeter.QCRoutines.messages.Flag;
+import uk.ac.exeter.QCRoutines.messages.Message;
+import uk.ac.exeter.QCRoutines.messages.MissingValueMessage;
+import uk.ac.exeter.QCRoutines.messages.ParsingMessages.UnparseableNumberMessage;
+import uk.ac.exeter.QCRoutines.util.RoutineUtils;
+
+/**
+ * Reads delimited data files into a {@link ColumnarRecordSet}, using a {@link ColumnConfig}
+ * to define the columns. The fields of each line are taken in the same order as the
+ * columns in the configuration.
+ *
+ * Files are memory-mapped, and the mapped bytes are copied in blocks into a
+ * reusable array and tokenized in place. Numeric values are parsed directly
+ * from the bytes, and are only decoded into a {@code String} if the record set
+ * cannot rebuild their text from the parsed value. Other fields are decoded once.
+ * Files are mapped in segments, so files larger than 2GB can be read.
+ *
+ * Values are handled as follows:
+ * <ul>
+ *   <li>Fields are trimmed of leading and trailing whitespace.</li>
+ *   <li>Fields missing from the end of a line are stored as {@code null}. Fields containing one of
+ *     the column's missing values (see {@link ColumnConfigItem#getMissingValues()}) are stored in the
+ *     same way as by {@link ColumnarRecordSet#addRecord(int, List)}: as their value if it is valid for
+ *     the column's data type, or as {@code null} otherwise (such as for empty fields). In all cases
+ *     the value is marked as missing, and if the column is required a {@link MissingValueMessage}
+ *     is added to the record.</li>
+ *   <li>Non-numeric values in numeric columns are stored as {@code null}, and an
+ *     {@link UnparseableNumberMessage} is added to the record.</li>
+ *   <li>Invalid boolean values cause an {@link InvalidDataException}, and lines
+ *     with too many fields cause a {@link NoSuchColumnException}, as they do for
+ *     {@link ColumnarRecordSet#addRecord(int, List)}.</li>
+ * </ul>
+ *
+ * Header lines are skipped, as are blank lines and comments (see {@link RoutineUtils#isComment(String)}).
+ * Quoted fields are not supported. Files must be in UTF-8 or a compatible encoding.
+ */
+public class DelimitedFileReader {
+
+	/**
+	 * The maximum size of each mapped segment of a file
+	 */
+	private static final int MAX_SEGMENT_SIZE = 1 << 30;
+
+	/**
+	 * The initial size of the block that lines are copied into. The block
+	 * grows if a line is longer than this.
+	 */
+	private static final int BLOCK_SIZE = 1 << 20;
+
+	/**
+	 * The minimum size of the chunks read concurrently by {@link #readParallel(File, ColumnarRecordSet, ExecutorService)}
+	 */
+	private static final long MIN_CHUNK_SIZE = 1 << 23;
+
+	/**
+	 * The character set of the files
+	 */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * The column configuration
+	 */
+	private ColumnConfig columnConfig;
+
+	/**
+	 * The field delimiter
+	 */
+	private byte delimiter;
+
+	/**
+	 * The number of header lines at the start of each file
+	 */
+	private int headerLines;
+
+	/**
+	 * The configuration of each column, indexed by column index
+	 */
+	private ColumnConfigItem[] columns;
+
+	/**
+	 * Create a reader
+	 * @param columnConfig The column configuration
+	 * @param delimiter The field delimiter. This must be an ASCII character.
+	 * @param headerLines The number of header lines at the start of each file
+	 * @throws IllegalArgumentException If the delimiter is not an ASCII character
+	 */
+	public DelimitedFileReader(ColumnConfig columnConfig, char delimiter, int headerLines) {
+		if (delimiter > 127) {
+			throw new IllegalArgumentException("Delimiter must be an ASCII character");
+		}
+
+		this.columnConfig = columnConfig;
+		this.delimiter = (byte) delimiter;
+		this.headerLines = headerLines;
+
+		columns = new ColumnConfigItem[columnConfig.getColumnCount() + 1];
+		for (int i = 1; i < columns.length; i++) {
+			columns[i] = columnConfig.getColumnConfig(columnConfig.getColumnName(i));
+		}
+	}
+
+	/**
+	 * Read a file into a new record set
+	 * @param file The file
+	 * @param recordFactory The factory for record views of the new record set
+	 * @return The record set
+	 * @throws IOException If the file cannot be read
+	 * @throws DataRecordException If a line of the file is invalid
+	 */
+	public ColumnarRecordSet read(File file, ColumnarRecordSet.RecordFactory recordFactory) throws IOException, DataRecordException {
+		ColumnarRecordSet recordSet = new ColumnarRecordSet(columnConfig, recordFactory);
+		read(file, recordSet);
+		return recordSet;
+	}
+
+	/**
+	 * Read a file, adding its records to an existing record set
+	 * @param file The file
+	 * @param recordSet The record set
+	 * @throws IOException If the file cannot be read
+	 * @throws DataRecordException If a line of the file is invalid
+	 */
+	public void read(File file, ColumnarRecordSet recordSet) throws IOException, DataRecordException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			readRegion(channel, 0, channel.size(), 1, recordSet);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Read a file into a new record set, reading sections of the file concurrently
+	 * using a thread pool with one thread per available processor.
+	 * @param file The file
+	 * @param recordFactory The factory for record views of the new record set
+	 * @return The record set
+	 * @throws IOException If the file cannot be read
+	 * @throws DataRecordException If a line of the file is invalid
+	 * @see #readParallel(File, ColumnarRecordSet, ExecutorService)
+	 */
+	public ColumnarRecordSet readParallel(File file, ColumnarRecordSet.RecordFactory recordFactory) throws IOException, DataRecordException {
+		ColumnarRecordSet recordSet = new ColumnarRecordSet(columnConfig, recordFactory);
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try {
+			readParallel(file, recordSet, executor);
+		} finally {
+			executor.shutdown();
+		}
+		return recordSet;
+	}
+
+	/**
+	 * Read a file, adding its records to an existing record set. The file is cut into
+	 * chunks at line boundaries, and the chunks are read concurrently using the supplied
+	 * executor.
+	 *
+	 * The lines in each chunk are counted first, so every chunk is read with the
+	 * correct line numbers. Each chunk is read into its own record set, and the
+	 * chunks are then appended to the record set in file order. The records, messages
+	 * and line numbers are therefore exactly the same as those given by
+	 * {@link #read(File, ColumnarRecordSet)}, including when a line is invalid:
+	 * the records before the invalid line are added to the record set, and
+	 * the exception for the first invalid line is thrown.
+	 *
+	 * @param file The file
+	 * @param recordSet The record set
+	 * @param executor The executor
+	 * @throws IOException If the file cannot be read
+	 * @throws DataRecordException If a line of the file is invalid
+	 */
+	public void readParallel(File file, ColumnarRecordSet recordSet, ExecutorService executor) throws IOException, DataRecordException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = randomAccessFile.getChannel();
+			final long[] chunkStarts = getChunkStarts(channel, Runtime.getRuntime().availableProcessors());
+			int chunkCount = chunkStarts.length - 1;
+
+			// Count the lines in each chunk
+			List<Future<Integer>> lineCounts = new ArrayList<Future<Integer>>(chunkCount);
+			for (int i = 0; i < chunkCount; i++) {
+				final int chunk = i;
+				lineCounts.add(executor.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() throws IOException {
+						return countLines(channel, chunkStarts[chunk], chunkStarts[chunk + 1]);
+					}
+				}));
+			}
+
+			// Read the chunks, starting each one at the line number after the previous chunk
+			List<Future<ChunkResult>> chunkResults = new ArrayList<Future<ChunkResult>>(chunkCount);
+			int firstLineNumber = 1;
+			for (int i = 0; i < chunkCount; i++) {
+				final int chunk = i;
+				final int chunkFirstLine = firstLineNumber;
+				final ColumnarRecordSet chunkRecords = new ColumnarRecordSet(columnConfig, recordSet.getRecordFactory());
+				chunkResults.add(executor.submit(new Callable<ChunkResult>() {
+					@Override
+					public ChunkResult call() throws IOException {
+						ChunkResult result = new ChunkResult(chunkRecords);
+						try {
+							readRegion(channel, chunkStarts[chunk], chunkStarts[chunk + 1], chunkFirstLine, chunkRecords);
+						} catch (DataRecordException e) {
+							result.error = e;
+						}
+						return result;
+					}
+				}));
+
+				firstLineNumber += getResult(lineCounts.get(i));
+			}
+
+			// Stitch the chunks together in file order
+			for (int i = 0; i < chunkCount; i++) {
+				ChunkResult result = getResult(chunkResults.get(i));
+				recordSet.append(result.records);
+				if (null != result.error) {
+					throw result.error;
+				}
+			}
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Read the lines in a region of a file into a record set. The region must
+	 * start at the beginning of a line, and end at the end of a line or the end of the file.
+	 * @param channel The file channel
+	 * @param start The start of the region
+	 * @param end The end of the region
+	 * @param firstLineNumber The line number of the first line in the region
+	 * @param recordSet The record set
+	 * @throws IOException If the file cannot be read
+	 * @throws DataRecordException If a line of the file is invalid
+	 */
+	private void readRegion(FileChannel channel, long start, long end, int firstLineNumber, ColumnarRecordSet recordSet) throws IOException, DataRecordException {
+		long segmentStart = start;
+		int lineNumber = firstLineNumber;
+		LineState state = new LineState();
+
+		// Lines are copied into the block, and any incomplete line at the end
+		// of the block is carried over to the start of the block for the next copy
+		byte[] block = new byte[BLOCK_SIZE];
+		int carried = 0;
+
+		while (segmentStart < end) {
+			int segmentSize = (int) Math.min(end - segmentStart, MAX_SEGMENT_SIZE);
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, segmentSize);
+			segmentStart += segmentSize;
+
+			while (buffer.hasRemaining()) {
+				if (carried == block.length) {
+					block = Arrays.copyOf(block, block.length * 2);
+				}
+
+				int copyLength = Math.min(block.length - carried, buffer.remaining());
+				buffer.get(block, carried, copyLength);
+				int blockLength = carried + copyLength;
+
+				boolean endOfRegion = (segmentStart == end && !buffer.hasRemaining());
+				int blockEnd = (endOfRegion ? blockLength : lastLineEnd(block, blockLength));
+
+				lineNumber = readLines(block, 0, blockEnd, lineNumber, recordSet, state);
+
+				carried = blockLength - blockEnd;
+				System.arraycopy(block, blockEnd, block, 0, carried);
+			}
+		}
+	}
+
+	/**
+	 * Count the line terminators in a region of a file
+	 * @param channel The file channel
+	 * @param start The start of the region
+	 * @param end The end of the region
+	 * @return The number of line terminators
+	 * @throws IOException If the file cannot be read
+	 */
+	private static int countLines(FileChannel channel, long start, long end) throws IOException {
+		int result = 0;
+		long segmentStart = start;
+		byte[] block = new byte[BLOCK_SIZE];
+
+		while (segmentStart < end) {
+			int segmentSize = (int) Math.min(end - segmentStart, MAX_SEGMENT_SIZE);
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, segmentSize);
+			segmentStart += segmentSize;
+
+			while (buffer.hasRemaining()) {
+				int copyLength = Math.min(block.length, buffer.remaining());
+				buffer.get(block, 0, copyLength);
+				for (int i = 0; i < copyLength; i++) {
+					if (block[i] == '\n') {
+						result++;
+					}
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Cut a file into chunks that start at the beginning of a line. There are
+	 * several chunks per thread so the work is spread evenly, but chunks are
+	 * never smaller than {@link #MIN_CHUNK_SIZE}.
+	 * @param channel The file channel
+	 * @param threads The number of threads that will read the chunks
+	 * @return The start position of each chunk, followed by the file size
+	 * @throws IOException If the file cannot be read
+	 */
+	private static long[] getChunkStarts(FileChannel channel, int threads) throws IOException {
+		long fileSize = channel.size();
+		long chunkSize = Math.max(MIN_CHUNK_SIZE, fileSize / (threads * 4L) + 1);
+
+		List<Long> starts = new ArrayList<Long>();
+		starts.add(0L);
+
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		long position = chunkSize;
+		while (position < fileSize) {
+
+			// Find the first line that starts at or after the position
+			long lineStart = -1;
+			long searchPosition = position - 1;
+			while (lineStart < 0 && searchPosition < fileSize) {
+				buffer.clear();
+				int read = channel.read(buffer, searchPosition);
+				for (int i = 0; lineStart < 0 && i < read; i++) {
+					if (buffer.get(i) == '\n') {
+						lineStart = searchPosition + i + 1;
+					}
+				}
+				searchPosition += Math.max(read, 0);
+				if (read < 0) {
+					break;
+				}
+			}
+
+			if (lineStart < 0 || lineStart >= fileSize) {
+				position = fileSize;
+			} else {
+				starts.add(lineStart);
+				position = lineStart + chunkSize;
+			}
+		}
+
+		long[] result = new long[starts.size() + 1];
+		for (int i = 0; i < starts.size(); i++) {
+			result[i] = starts.get(i);
+		}
+		result[starts.size()] = fileSize;
+
+		return result;
+	}
+
+	/**
+	 * Get the result of a chunk task, unwrapping any exception it threw
+	 * @param future The task
+	 * @return The result
+	 * @throws IOException If the task failed
+	 */
+	private static <T> T getResult(Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while reading file");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			} else {
+				throw new IOException("Error while reading file", e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Read the lines in a region of an array into a record set
+	 * @param data The array
+	 * @param start The position of the first line
+	 * @param end The position after the last line
+	 * @param firstLineNumber The line number of the first line
+	 * @param recordSet The record set
+	 * @param state The working storage for the lines
+	 * @return The line number after the last line
+	 * @throws DataRecordException If a line is invalid
+	 */
+	int readLines(byte[] data, int start, int end, int firstLineNumber, ColumnarRecordSet recordSet, LineState state) throws DataRecordException {
+		int lineNumber = firstLineNumber;
+		int lineStart = start;
+
+		while (lineStart < end) {
+			int lineEnd = lineStart;
+			while (lineEnd < end && data[lineEnd] != '\n') {
+				lineEnd++;
+			}
+
+			int nextLine = lineEnd + 1;
+			if (lineEnd > lineStart && data[lineEnd - 1] == '\r') {
+				lineEnd--;
+			}
+
+			if (lineNumber > headerLines && !isComment(data, lineStart, lineEnd)) {
+				readLine(data, lineStart, lineEnd, lineNumber, recordSet, state);
+			}
+
+			lineNumber++;
+			lineStart = nextLine;
+		}
+
+		return lineNumber;
+	}
+
+	/**
+	 * Read a single line into a record set
+	 * @param data The array containing the line
+	 * @param lineStart The position of the start of the line
+	 * @param lineEnd The position of the end of the line, excluding the line terminator
+	 * @param lineNumber The line number
+	 * @param recordSet The record set
+	 * @param state The working storage for the line
+	 * @throws DataRecordException If the line is invalid
+	 */
+	private void readLine(byte[] data, int lineStart, int lineEnd, int lineNumber, ColumnarRecordSet recordSet, LineState state) throws DataRecordException {
+
+		int row = recordSet.startRecord(lineNumber);
+		state.messages.clear();
+
+		try {
+			int fieldStart = lineStart;
+			for (int columnIndex = 1; columnIndex < columns.length; columnIndex++) {
+				if (fieldStart > lineEnd) {
+					recordSet.storeNull(row, columnIndex);
+					addMissingMessage(columnIndex, lineNumber, state);
+				} else {
+					int fieldEnd = fieldStart;
+					while (fieldEnd < lineEnd && data[fieldEnd] != delimiter) {
+						fieldEnd++;
+					}
+
+					state.field.set(data, fieldStart, fieldEnd);
+					storeField(recordSet, row, columnIndex, lineNumber, state);
+					fieldStart = fieldEnd + 1;
+				}
+			}
+
+			if (fieldStart <= lineEnd) {
+				throw new NoSuchColumnException(lineNumber, columns.length);
+			}
+		} catch (DataRecordException e) {
+			recordSet.cancelRecord();
+			throw e;
+		}
+
+		recordSet.finishRecord();
+
+		if (state.messages.size() > 0) {
+			DataRecord record = recordSet.getRecord(row);
+			for (Message message : state.messages) {
+				record.addMessage(message);
+			}
+		}
+	}
+
+	/**
+	 * Store the value of a field
+	 * @param recordSet The record set
+	 * @param row The record index
+	 * @param columnIndex The column index
+	 * @param lineNumber The line number
+	 * @param state The working storage, containing the field
+	 * @throws DataRecordException If the field is invalid
+	 */
+	private void storeField(ColumnarRecordSet recordSet, int row, int columnIndex, int lineNumber, LineState state) throws DataRecordException {
+		ByteSequence field = state.field;
+		field.trim();
+		ColumnConfigItem column = columns[columnIndex];
+
+		// Bytes are only the same as characters for ASCII text,
+		// so other fields are decoded before they are matched
+		boolean missing;
+		if (field.isAscii()) {
+			missing = column.isMissingValue(field);
+		} else {
+			missing = column.isMissingValue(field.decode());
+		}
+
+		if (missing) {
+			recordSet.storeMissingValue(row, columnIndex, field.decode());
+			addMissingMessage(columnIndex, lineNumber, state);
+		} else if (column.isNumeric()) {
+			// Parse without checking first, so valid values are only scanned once
+			boolean numeric = true;
+			try {
+				recordSet.storeNumeric(row, columnIndex, RoutineUtils.parseNumeric(field), field);
+			} catch (NumberFormatException e) {
+				numeric = false;
+			}
+
+			if (!numeric) {
+				recordSet.storeNull(row, columnIndex);
+				state.messages.add(new UnparseableNumberMessage(lineNumber, column.getColumnSet(), field.decode()));
+			}
+		} else if (column.isBoolean()) {
+			String value = field.decode();
+			try {
+				recordSet.storeBoolean(row, columnIndex, RoutineUtils.parseBoolean(value), value);
+			} catch (ParseException e) {
+				throw new InvalidDataException(lineNumber, new DataColumn(column, value));
+			}
+		} else {
+			recordSet.storeString(row, columnIndex, field.decode());
+		}
+	}
+
+	/**
+	 * Record a message for a missing value if the column is required
+	 * @param columnIndex The column index
+	 * @param lineNumber The line number
+	 * @param state The working storage for the line
+	 */
+	private void addMissingMessage(int columnIndex, int lineNumber, LineState state) {
+		ColumnConfigItem column = columns[columnIndex];
+		if (column.getRequired()) {
+			state.messages.add(new MissingValueMessage(lineNumber, column.getColumnSet(), Flag.BAD));
+		}
+	}
+
+	/**
+	 * Find the end of the last complete line in an array
+	 * @param data The array
+	 * @param limit The end of the data in the array
+	 * @return The position after the last line terminator, or zero if there is no line terminator
+	 */
+	static int lastLineEnd(byte[] data, int limit) {
+		int position = limit;
+		while (position > 0 && data[position - 1] != '\n') {
+			position--;
+		}
+
+		return position;
+	}
+
+	/**
+	 * Determines whether a line is blank or a comment, as defined by {@link RoutineUtils#isComment(String)}
+	 * @param data The array containing the line
+	 * @param lineStart The start of the line
+	 * @param lineEnd The end of the line
+	 * @return {@code true} if the line is blank or a comment; {@code false} if it is not
+	 */
+	private static boolean isComment(byte[] data, int lineStart, int lineEnd) {
+		int start = lineStart;
+		while (start < lineEnd && (data[start] & 0xff) <= ' ') {
+			start++;
+		}
+
+		boolean result;
+		if (start == lineEnd) {
+			result = true;
+		} else {
+			byte first = data[start];
+			result = (first == '#' || first == '!' || (first == '/' && start + 1 < lineEnd && data[start + 1] == '/'));
+		}
+
+		return result;
+	}
+
+	/**
+	 * The records read from a chunk of a file, and the error that
+	 * stopped the chunk being read, if there was one
+	 */
+	private static class ChunkResult {
+
+		/**
+		 * The records read from the chunk
+		 */
+		private ColumnarRecordSet records;
+
+		/**
+		 * The error that stopped the chunk being read
+		 */
+		private DataRecordException error = null;
+
+		/**
+		 * Simple constructor
+		 * @param records The record set for the chunk
+		 */
+		private ChunkResult(ColumnarRecordSet records) {
+			this.records = records;
+		}
+	}
+
+	/**
+	 * Working storage for reading lines. Each thread reading lines needs its own instance.
+	 */
+	static class LineState {
+
+		/**
+		 * The current field
+		 */
+		private ByteSequence field = new ByteSequence();
+
+		/**
+		 * The messages for the current line
+		 */
+		private List<Message> messages = new ArrayList<Message>();
+	}
+
+	/**
+	 * A {@link CharSequence} view of a region of a byte array. Bytes are
+	 * treated as ISO-8859-1 characters, which is sufficient for numbers and delimiters.
+	 * Use {@link #decode()} to get the correctly decoded value.
+	 */
+	private static class ByteSequence implements CharSequence {
+
+		/**
+		 * The array
+		 */
+		private byte[] data;
+
+		/**
+		 * The start of the region
+		 */
+		private int start;
+
+		/**
+		 * The end of the region
+		 */
+		private int end;
+
+		/**
+		 * Set the region viewed by this sequence
+		 * @param data The array
+		 * @param start The start of the region
+		 * @param end The end of the region
+		 */
+		private void set(byte[] data, int start, int end) {
+			this.data = data;
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * Remove leading and trailing whitespace from the region, in the same way as {@link String#trim()}
+		 */
+		private void trim() {
+			while (start < end && (data[start] & 0xff) <= ' ') {
+				start++;
+			}
+			while (end > start && (data[end - 1] & 0xff) <= ' ') {
+				end--;
+			}
+		}
+
+		/**
+		 * Determines whether the region only contains ASCII characters,
+		 * and can therefore be read through this sequence without decoding
+		 * @return {@code true} if all the bytes are ASCII; {@code false} if they are not
+		 */
+		private boolean isAscii() {
+			boolean result = true;
+			for (int i = start; result && i < end; i++) {
+				result = (data[i] >= 0);
+			}
+			return result;
+		}
+
+		/**
+		 * Decode the region as UTF-8
+		 * @return The decoded string
+		 */
+		private String decode() {
+			return new String(data, start, end - start, UTF8);
+		}
+
+		@Override
+		public int length() {
+			return end - start;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return (char) (data[start + index] & 0xff);
+		}
+
+		@Override
+		public CharSequence subSequence(int subStart, int subEnd) {
+			ByteSequence result = new ByteSequence();
+			result.set(data, start + subStart, start + subEnd);
+			return result;
+		}
+
+		@Override
+		public String toString() {
+			return decode();
+		}
+	}
+}
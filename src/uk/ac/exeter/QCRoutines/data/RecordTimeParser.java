@@ -0,0 +1,645 @@
+package uk.ac.exeter.QCRoutines.data;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import uk.ac.exeter.QCRoutines.messages.Message;
+import uk.ac.exeter.QCRoutines.messages.ParsingMessages.MissingDateTimeElementMessage;
+import uk.ac.exeter.QCRoutines.messages.ParsingMessages.UnparseableDateMessage;
+
+/**
+ * Parses record dates and times held in fixed-width string columns into
+ * UTC milliseconds since the epoch.
+ *
+ * Consecutive records nearly always share the same date, so the parser
+ * remembers the last date it parsed and only parses the time of day for
+ * records with the same date. All fields are parsed with integer arithmetic,
+ * and failures are reported as return codes instead of exceptions.
+ *
+ * Parsing never changes a record, so times can be calculated from any thread
+ * and as often as needed. The code that owns a record, such as the code that
+ * loads it, can report a failed parse once with {@link #getParsingMessage(DataRecord, long, int...)}.
+ *
+ * Patterns are made up of the following fields, where the number of
+ * letters gives the width of the field:
+ * <ul>
+ *   <li>{@code yyyy} or {@code yy} - the year. Two-digit years are in the 21st century.</li>
+ *   <li>{@code MM} - the month</li>
+ *   <li>{@code dd} - the day of the month</li>
+ *   <li>{@code HH} - the hour of the day</li>
+ *   <li>{@code mm} - the minute</li>
+ *   <li>{@code ss} - the second</li>
+ *   <li>{@code S}, {@code SS} or {@code SSS} - fractions of a second</li>
+ * </ul>
+ * Any other characters must match the value exactly. Letters can be
+ * matched by enclosing them in single quotes, e.g. {@code yyyy-MM-dd'T'HH:mm:ss}.
+ *
+ * Instances are safe to share between threads.
+ */
+public class RecordTimeParser {
+
+	/**
+	 * Return code indicating that the date or time was missing
+	 */
+	public static final long MISSING_ELEMENT = Long.MIN_VALUE + 1;
+
+	/**
+	 * Return code indicating that the date or time could not be parsed
+	 */
+	public static final long UNPARSEABLE = Long.MIN_VALUE + 2;
+
+	/**
+	 * The number of milliseconds in a day
+	 */
+	private static final long MILLIS_PER_DAY = 86400000L;
+
+	/**
+	 * Field code for literal characters
+	 */
+	private static final char LITERAL = 0;
+
+	/**
+	 * The multipliers for each fraction of a second width, indexed by the width
+	 */
+	private static final int[] FRACTION_MULTIPLIERS = {0, 100, 10, 1};
+
+	/**
+	 * The pattern for the date, or the combined date and time
+	 */
+	private final String pattern;
+
+	/**
+	 * The field letter for each character of the date pattern, or {@link #LITERAL}
+	 */
+	private final char[] dateFields;
+
+	/**
+	 * The literal characters of the date pattern
+	 */
+	private final char[] dateLiterals;
+
+	/**
+	 * The field letter for each character of the time pattern, or {@link #LITERAL}
+	 */
+	private final char[] timeFields;
+
+	/**
+	 * The literal characters of the time pattern
+	 */
+	private final char[] timeLiterals;
+
+	/**
+	 * Indicates whether the date and time are in a single value
+	 */
+	private final boolean combined;
+
+	/**
+	 * The most recently parsed date
+	 */
+	private volatile ParsedDate lastDate = null;
+
+	/**
+	 * Create a parser for dates and times held in a single value,
+	 * e.g. {@code yyyy-MM-dd HH:mm:ss}. All the date fields must come
+	 * before the time fields.
+	 * @param pattern The date/time pattern
+	 * @throws IllegalArgumentException If the pattern is invalid
+	 */
+	public RecordTimeParser(String pattern) {
+		this.pattern = pattern;
+		this.combined = true;
+
+		char[] fields = new char[pattern.length()];
+		char[] literals = new char[pattern.length()];
+		int length = compilePattern(pattern, fields, literals);
+
+		int dateLength = 0;
+		for (int i = 0; i < length; i++) {
+			if (isDateField(fields[i])) {
+				dateLength = i + 1;
+			}
+		}
+
+		for (int i = 0; i < dateLength; i++) {
+			if (isTimeField(fields[i])) {
+				throw new IllegalArgumentException("Date fields must come before time fields in pattern '" + pattern + "'");
+			}
+		}
+
+		dateFields = new char[dateLength];
+		dateLiterals = new char[dateLength];
+		System.arraycopy(fields, 0, dateFields, 0, dateLength);
+		System.arraycopy(literals, 0, dateLiterals, 0, dateLength);
+
+		timeFields = new char[length - dateLength];
+		timeLiterals = new char[length - dateLength];
+		System.arraycopy(fields, dateLength, timeFields, 0, timeFields.length);
+		System.arraycopy(literals, dateLength, timeLiterals, 0, timeLiterals.length);
+
+		checkFields(dateFields, true);
+		checkFields(timeFields, false);
+	}
+
+	/**
+	 * Create a parser for dates and times held in separate values,
+	 * e.g. {@code dd/MM/yyyy} and {@code HH:mm:ss}
+	 * @param datePattern The date pattern
+	 * @param timePattern The time pattern
+	 * @throws IllegalArgumentException If either pattern is invalid
+	 */
+	public RecordTimeParser(String datePattern, String timePattern) {
+		this.pattern = datePattern + ' ' + timePattern;
+		this.combined = false;
+
+		char[] fields = new char[datePattern.length()];
+		char[] literals = new char[datePattern.length()];
+		int length = compilePattern(datePattern, fields, literals);
+		dateFields = new char[length];
+		dateLiterals = new char[length];
+		System.arraycopy(fields, 0, dateFields, 0, length);
+		System.arraycopy(literals, 0, dateLiterals, 0, length);
+
+		fields = new char[timePattern.length()];
+		literals = new char[timePattern.length()];
+		length = compilePattern(timePattern, fields, literals);
+		timeFields = new char[length];
+		timeLiterals = new char[length];
+		System.arraycopy(fields, 0, timeFields, 0, length);
+		System.arraycopy(literals, 0, timeLiterals, 0, length);
+
+		checkFields(dateFields, true);
+		checkFields(timeFields, false);
+	}
+
+	/**
+	 * Parse a combined date/time value
+	 * @param value The value
+	 * @return The time in milliseconds since the epoch, or {@link #MISSING_ELEMENT} or {@link #UNPARSEABLE}
+	 * @throws IllegalStateException If the parser was created for separate date and time values
+	 */
+	public long parse(String value) {
+		if (!combined) {
+			throw new IllegalStateException("Parser requires separate date and time values");
+		}
+
+		long result;
+
+		if (null == value || value.length() == 0) {
+			result = MISSING_ELEMENT;
+		} else if (value.length() != dateFields.length + timeFields.length) {
+			result = UNPARSEABLE;
+		} else {
+			long dateMillis = parseDate(value);
+			if (dateMillis == UNPARSEABLE) {
+				result = UNPARSEABLE;
+			} else {
+				long timeMillis = parseTime(value, dateFields.length);
+				result = (timeMillis == UNPARSEABLE ? UNPARSEABLE : dateMillis + timeMillis);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Parse separate date and time values
+	 * @param date The date value
+	 * @param time The time value
+	 * @return The time in milliseconds since the epoch, or {@link #MISSING_ELEMENT} or {@link #UNPARSEABLE}
+	 * @throws IllegalStateException If the parser was created for combined date/time values
+	 */
+	public long parse(String date, String time) {
+		if (combined) {
+			throw new IllegalStateException("Parser requires a combined date/time value");
+		}
+
+		long result;
+
+		if (null == date || date.length() == 0 || null == time || time.length() == 0) {
+			result = MISSING_ELEMENT;
+		} else if (date.length() != dateFields.length || time.length() != timeFields.length) {
+			result = UNPARSEABLE;
+		} else {
+			long dateMillis = parseDate(date);
+			if (dateMillis == UNPARSEABLE) {
+				result = UNPARSEABLE;
+			} else {
+				long timeMillis = parseTime(time, 0);
+				result = (timeMillis == UNPARSEABLE ? UNPARSEABLE : dateMillis + timeMillis);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Parse the combined date/time value in a record column.
+	 * The record is not changed.
+	 * @param record The record
+	 * @param columnIndex The index of the date/time column
+	 * @return The time in milliseconds since the epoch, or {@link #MISSING_ELEMENT} or {@link #UNPARSEABLE}
+	 * @throws NoSuchColumnException If the column does not exist
+	 */
+	public long parse(DataRecord record, int columnIndex) throws NoSuchColumnException {
+		return parse(record.getValue(columnIndex));
+	}
+
+	/**
+	 * Parse the date and time values in a pair of record columns.
+	 * The record is not changed.
+	 * @param record The record
+	 * @param dateColumnIndex The index of the date column
+	 * @param timeColumnIndex The index of the time column
+	 * @return The time in milliseconds since the epoch, or {@link #MISSING_ELEMENT} or {@link #UNPARSEABLE}
+	 * @throws NoSuchColumnException If either column does not exist
+	 */
+	public long parse(DataRecord record, int dateColumnIndex, int timeColumnIndex) throws NoSuchColumnException {
+		return parse(record.getValue(dateColumnIndex), record.getValue(timeColumnIndex));
+	}
+
+	/**
+	 * Create the parsing message for the result of parsing a record's date/time columns:
+	 * a {@link MissingDateTimeElementMessage} or an {@link UnparseableDateMessage}.
+	 * The message is not added to the record.
+	 * @param record The record
+	 * @param result The result returned by one of the parse methods
+	 * @param columnIndices The indices of the columns that were parsed, used for the value in the message
+	 * @return The message, or {@code null} if the result is a valid time
+	 * @throws NoSuchColumnException If the record's date/time columns do not exist
+	 */
+	public static Message getParsingMessage(DataRecord record, long result, int... columnIndices) throws NoSuchColumnException {
+		Message message = null;
+
+		if (result == MISSING_ELEMENT) {
+			message = new MissingDateTimeElementMessage(record);
+		} else if (result == UNPARSEABLE) {
+			StringBuilder value = new StringBuilder();
+			for (int i = 0; i < columnIndices.length; i++) {
+				if (i > 0) {
+					value.append(' ');
+				}
+				value.append(record.getValue(columnIndices[i]));
+			}
+			message = new UnparseableDateMessage(record, value.toString());
+		}
+
+		return message;
+	}
+
+	/**
+	 * Convert a parsed time to a {@link DateTime}
+	 * @param millis The parsed time
+	 * @return The {@link DateTime}, or {@code null} if the time was not parsed
+	 */
+	public static DateTime toDateTime(long millis) {
+		DateTime result = null;
+		if (isValid(millis)) {
+			result = new DateTime(millis, DateTimeZone.UTC);
+		}
+		return result;
+	}
+
+	/**
+	 * Determines whether a value returned by one of the parse methods is a valid time
+	 * @param millis The parsed value
+	 * @return {@code true} if the value is a time; {@code false} if it is an error code or {@link DataRecord#NO_TIME}
+	 */
+	public static boolean isValid(long millis) {
+		return millis != MISSING_ELEMENT && millis != UNPARSEABLE && millis != DataRecord.NO_TIME;
+	}
+
+	@Override
+	public String toString() {
+		return pattern;
+	}
+
+	/**
+	 * Parse the date at the start of a value, reusing the last parsed date
+	 * if it is the same
+	 * @param value The value
+	 * @return The date in milliseconds since the epoch, or {@link #UNPARSEABLE}
+	 */
+	private long parseDate(String value) {
+		long result;
+		int length = dateFields.length;
+
+		ParsedDate last = lastDate;
+		if (null != last && value.regionMatches(0, last.text, 0, length)) {
+			result = last.millis;
+		} else {
+			int year = 0;
+			int month = 0;
+			int day = 0;
+			int yearWidth = 0;
+			boolean valid = true;
+
+			for (int i = 0; valid && i < length; i++) {
+				char c = value.charAt(i);
+				char field = dateFields[i];
+
+				if (field == LITERAL) {
+					valid = (c == dateLiterals[i]);
+				} else if (c < '0' || c > '9') {
+					valid = false;
+				} else {
+					int digit = c - '0';
+					switch (field) {
+					case 'y': {
+						year = year * 10 + digit;
+						yearWidth++;
+						break;
+					}
+					case 'M': {
+						month = month * 10 + digit;
+						break;
+					}
+					default: {
+						day = day * 10 + digit;
+					}
+					}
+				}
+			}
+
+			if (yearWidth == 2) {
+				year += 2000;
+			}
+
+			if (!valid || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+				result = UNPARSEABLE;
+			} else {
+				result = daysFromCivil(year, month, day) * MILLIS_PER_DAY;
+				lastDate = new ParsedDate(combined ? value.substring(0, length) : value, result);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Parse a time of day
+	 * @param value The value containing the time
+	 * @param offset The position of the time in the value
+	 * @return The time of day in milliseconds, or {@link #UNPARSEABLE}
+	 */
+	private long parseTime(String value, int offset) {
+		int hour = 0;
+		int minute = 0;
+		int second = 0;
+		int fraction = 0;
+		int fractionWidth = 0;
+		boolean valid = true;
+
+		for (int i = 0; valid && i < timeFields.length; i++) {
+			char c = value.charAt(offset + i);
+			char field = timeFields[i];
+
+			if (field == LITERAL) {
+				valid = (c == timeLiterals[i]);
+			} else if (c < '0' || c > '9') {
+				valid = false;
+			} else {
+				int digit = c - '0';
+				switch (field) {
+				case 'H': {
+					hour = hour * 10 + digit;
+					break;
+				}
+				case 'm': {
+					minute = minute * 10 + digit;
+					break;
+				}
+				case 's': {
+					second = second * 10 + digit;
+					break;
+				}
+				default: {
+					fraction = fraction * 10 + digit;
+					fractionWidth++;
+				}
+				}
+			}
+		}
+
+		long result;
+		if (!valid || hour > 23 || minute > 59 || second > 59) {
+			result = UNPARSEABLE;
+		} else {
+			result = ((hour * 60L + minute) * 60L + second) * 1000L + fraction * FRACTION_MULTIPLIERS[fractionWidth];
+		}
+
+		return result;
+	}
+
+	/**
+	 * Calculate the number of days between the epoch and a date
+	 * in the proleptic Gregorian calendar
+	 * @param year The year
+	 * @param month The month (1-12)
+	 * @param day The day of the month
+	 * @return The number of days since 1970-01-01
+	 */
+	private static long daysFromCivil(int year, int month, int day) {
+		int y = (month <= 2 ? year - 1 : year);
+		int era = (y >= 0 ? y : y - 399) / 400;
+		int yearOfEra = y - era * 400;
+		int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097L + dayOfEra - 719468;
+	}
+
+	/**
+	 * Get the number of days in a month
+	 * @param year The year
+	 * @param month The month (1-12)
+	 * @return The number of days in the month
+	 */
+	private static int daysInMonth(int year, int month) {
+		int result;
+
+		switch (month) {
+		case 2: {
+			boolean leapYear = (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0));
+			result = (leapYear ? 29 : 28);
+			break;
+		}
+		case 4:
+		case 6:
+		case 9:
+		case 11: {
+			result = 30;
+			break;
+		}
+		default: {
+			result = 31;
+		}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Compile a pattern into a field letter and literal character for each position
+	 * @param pattern The pattern
+	 * @param fields The array for the field letters
+	 * @param literals The array for the literal characters
+	 * @return The length of the compiled pattern
+	 * @throws IllegalArgumentException If the pattern contains an unrecognised letter or an unterminated quote
+	 */
+	private static int compilePattern(String pattern, char[] fields, char[] literals) {
+		int length = 0;
+		boolean quoted = false;
+
+		for (int i = 0; i < pattern.length(); i++) {
+			char c = pattern.charAt(i);
+
+			if (c == '\'') {
+				quoted = !quoted;
+			} else if (quoted || !Character.isLetter(c)) {
+				fields[length] = LITERAL;
+				literals[length] = c;
+				length++;
+			} else if (isDateField(c) || isTimeField(c)) {
+				fields[length] = c;
+				length++;
+			} else {
+				throw new IllegalArgumentException("Unrecognised field '" + c + "' in pattern '" + pattern + "'");
+			}
+		}
+
+		if (quoted) {
+			throw new IllegalArgumentException("Unterminated quote in pattern '" + pattern + "'");
+		}
+
+		return length;
+	}
+
+	/**
+	 * Check that a compiled date or time pattern contains the required fields,
+	 * each appearing once with a supported width
+	 * @param fields The compiled pattern
+	 * @param date {@code true} if this is a date pattern; {@code false} if it is a time pattern
+	 * @throws IllegalArgumentException If the pattern is invalid
+	 */
+	private void checkFields(char[] fields, boolean date) {
+		String required = (date ? "yMd" : "Hm");
+		String optional = (date ? "" : "sS");
+
+		for (int i = 0; i < fields.length; i++) {
+			char field = fields[i];
+			if (field != LITERAL) {
+				if (date != isDateField(field)) {
+					throw new IllegalArgumentException("Field '" + field + "' is in the wrong part of pattern '" + pattern + "'");
+				}
+				if (i > 0 && fields[i - 1] != field && containsField(fields, field, i)) {
+					throw new IllegalArgumentException("Field '" + field + "' appears more than once in pattern '" + pattern + "'");
+				}
+			}
+		}
+
+		for (int i = 0; i < required.length(); i++) {
+			checkWidth(fields, required.charAt(i), true);
+		}
+
+		for (int i = 0; i < optional.length(); i++) {
+			checkWidth(fields, optional.charAt(i), false);
+		}
+	}
+
+	/**
+	 * Check the width of a field in a compiled pattern
+	 * @param fields The compiled pattern
+	 * @param field The field letter
+	 * @param required Indicates whether the field must be present
+	 * @throws IllegalArgumentException If the field is missing or has an unsupported width
+	 */
+	private void checkWidth(char[] fields, char field, boolean required) {
+		int width = 0;
+		for (int i = 0; i < fields.length; i++) {
+			if (fields[i] == field) {
+				width++;
+			}
+		}
+
+		boolean valid;
+		switch (field) {
+		case 'y': {
+			valid = (width == 2 || width == 4);
+			break;
+		}
+		case 'S': {
+			valid = (width <= 3);
+			break;
+		}
+		default: {
+			valid = (width == 2);
+		}
+		}
+
+		if (width == 0 && !required) {
+			valid = true;
+		}
+
+		if (!valid) {
+			throw new IllegalArgumentException("Field '" + field + "' has an invalid width in pattern '" + pattern + "'");
+		}
+	}
+
+	/**
+	 * Determines whether a field letter appears in a compiled pattern before the specified position
+	 * @param fields The compiled pattern
+	 * @param field The field letter
+	 * @param end The position to search up to
+	 * @return {@code true} if the field appears before the position; {@code false} if it does not
+	 */
+	private static boolean containsField(char[] fields, char field, int end) {
+		boolean result = false;
+		for (int i = 0; !result && i < end; i++) {
+			result = (fields[i] == field);
+		}
+		return result;
+	}
+
+	/**
+	 * Determines whether a letter is a date field
+	 * @param c The letter
+	 * @return {@code true} if the letter is a date field; {@code false} otherwise
+	 */
+	private static boolean isDateField(char c) {
+		return c == 'y' || c == 'M' || c == 'd';
+	}
+
+	/**
+	 * Determines whether a letter is a time field
+	 * @param c The letter
+	 * @return {@code true} if the letter is a time field; {@code false} otherwise
+	 */
+	private static boolean isTimeField(char c) {
+		return c == 'H' || c == 'm' || c == 's' || c == 'S';
+	}
+
+	/**
+	 * A parsed date and the text it was parsed from
+	 */
+	private static class ParsedDate {
+
+		/**
+		 * The text of the date
+		 */
+		private final String text;
+
+		/**
+		 * The date in milliseconds since the epoch
+		 */
+		private final long millis;
+
+		/**
+		 * Simple constructor
+		 * @param text The text of the date
+		 * @param millis The date in milliseconds since the epoch
+		 */
+		private ParsedDate(String text, long millis) {
+			this.text = text;
+			this.millis = millis;
+		}
+	}
+}
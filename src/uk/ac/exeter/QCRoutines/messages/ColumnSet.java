@@ -0,0 +1,222 @@
+package uk.ac.exeter.QCRoutines.messages;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * An immutable set of column indices and names referred to by a {@link Message}.
+ *
+ * Each {@link uk.ac.exeter.QCRoutines.config.ColumnConfigItem} holds the set for
+ * its own column, and {@link uk.ac.exeter.QCRoutines.config.ColumnConfig} shares
+ * the sets for groups of its columns, so messages raised by the routines do not
+ * need to build their own. Sets created with the {@code get} methods are not shared.
+ *
+ * The indices and names are held in ascending order, as they would be in a
+ * {@link TreeSet}.
+ */
+public final class ColumnSet {
+
+	/**
+	 * The column indices, in ascending order
+	 */
+	private final int[] columnIndices;
+
+	/**
+	 * The column names, in ascending order
+	 */
+	private final String[] columnNames;
+
+	/**
+	 * The hash code, calculated on construction
+	 */
+	private final int hashCode;
+
+	/**
+	 * Create a column set. The arrays must already be sorted and
+	 * free of duplicates, and must not be modified afterwards.
+	 * @param columnIndices The column indices
+	 * @param columnNames The column names
+	 */
+	private ColumnSet(int[] columnIndices, String[] columnNames) {
+		this.columnIndices = columnIndices;
+		this.columnNames = columnNames;
+		this.hashCode = 31 * Arrays.hashCode(columnIndices) + Arrays.hashCode(columnNames);
+	}
+
+	/**
+	 * Get the column set for a single column
+	 * @param columnIndex The column index
+	 * @param columnName The column name
+	 * @return The column set
+	 */
+	public static ColumnSet get(int columnIndex, String columnName) {
+		return new ColumnSet(new int[] {columnIndex}, new String[] {columnName});
+	}
+
+	/**
+	 * Get the column set for the specified column indices and names
+	 * @param columnIndices The column indices
+	 * @param columnNames The column names
+	 * @return The column set
+	 */
+	public static ColumnSet get(Collection<Integer> columnIndices, Collection<String> columnNames) {
+		int[] indices = new int[columnIndices.size()];
+		int i = 0;
+		for (int columnIndex : columnIndices) {
+			indices[i] = columnIndex;
+			i++;
+		}
+
+		return create(indices, columnNames.toArray(new String[columnNames.size()]));
+	}
+
+	/**
+	 * Get the column set for the specified column indices and names.
+	 * The arrays are not modified.
+	 * @param columnIndices The column indices
+	 * @param columnNames The column names
+	 * @return The column set
+	 */
+	public static ColumnSet get(int[] columnIndices, String[] columnNames) {
+		return create(columnIndices.clone(), columnNames.clone());
+	}
+
+	/**
+	 * Get the column set for the specified column indices and names,
+	 * taking ownership of the arrays. The arrays are sorted and duplicates are removed.
+	 * @param columnIndices The column indices
+	 * @param columnNames The column names
+	 * @return The column set
+	 */
+	private static ColumnSet create(int[] columnIndices, String[] columnNames) {
+		int[] indices = columnIndices;
+		String[] names = columnNames;
+
+		Arrays.sort(indices);
+		int indexCount = 0;
+		for (int i = 0; i < indices.length; i++) {
+			if (i == 0 || indices[i] != indices[indexCount - 1]) {
+				indices[indexCount] = indices[i];
+				indexCount++;
+			}
+		}
+		if (indexCount < indices.length) {
+			indices = Arrays.copyOf(indices, indexCount);
+		}
+
+		Arrays.sort(names);
+		int nameCount = 0;
+		for (int i = 0; i < names.length; i++) {
+			if (i == 0 || !names[i].equals(names[nameCount - 1])) {
+				names[nameCount] = names[i];
+				nameCount++;
+			}
+		}
+		if (nameCount < names.length) {
+			names = Arrays.copyOf(names, nameCount);
+		}
+
+		return new ColumnSet(indices, names);
+	}
+
+	/**
+	 * Returns the number of column indices in the set
+	 * @return The number of column indices
+	 */
+	public int getIndexCount() {
+		return columnIndices.length;
+	}
+
+	/**
+	 * Returns the column index at the specified position in the set
+	 * @param position The position
+	 * @return The column index
+	 */
+	public int getIndex(int position) {
+		return columnIndices[position];
+	}
+
+	/**
+	 * Returns the number of column names in the set
+	 * @return The number of column names
+	 */
+	public int getNameCount() {
+		return columnNames.length;
+	}
+
+	/**
+	 * Returns the column name at the specified position in the set
+	 * @param position The position
+	 * @return The column name
+	 */
+	public String getName(int position) {
+		return columnNames[position];
+	}
+
+	/**
+	 * Determines whether or not the set contains the specified column index
+	 * @param columnIndex The column index
+	 * @return {@code true} if the set contains the column index; {@code false} if it does not
+	 */
+	public boolean containsIndex(int columnIndex) {
+		return Arrays.binarySearch(columnIndices, columnIndex) >= 0;
+	}
+
+	/**
+	 * Returns the column indices as a new set
+	 * @return The column indices
+	 */
+	public TreeSet<Integer> getIndexSet() {
+		TreeSet<Integer> result = new TreeSet<Integer>();
+		for (int columnIndex : columnIndices) {
+			result.add(columnIndex);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the column names as a new set
+	 * @return The column names
+	 */
+	public TreeSet<String> getNameSet() {
+		return new TreeSet<String>(Arrays.asList(columnNames));
+	}
+
+	/**
+	 * Returns an unmodifiable list view of the column names
+	 * @return The column names
+	 */
+	public List<String> getNameList() {
+		return Collections.unmodifiableList(Arrays.asList(columnNames));
+	}
+
+	/**
+	 * Returns the column indices. The array must not be modified.
+	 * @return The column indices
+	 */
+	int[] getIndexArray() {
+		return columnIndices;
+	}
+
+	@Override
+	public boolean equals(Object compare) {
+		boolean equals = false;
+
+		if (compare == this) {
+			equals = true;
+		} else if (compare instanceof ColumnSet) {
+			ColumnSet compareSet = (ColumnSet) compare;
+			equals = (hashCode == compareSet.hashCode && Arrays.equals(columnIndices, compareSet.columnIndices) && Arrays.equals(columnNames, compareSet.columnNames));
+		}
+
+		return equals;
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+}
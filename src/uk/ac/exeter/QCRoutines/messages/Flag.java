@@ -104,13 +104,31 @@ public class Flag implements Comparable<Flag> {
 	
 	public static final Flag IGNORED = makeIgnoredFlag();
 	
+	/**
+	 * The canonical flag instances, indexed by their byte codes
+	 */
+	private static final Flag[] FLAGS_BY_CODE = {GOOD, ASSUMED_GOOD, QUESTIONABLE, BAD, NOT_SET, NEEDED, IGNORED};
+	
+	/**
+	 * The significance of each flag, indexed by the flags' byte codes.
+	 * Higher values are more significant.
+	 * @see #moreSignificantThan(Flag)
+	 */
+	private static final byte[] SIGNIFICANCE = {4, 3, 5, 6, 2, 1, 0};
+	
 	/**
 	 * The WOCE value for this flag
 	 */
 	protected int flagValue;
 	
 	/**
-	 * Creates a Flag instance with the specified value
+	 * The compact byte code for this flag
+	 */
+	private final byte code;
+	
+	/**
+	 * Creates a Flag instance with the specified value. Where possible,
+	 * use {@link #valueOf(int)} to get the canonical instance instead.
 	 * @param flagValue The flag's WOCE value
 	 * @throws InvalidFlagException If the flag value is invalid
 	 */
@@ -120,6 +138,93 @@ public class Flag implements Comparable<Flag> {
 		}
 		
 		this.flagValue = flagValue;
+		this.code = getCode(flagValue);
+	}
+	
+	/**
+	 * Returns the canonical Flag instance for the specified value
+	 * @param flagValue The flag's WOCE value
+	 * @return The flag
+	 * @throws InvalidFlagException If the flag value is invalid
+	 */
+	public static Flag valueOf(int flagValue) throws InvalidFlagException {
+		if (!isValidFlagValue(flagValue)) {
+			throw new InvalidFlagException(flagValue);
+		}
+		
+		return FLAGS_BY_CODE[getCode(flagValue)];
+	}
+	
+	/**
+	 * Returns the canonical Flag instance for the specified byte code
+	 * @param code The byte code
+	 * @return The flag
+	 * @see #getCode()
+	 */
+	public static Flag fromCode(byte code) {
+		return FLAGS_BY_CODE[code];
+	}
+	
+	/**
+	 * Returns the compact byte code for this flag. The code for
+	 * a Good flag is zero.
+	 * @return The byte code
+	 */
+	public byte getCode() {
+		return code;
+	}
+	
+	/**
+	 * Determines whether or not the flag with the first byte code is
+	 * more significant than the flag with the second byte code.
+	 * @param code The byte code of the flag to be compared
+	 * @param compareCode The byte code of the flag it is compared to
+	 * @return {@code true} if the first flag is more significant than the second flag; {@code false} if it is not.
+	 * @see #moreSignificantThan(Flag)
+	 */
+	public static boolean moreSignificantThan(byte code, byte compareCode) {
+		return SIGNIFICANCE[code] > SIGNIFICANCE[compareCode];
+	}
+	
+	/**
+	 * Get the byte code for a valid flag value
+	 * @param flagValue The flag value
+	 * @return The byte code
+	 */
+	private static byte getCode(int flagValue) {
+		byte result;
+		
+		switch (flagValue) {
+		case VALUE_GOOD: {
+			result = 0;
+			break;
+		}
+		case VALUE_ASSUMED_GOOD: {
+			result = 1;
+			break;
+		}
+		case VALUE_QUESTIONABLE: {
+			result = 2;
+			break;
+		}
+		case VALUE_BAD: {
+			result = 3;
+			break;
+		}
+		case VALUE_NOT_SET: {
+			result = 4;
+			break;
+		}
+		case VALUE_NEEDED: {
+			result = 5;
+			break;
+		}
+		default: {
+			result = 6;
+		}
+		}
+		
+		return result;
 	}
 	
 	/**
@@ -289,10 +394,15 @@ public class Flag implements Comparable<Flag> {
 	public boolean equals(Object compare) {
 		boolean result = false;
 		if (compare instanceof Flag) {
-			result = ((Flag) compare).flagValue == flagValue;
+			result = ((Flag) compare).code == code;
 		}
 		return result;
 	}
+	
+	@Override
+	public int hashCode() {
+		return flagValue;
+	}
 
 	@Override
 	public int compareTo(Flag flag) {
@@ -310,7 +420,7 @@ public class Flag implements Comparable<Flag> {
 	 * @return {@code true} if this flag is more significant than the supplied flag; {@code false} if it is not.
 	 */
 	public boolean moreSignificantThan(Flag flag) {
-		return (compareTo(flag) > 0);
+		return SIGNIFICANCE[code] > SIGNIFICANCE[flag.code];
 	}
 	
 	public boolean isGood() {
@@ -1,6 +1,8 @@
 package uk.ac.exeter.QCRoutines.messages;
 
+import java.io.IOException;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.TreeSet;
@@ -15,7 +17,10 @@ import uk.ac.exeter.QCRoutines.data.DataColumn;
  * 
  * This allows message objects to be constructed programatically from the most
  * basic components.
- * This will be be checked whenever one of the constructors is invoked.
+ * This is checked by the constructors that take a {@link DataColumn} or a column
+ * index and name. The constructors that take a shared {@link ColumnSet} skip the
+ * check; it is made instead when the message is converted to a rebuild code or
+ * written to a message stream.
  * 
  * @author zuj007
  *
@@ -25,10 +30,37 @@ public abstract class Message {
 	public static final int NO_COLUMN_INDEX = -999;
 	
 	public static final int NO_LINE_NUMBER = -999;
-
-	protected TreeSet<Integer> columnIndices;
 	
-	protected TreeSet<String> columnNames;
+	/**
+	 * The basic constructor for each message class, looked up once per class
+	 */
+	private static final ClassValue<Constructor<? extends Message>> BASIC_CONSTRUCTORS = new ClassValue<Constructor<? extends Message>>() {
+		@Override
+		@SuppressWarnings("unchecked")
+		protected Constructor<? extends Message> computeValue(Class<?> messageClass) {
+			try {
+				return (Constructor<? extends Message>) messageClass.getConstructor(int.class, TreeSet.class, TreeSet.class, Flag.class, String.class, String.class);
+			} catch (NoSuchMethodException e) {
+				throw new IllegalStateException("Message class " + messageClass.getName() + " is missing the basic constructor");
+			}
+		}
+	};
+
+	/**
+	 * Records whether or not each message class has the basic constructor,
+	 * so the reflective check is only made once per class
+	 */
+	private static final ClassValue<Boolean> HAS_BASIC_CONSTRUCTOR = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> messageClass) {
+			return hasBasicConstructor(messageClass);
+		}
+	};
+
+	/**
+	 * The columns for which this message was raised
+	 */
+	private ColumnSet columns;
 	
 	private Flag flag;
 	
@@ -38,10 +70,16 @@ public abstract class Message {
 	
 	protected String validValue;
 	
+	/**
+	 * Indicates that the field and valid values have not yet been formatted.
+	 * @see #formatFieldValue()
+	 * @see #formatValidValue()
+	 */
+	private volatile boolean valuesPending = false;
+	
 	public Message(int lineNumber, TreeSet<Integer> columnIndices, TreeSet<String> columnNames, Flag flag, String fieldValue, String validValue) {
 		this.lineNumber = lineNumber;
-		this.columnIndices = columnIndices;
-		this.columnNames = columnNames;
+		this.columns = ColumnSet.get(columnIndices, columnNames);
 		this.flag = flag;
 		this.fieldValue = fieldValue;
 		this.validValue = validValue;
@@ -49,15 +87,60 @@ public abstract class Message {
 		// Note that we don't need to check the basic constructor here, because this is it!
 	}
 	
+	/**
+	 * Create a message for a shared set of columns. As with the basic constructor,
+	 * the presence of the basic constructor is checked when the message is
+	 * converted to a rebuild code.
+	 * @param lineNumber The line number
+	 * @param columns The columns
+	 * @param flag The flag
+	 * @param fieldValue The field value
+	 * @param validValue The valid value
+	 */
+	public Message(int lineNumber, ColumnSet columns, Flag flag, String fieldValue, String validValue) {
+		this.lineNumber = lineNumber;
+		this.columns = columns;
+		this.flag = flag;
+		this.fieldValue = fieldValue;
+		this.validValue = validValue;
+	}
+	
+	/**
+	 * Create a message for a shared set of columns whose field and valid values
+	 * are formatted when they are first needed, using {@link #formatFieldValue()}
+	 * and {@link #formatValidValue()}.
+	 * @param lineNumber The line number
+	 * @param columns The columns
+	 * @param flag The flag
+	 */
+	protected Message(int lineNumber, ColumnSet columns, Flag flag) {
+		this.lineNumber = lineNumber;
+		this.columns = columns;
+		this.flag = flag;
+		this.valuesPending = true;
+	}
+	
+	/**
+	 * Create a message for a column whose field and valid values
+	 * are formatted when they are first needed, using {@link #formatFieldValue()}
+	 * and {@link #formatValidValue()}.
+	 * @param lineNumber The line number
+	 * @param dataColumn The column
+	 * @param flag The flag
+	 * @throws MessageException If the message class does not have the basic constructor
+	 */
+	protected Message(int lineNumber, DataColumn dataColumn, Flag flag) throws MessageException {
+		this.lineNumber = lineNumber;
+		this.columns = dataColumn.getColumnSet();
+		this.flag = flag;
+		this.valuesPending = true;
+		
+		checkBasicConstructor(getClass());
+	}
+	
 	public Message(int lineNumber, int columnIndex, String columnName, Flag flag, String fieldValue, String validValue) throws MessageException {
 		this.lineNumber = lineNumber;
-
-		columnIndices = new TreeSet<Integer>();
-		columnIndices.add(columnIndex);
-
-		columnNames = new TreeSet<String>();
-		columnNames.add(columnName);
-
+		this.columns = ColumnSet.get(columnIndex, columnName);
 		this.flag = flag;
 		this.fieldValue = fieldValue;
 		this.validValue = validValue;
@@ -67,11 +150,7 @@ public abstract class Message {
 	public Message(int lineNumber, DataColumn dataColumn, Flag flag, String validValue) throws MessageException {
 		this.lineNumber = lineNumber;
 		
-		columnIndices = new TreeSet<Integer>();
-		columnIndices.add(dataColumn.getColumnIndex());
-
-		columnNames = new TreeSet<String>();
-		columnNames.add(dataColumn.getName());
+		this.columns = dataColumn.getColumnSet();
 		
 		this.flag = flag;
 		this.fieldValue = dataColumn.getValue();
@@ -83,11 +162,7 @@ public abstract class Message {
 	public Message(int lineNumber, DataColumn dataColumn, Flag flag, String fieldValue, String validValue) throws MessageException {
 		this.lineNumber = lineNumber;
 		
-		columnIndices = new TreeSet<Integer>();
-		columnIndices.add(dataColumn.getColumnIndex());
-
-		columnNames = new TreeSet<String>();
-		columnNames.add(dataColumn.getName());
+		this.columns = dataColumn.getColumnSet();
 
 		this.flag = flag;
 		this.fieldValue = fieldValue;
@@ -104,20 +179,30 @@ public abstract class Message {
 		return lineNumber;
 	}
 	
+	/**
+	 * Returns the columns for which this message was raised.
+	 * @return The columns for which this message was raised.
+	 */
+	public ColumnSet getColumns() {
+		return columns;
+	}
+	
 	/**
 	 * Returns the column indices for which this message was raised.
+	 * The returned set is a copy; changing it does not affect the message.
 	 * @return The column indices for which this message was raised.
 	 */
 	public TreeSet<Integer> getColumnIndices() {
-		return columnIndices;
+		return columns.getIndexSet();
 	}
 
 	/**
-	 * Returns the column names for which this message was raised
+	 * Returns the column names for which this message was raised.
+	 * The returned set is a copy; changing it does not affect the message.
 	 * @return the name of the column(s) for which this message was raised.
 	 */
 	public TreeSet<String> getColumnNames() {
-		return columnNames;
+		return columns.getNameSet();
 	}
 	
 	/**
@@ -125,15 +210,13 @@ public abstract class Message {
 	 * @return The list of column names
 	 */
 	public String getColumnNamesAsString() {
-		StringBuffer result = new StringBuffer();
+		StringBuilder result = new StringBuilder();
 		
-		int nameCount = 0;
-		for (String columnName : columnNames) {
-			nameCount++;
-			result.append(columnName);
-			if (nameCount < columnNames.size()) {
+		for (int i = 0; i < columns.getNameCount(); i++) {
+			if (i > 0) {
 				result.append('|');
 			}
+			result.append(columns.getName(i));
 		}
 		
 		return result.toString();
@@ -154,25 +237,144 @@ public abstract class Message {
 	 * @return The {@link MessageKey} object for this message 
 	 */
 	public MessageKey generateMessageKey() {
-		return new MessageKey(columnIndices, getClass());
+		return new MessageKey(columns, getClass());
+	}
+	
+	/**
+	 * Returns the full text of the message. By default this is rendered
+	 * from the template given by {@link #getFullMessageTemplate()}.
+	 * @return The full message text
+	 */
+	public String getFullMessage() {
+		return getTemplate(getFullMessageTemplate()).render(this);
+	}
+	
+	/**
+	 * Returns the short text of the message. By default this is rendered
+	 * from the template given by {@link #getShortMessageTemplate()}.
+	 * @return The short message text
+	 */
+	public String getShortMessage() {
+		return getTemplate(getShortMessageTemplate()).render(this);
+	}
+	
+	/**
+	 * Write the full text of the message
+	 * @param out The destination for the text
+	 * @throws IOException If the text cannot be written
+	 */
+	public void appendFullMessage(Appendable out) throws IOException {
+		MessageTemplate template = getFullMessageTemplate();
+		if (null == template) {
+			out.append(getFullMessage());
+		} else {
+			template.render(this, out);
+		}
+	}
+	
+	/**
+	 * Write the short text of the message
+	 * @param out The destination for the text
+	 * @throws IOException If the text cannot be written
+	 */
+	public void appendShortMessage(Appendable out) throws IOException {
+		MessageTemplate template = getShortMessageTemplate();
+		if (null == template) {
+			out.append(getShortMessage());
+		} else {
+			template.render(this, out);
+		}
+	}
+	
+	/**
+	 * Write the short text of the message to a buffer
+	 * @param out The buffer
+	 */
+	public void appendShortMessage(StringBuilder out) {
+		MessageTemplate template = getShortMessageTemplate();
+		if (null == template) {
+			out.append(getShortMessage());
+		} else {
+			template.render(this, out);
+		}
+	}
+	
+	/**
+	 * Returns the template for the full message text. Subclasses must override
+	 * either this method or {@link #getFullMessage()}.
+	 * @return The template, or {@code null} if the message does not use a template
+	 */
+	protected MessageTemplate getFullMessageTemplate() {
+		return null;
 	}
 	
-	public abstract String getFullMessage();
+	/**
+	 * Returns the template for the short message text. Subclasses must override
+	 * either this method or {@link #getShortMessage()}.
+	 * @return The template, or {@code null} if the message does not use a template
+	 */
+	protected MessageTemplate getShortMessageTemplate() {
+		return null;
+	}
 	
-	public abstract String getShortMessage();
+	/**
+	 * Format the field value for messages whose values are formatted when they are
+	 * first needed. Subclasses that use the deferred formatting constructors
+	 * should override this method.
+	 * @return The field value
+	 */
+	protected String formatFieldValue() {
+		return null;
+	}
+	
+	/**
+	 * Format the valid value for messages whose values are formatted when they are
+	 * first needed. Subclasses that use the deferred formatting constructors
+	 * should override this method.
+	 * @return The valid value
+	 */
+	protected String formatValidValue() {
+		return null;
+	}
 	
 	public RebuildCode getRebuildCode() throws MessageException {
 		return new RebuildCode(this);
 	}
 	
 	public String getFieldValue() {
+		formatPendingValues();
 		return fieldValue;
 	}
 	
 	public String getValidValue() {
+		formatPendingValues();
 		return validValue;
 	}
 	
+	/**
+	 * Format the field and valid values if this has not yet been done
+	 */
+	private void formatPendingValues() {
+		if (valuesPending) {
+			fieldValue = formatFieldValue();
+			validValue = formatValidValue();
+			valuesPending = false;
+		}
+	}
+	
+	/**
+	 * Check that a message template has been provided
+	 * @param template The template
+	 * @return The template
+	 * @throws IllegalStateException If the template is {@code null}
+	 */
+	private MessageTemplate getTemplate(MessageTemplate template) {
+		if (null == template) {
+			throw new IllegalStateException("Message class " + getClass().getName() + " does not define its message text");
+		}
+		return template;
+	}
+	
 	public String toString() {
 		return getFullMessage();
 	}
@@ -184,12 +386,11 @@ public abstract class Message {
 			equals = false;
 		} else {
 			Message compare = (Message) o;
-			if (!compare.columnIndices.equals(columnIndices) ||
-					!compare.columnNames.equals(columnNames) ||
+			if (!compare.columns.equals(columns) ||
 					!compare.flag.equals(flag) ||
 					compare.lineNumber != lineNumber ||
-					!compare.fieldValue.equals(fieldValue) ||
-					!compare.validValue.equals(validValue)) {
+					!stringsEqual(compare.getFieldValue(), getFieldValue()) ||
+					!stringsEqual(compare.getValidValue(), getValidValue())) {
 				equals = false;
 			}
 		}
@@ -197,7 +398,69 @@ public abstract class Message {
 		return equals;
 	}
 	
+	@Override
+	public int hashCode() {
+		int hash = lineNumber;
+		hash = 31 * hash + columns.hashCode();
+		hash = 31 * hash + flag.hashCode();
+		formatPendingValues();
+		hash = 31 * hash + (null == fieldValue ? 0 : fieldValue.hashCode());
+		hash = 31 * hash + (null == validValue ? 0 : validValue.hashCode());
+		return hash;
+	}
+	
+	/**
+	 * Compare two strings, either of which may be {@code null}
+	 * @param string1 The first string
+	 * @param string2 The second string
+	 * @return {@code true} if the strings are equal or both {@code null}; {@code false} otherwise
+	 */
+	private static boolean stringsEqual(String string1, String string2) {
+		return null == string1 ? null == string2 : string1.equals(string2);
+	}
+	
+	/**
+	 * Create a message of the specified class using its basic constructor
+	 * @param messageClass The message class
+	 * @param lineNumber The line number
+	 * @param columnIndices The column indices
+	 * @param columnNames The column names
+	 * @param flag The flag
+	 * @param fieldValue The field value
+	 * @param validValue The valid value
+	 * @return The message
+	 * @throws MessageException If the message cannot be created
+	 */
+	static Message createMessage(Class<? extends Message> messageClass, int lineNumber, TreeSet<Integer> columnIndices, TreeSet<String> columnNames, Flag flag, String fieldValue, String validValue) throws MessageException {
+		try {
+			return BASIC_CONSTRUCTORS.get(messageClass).newInstance(lineNumber, columnIndices, columnNames, flag, fieldValue, validValue);
+		} catch (IllegalStateException e) {
+			throw new MessageException(e.getMessage());
+		} catch (InvocationTargetException e) {
+			throw new MessageException("Error while constructing message object", e.getCause());
+		} catch (ReflectiveOperationException e) {
+			throw new MessageException("Error while constructing message object", e);
+		}
+	}
+	
+	/**
+	 * Check that a message class has the basic constructor. The check
+	 * is only performed once for each class; the result is cached.
+	 * @param messageClass The message class
+	 * @throws MessageException If the class does not have the basic constructor
+	 */
 	protected static void checkBasicConstructor(Class<? extends Message> messageClass) throws MessageException {
+		if (!HAS_BASIC_CONSTRUCTOR.get(messageClass)) {
+			throw new MessageException("Message class " + messageClass.getName() + " is missing the basic constructor");
+		}
+	}
+	
+	/**
+	 * Determine whether or not a message class has the basic constructor
+	 * @param messageClass The message class
+	 * @return {@code true} if the class has the basic constructor; {@code false} if it does not
+	 */
+	private static boolean hasBasicConstructor(Class<?> messageClass) {
 		
 		boolean hasConstructor = true;
 		
@@ -227,8 +490,6 @@ public abstract class Message {
 			hasConstructor = false;
 		}
 		
-		if (!hasConstructor) {
-			throw new MessageException("Message class " + messageClass.getName() + " is missing the basic constructor");
-		}
+		return hasConstructor;
 	}
 }
@@ -1,10 +1,15 @@
 package uk.ac.exeter.QCRoutines.messages;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Key class for organising messages. Consists of the column index
- * and message type
+ * and message type.
+ * 
+ * Keys are immutable, so they can safely be used in hash-based collections.
  */
 public class MessageKey {
 
@@ -12,21 +17,46 @@ public class MessageKey {
 	 * The index of the column that messages under this key
 	 * refer to
 	 */
-	private Set<Integer> columnIndices;
+	private final int[] columnIndices;
 	
 	/**
 	 * The type of the messages referred to by this key
 	 */
-	private Class<?> messageClass;
+	private final Class<?> messageClass;
 	
 	/**
-	 * Construct a MessageKey object
-	 * @param columnIndex The column index
-	 * @param messageType The message type
+	 * The hash code of this key, calculated on construction
+	 */
+	private final int hashCode;
+	
+	/**
+	 * Construct a MessageKey object. The column indices are copied,
+	 * so later changes to the supplied set do not affect the key.
+	 * @param columnIndices The column indices
+	 * @param messageClass The message type
 	 */
 	public MessageKey(Set<Integer> columnIndices, Class<?> messageClass) {
-		this.columnIndices = columnIndices;
+		int[] indices = new int[columnIndices.size()];
+		int i = 0;
+		for (int columnIndex : new TreeSet<Integer>(columnIndices)) {
+			indices[i] = columnIndex;
+			i++;
+		}
+		
+		this.columnIndices = indices;
+		this.messageClass = messageClass;
+		this.hashCode = 31 * messageClass.hashCode() + Arrays.hashCode(indices);
+	}
+	
+	/**
+	 * Construct a MessageKey object for a message's columns
+	 * @param columns The columns
+	 * @param messageClass The message type
+	 */
+	public MessageKey(ColumnSet columns, Class<?> messageClass) {
+		this.columnIndices = columns.getIndexArray();
 		this.messageClass = messageClass;
+		this.hashCode = 31 * messageClass.hashCode() + Arrays.hashCode(columnIndices);
 	}
 	
 	/**
@@ -34,7 +64,11 @@ public class MessageKey {
 	 * @return The column index
 	 */
 	public Set<Integer> getColumnIndices() {
-		return columnIndices;
+		TreeSet<Integer> result = new TreeSet<Integer>();
+		for (int columnIndex : columnIndices) {
+			result.add(columnIndex);
+		}
+		return Collections.unmodifiableSet(result);
 	}
 	
 	/**
@@ -50,11 +84,18 @@ public class MessageKey {
 		
 		boolean equals = false;
 		
-		if (compare instanceof MessageKey) {
+		if (compare == this) {
+			equals = true;
+		} else if (compare instanceof MessageKey) {
 			MessageKey compareKey = (MessageKey) compare;
-			equals = (this.messageClass.equals(compareKey.messageClass) && this.columnIndices.equals(compareKey.columnIndices));
+			equals = (this.hashCode == compareKey.hashCode && this.messageClass.equals(compareKey.messageClass) && Arrays.equals(this.columnIndices, compareKey.columnIndices));
 		}
 		
 		return equals;
 	}
+	
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
 }
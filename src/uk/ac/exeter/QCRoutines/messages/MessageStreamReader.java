@@ -0,0 +1,373 @@
+package uk.ac.exeter.QCRoutines.messages;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Reads messages written by a {@link MessageStreamWriter}.
+ * See {@link MessageStreamWriter} for details of the format.
+ */
+public class MessageStreamReader {
+
+	/**
+	 * The size of the input buffer
+	 */
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * The largest number of 64-bit words in a column index mask. Any more
+	 * would give column indices that do not fit in an {@code int}.
+	 */
+	private static final long MAX_COLUMN_WORDS = Integer.MAX_VALUE / 64;
+
+	/**
+	 * The source stream. This is {@code null} when reading from a {@link ByteBuffer}.
+	 */
+	private InputStream in;
+
+	/**
+	 * The input buffer
+	 */
+	private ByteBuffer buffer;
+
+	/**
+	 * Indicates whether the stream header has been read
+	 */
+	private boolean headerRead = false;
+
+	/**
+	 * The line number of the last message read
+	 */
+	private int lastLineNumber = 0;
+
+	/**
+	 * The class dictionary
+	 */
+	private List<Class<? extends Message>> classDictionary = new ArrayList<Class<? extends Message>>();
+
+	/**
+	 * The column names dictionary
+	 */
+	private List<TreeSet<String>> columnNamesDictionary = new ArrayList<TreeSet<String>>();
+
+	/**
+	 * The valid value dictionary
+	 */
+	private List<String> validValueDictionary = new ArrayList<String>();
+
+	/**
+	 * Create a reader for an input stream. The stream is not closed by the reader.
+	 * @param in The input stream
+	 */
+	public MessageStreamReader(InputStream in) {
+		this.in = in;
+		buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		buffer.flip();
+	}
+
+	/**
+	 * Create a reader for the remaining contents of a buffer
+	 * @param source The buffer
+	 */
+	public MessageStreamReader(ByteBuffer source) {
+		this.in = null;
+		this.buffer = source.slice();
+	}
+
+	/**
+	 * Decode all the messages in a buffer
+	 * @param source The buffer
+	 * @return The messages
+	 * @throws MessageException If the messages cannot be decoded
+	 */
+	public static List<Message> decode(ByteBuffer source) throws MessageException {
+		try {
+			return new MessageStreamReader(source).readAll();
+		} catch (IOException e) {
+			// Buffers don't throw IOExceptions
+			throw new MessageException("Error while decoding messages", e);
+		}
+	}
+
+	/**
+	 * Read all remaining messages
+	 * @return The messages
+	 * @throws IOException If the data cannot be read
+	 * @throws MessageException If the messages cannot be decoded
+	 */
+	public List<Message> readAll() throws IOException, MessageException {
+		List<Message> messages = new ArrayList<Message>();
+
+		Message message = read();
+		while (null != message) {
+			messages.add(message);
+			message = read();
+		}
+
+		return messages;
+	}
+
+	/**
+	 * Read the next message
+	 * @return The message, or {@code null} if the end of the stream has been reached
+	 * @throws IOException If the data cannot be read
+	 * @throws MessageException If the message cannot be decoded
+	 */
+	@SuppressWarnings("unchecked")
+	public Message read() throws IOException, MessageException {
+
+		// An empty stream contains no messages
+		if (!fillBuffer()) {
+			return null;
+		}
+
+		if (!headerRead) {
+			for (byte b : MessageStreamWriter.MAGIC) {
+				if (readByte() != b) {
+					throw new MessageException("Data is not a message stream");
+				}
+			}
+			if (readByte() != MessageStreamWriter.VERSION) {
+				throw new MessageException("Unsupported message stream version");
+			}
+			headerRead = true;
+
+			// The stream may contain no messages
+			if (!fillBuffer()) {
+				return null;
+			}
+		}
+
+		int classRef = readInt();
+		Class<? extends Message> messageClass;
+		if (classRef == 0) {
+			String className = readString();
+			try {
+				// Load the class without initialising it, so no code from a class
+				// named in the stream runs before it is known to be a message class
+				Class<?> foundClass = Class.forName(className, false, Message.class.getClassLoader());
+				if (!Message.class.isAssignableFrom(foundClass)) {
+					throw new MessageException("Class '" + className + "' is not a message class");
+				}
+				messageClass = (Class<? extends Message>) foundClass;
+			} catch (ClassNotFoundException e) {
+				throw new MessageException("Cannot find message class '" + className + "'");
+			}
+			classDictionary.add(messageClass);
+		} else {
+			messageClass = classDictionary.get(checkReference(classRef, classDictionary.size()));
+		}
+
+		int lineNumber = lastLineNumber + unZigZag(readInt());
+		lastLineNumber = lineNumber;
+
+		TreeSet<Integer> columnIndices = readColumnIndices();
+
+		int namesRef = readInt();
+		TreeSet<String> columnNames;
+		if (namesRef == 0) {
+			int nameCount = readInt();
+			columnNames = new TreeSet<String>();
+			for (int i = 0; i < nameCount; i++) {
+				columnNames.add(readString());
+			}
+			columnNamesDictionary.add(columnNames);
+			columnNames = new TreeSet<String>(columnNames);
+		} else {
+			columnNames = new TreeSet<String>(columnNamesDictionary.get(checkReference(namesRef, columnNamesDictionary.size())));
+		}
+
+		int flagValue = unZigZag(readInt());
+
+		String fieldValue = readString();
+
+		int validRef = readInt();
+		String validValue;
+		if (validRef == 0) {
+			validValue = readString();
+			validValueDictionary.add(validValue);
+		} else {
+			validValue = validValueDictionary.get(checkReference(validRef, validValueDictionary.size()));
+		}
+
+		Flag flag;
+		try {
+			flag = Flag.valueOf(flagValue);
+		} catch (InvalidFlagException e) {
+			throw new MessageException("Invalid flag value " + flagValue, e);
+		}
+
+		return Message.createMessage(messageClass, lineNumber, columnIndices, columnNames, flag, fieldValue, validValue);
+	}
+
+	/**
+	 * Read a set of column indices from a bit mask
+	 * @return The column indices
+	 * @throws IOException If the data cannot be read
+	 * @throws MessageException If the data is invalid
+	 */
+	private TreeSet<Integer> readColumnIndices() throws IOException, MessageException {
+		TreeSet<Integer> columnIndices = new TreeSet<Integer>();
+
+		long header = readVarint();
+		if ((header & 1) == 1) {
+			columnIndices.add(Message.NO_COLUMN_INDEX);
+		}
+
+		long wordCount = header >>> 1;
+		if (wordCount > MAX_COLUMN_WORDS) {
+			throw new MessageException("Invalid column index mask length " + wordCount);
+		}
+
+		for (int word = 0; word < wordCount; word++) {
+			long mask = readVarint();
+			while (mask != 0) {
+				int bit = Long.numberOfTrailingZeros(mask);
+				columnIndices.add(word * 64 + bit);
+				mask &= mask - 1;
+			}
+		}
+
+		return columnIndices;
+	}
+
+	/**
+	 * Check that a dictionary reference is valid
+	 * @param reference The 1-based reference
+	 * @param dictionarySize The size of the dictionary
+	 * @return The 0-based position of the entry in the dictionary
+	 * @throws MessageException If the reference is invalid
+	 */
+	private int checkReference(int reference, int dictionarySize) throws MessageException {
+		if (reference < 1 || reference > dictionarySize) {
+			throw new MessageException("Invalid dictionary reference " + reference);
+		}
+
+		return reference - 1;
+	}
+
+	/**
+	 * Read a length-prefixed UTF-8 string. The length is checked
+	 * before the string is allocated, so corrupt lengths cannot
+	 * cause huge allocations.
+	 * @return The string
+	 * @throws IOException If the data cannot be read
+	 * @throws MessageException If the data is invalid
+	 */
+	private String readString() throws IOException, MessageException {
+		String result = null;
+
+		int length = readInt();
+		if (length < 0 || length - 1 > MessageStreamWriter.MAX_STRING_LENGTH) {
+			throw new MessageException("Invalid string length in message stream");
+		}
+
+		if (length > 0) {
+			length--;
+
+			// The whole of a buffer source is already available
+			if (null == in && length > buffer.remaining()) {
+				throw new MessageException("Unexpected end of message stream");
+			}
+
+			byte[] bytes = new byte[length];
+			int read = 0;
+			while (read < length) {
+				if (!fillBuffer()) {
+					throw new MessageException("Unexpected end of message stream");
+				}
+				int count = Math.min(length - read, buffer.remaining());
+				buffer.get(bytes, read, count);
+				read += count;
+			}
+			result = new String(bytes, MessageStreamWriter.CHARSET);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Read a varint that must fit in an {@code int}
+	 * @return The value
+	 * @throws IOException If the data cannot be read
+	 * @throws MessageException If the data is invalid
+	 */
+	private int readInt() throws IOException, MessageException {
+		long value = readVarint();
+		if (value > 0xFFFFFFFFL || value < 0) {
+			throw new MessageException("Invalid value in message stream");
+		}
+
+		return (int) value;
+	}
+
+	/**
+	 * Read an unsigned variable length integer
+	 * @return The value
+	 * @throws IOException If the data cannot be read
+	 * @throws MessageException If the data is invalid
+	 */
+	private long readVarint() throws IOException, MessageException {
+		long result = 0;
+		int shift = 0;
+
+		byte b;
+		do {
+			if (shift > 63) {
+				throw new MessageException("Invalid value in message stream");
+			}
+			b = readByte();
+			result |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+
+		return result;
+	}
+
+	/**
+	 * Read a single byte
+	 * @return The byte
+	 * @throws IOException If the data cannot be read
+	 * @throws MessageException If the end of the stream has been reached
+	 */
+	private byte readByte() throws IOException, MessageException {
+		if (!fillBuffer()) {
+			throw new MessageException("Unexpected end of message stream");
+		}
+
+		return buffer.get();
+	}
+
+	/**
+	 * Make sure that there is data in the buffer, reading more
+	 * from the input stream if necessary
+	 * @return {@code true} if there is data in the buffer; {@code false} if the end of the data has been reached
+	 * @throws IOException If the data cannot be read
+	 */
+	private boolean fillBuffer() throws IOException {
+		if (!buffer.hasRemaining() && null != in) {
+			buffer.clear();
+			int count = in.read(buffer.array(), 0, buffer.capacity());
+			if (count > 0) {
+				buffer.limit(count);
+			} else {
+				buffer.limit(0);
+			}
+		}
+
+		return buffer.hasRemaining();
+	}
+
+	/**
+	 * Decode a zig-zag encoded value
+	 * @param value The encoded value
+	 * @return The decoded value
+	 */
+	private static int unZigZag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
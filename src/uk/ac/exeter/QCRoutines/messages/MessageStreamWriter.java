@@ -0,0 +1,336 @@
+package uk.ac.exeter.QCRoutines.messages;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes messages in a compact binary format. This is an alternative
+ * to {@link RebuildCode}s for storing large numbers of messages.
+ *
+ * The stream starts with a four byte header ({@code QCM} followed by the format version),
+ * which is written with the first message; an empty stream contains no messages.
+ * Each message is then written as:
+ * <ul>
+ *   <li>The message class, as a reference to the class dictionary</li>
+ *   <li>The difference from the previous message's line number, as a zig-zag varint</li>
+ *   <li>The column indices, as a bit mask</li>
+ *   <li>The column names, as a reference to the column name dictionary</li>
+ *   <li>The flag value, as a zig-zag varint</li>
+ *   <li>The field value, as a length-prefixed UTF-8 string</li>
+ *   <li>The valid value, as a reference to the valid value dictionary</li>
+ * </ul>
+ *
+ * Dictionary references are varints, where {@code 0} means that a new entry follows
+ * and later references use the entry's 1-based position in the dictionary. The dictionaries
+ * are built as the stream is written, so each class name, set of column names and
+ * valid value is only written once.
+ *
+ * Column index bit masks are written as a varint header containing the number of 64-bit
+ * mask words, shifted left by one, with the lowest bit set if the message includes
+ * {@link Message#NO_COLUMN_INDEX}. The mask words follow as varints.
+ *
+ * Strings are written as a varint of the byte length plus one, followed by the bytes.
+ * A length of zero represents a {@code null} string. Strings can be at most
+ * {@link #MAX_STRING_LENGTH} bytes long.
+ *
+ * @see MessageStreamReader
+ */
+public class MessageStreamWriter {
+
+	/**
+	 * The bytes at the start of every message stream
+	 */
+	static final byte[] MAGIC = {'Q', 'C', 'M'};
+
+	/**
+	 * The current format version
+	 */
+	static final byte VERSION = 1;
+
+	/**
+	 * The character set for strings
+	 */
+	static final Charset CHARSET = Charset.forName("UTF-8");
+
+	/**
+	 * The maximum length of a string in bytes. This stops corrupt streams
+	 * from making the reader allocate huge arrays.
+	 */
+	static final int MAX_STRING_LENGTH = 1 << 24;
+
+	/**
+	 * The size of the output buffer
+	 */
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * The maximum number of bytes needed for a single varint
+	 */
+	private static final int MAX_VARINT_BYTES = 10;
+
+	/**
+	 * The destination stream
+	 */
+	private OutputStream out;
+
+	/**
+	 * The output buffer
+	 */
+	private byte[] buffer = new byte[BUFFER_SIZE];
+
+	/**
+	 * The number of bytes in the output buffer
+	 */
+	private int bufferCount = 0;
+
+	/**
+	 * Indicates whether the stream header has been written
+	 */
+	private boolean headerWritten = false;
+
+	/**
+	 * The line number of the last message written
+	 */
+	private int lastLineNumber = 0;
+
+	/**
+	 * The class dictionary
+	 */
+	private Map<Class<?>, Integer> classDictionary = new HashMap<Class<?>, Integer>();
+
+	/**
+	 * The column names dictionary
+	 */
+	private Map<List<String>, Integer> columnNamesDictionary = new HashMap<List<String>, Integer>();
+
+	/**
+	 * The valid value dictionary
+	 */
+	private Map<String, Integer> validValueDictionary = new HashMap<String, Integer>();
+
+	/**
+	 * Create a writer for an output stream. The stream is not closed by the writer.
+	 * @param out The output stream
+	 */
+	public MessageStreamWriter(OutputStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * Encode a set of messages into a buffer
+	 * @param messages The messages
+	 * @return The buffer containing the encoded messages
+	 * @throws MessageException If any of the messages cannot be encoded
+	 */
+	public static ByteBuffer encode(List<Message> messages) throws MessageException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		MessageStreamWriter writer = new MessageStreamWriter(bytes);
+		try {
+			writer.writeAll(messages);
+			writer.flush();
+		} catch (IOException e) {
+			// ByteArrayOutputStream doesn't throw IOExceptions
+			throw new MessageException("Error while encoding messages", e);
+		}
+
+		return ByteBuffer.wrap(bytes.toByteArray());
+	}
+
+	/**
+	 * Write a set of messages
+	 * @param messages The messages
+	 * @throws IOException If the messages cannot be written
+	 * @throws MessageException If any of the messages cannot be encoded
+	 */
+	public void writeAll(List<Message> messages) throws IOException, MessageException {
+		for (int i = 0; i < messages.size(); i++) {
+			write(messages.get(i));
+		}
+	}
+
+	/**
+	 * Write a single message
+	 * @param message The message
+	 * @throws IOException If the message cannot be written
+	 * @throws MessageException If the message cannot be encoded
+	 */
+	public void write(Message message) throws IOException, MessageException {
+		Message.checkBasicConstructor(message.getClass());
+
+		if (!headerWritten) {
+			for (byte b : MAGIC) {
+				writeByte(b);
+			}
+			writeByte(VERSION);
+			headerWritten = true;
+		}
+
+		Integer classRef = classDictionary.get(message.getClass());
+		if (null == classRef) {
+			writeVarint(0);
+			writeString(message.getClass().getName());
+			classDictionary.put(message.getClass(), classDictionary.size() + 1);
+		} else {
+			writeVarint(classRef);
+		}
+
+		writeVarint(zigZag(message.getLineNumber() - lastLineNumber));
+		lastLineNumber = message.getLineNumber();
+
+		ColumnSet columns = message.getColumns();
+		writeColumnIndices(columns);
+
+		List<String> columnNames = columns.getNameList();
+		Integer namesRef = columnNamesDictionary.get(columnNames);
+		if (null == namesRef) {
+			writeVarint(0);
+			writeVarint(columnNames.size());
+			for (String name : columnNames) {
+				writeString(name);
+			}
+			columnNamesDictionary.put(columnNames, columnNamesDictionary.size() + 1);
+		} else {
+			writeVarint(namesRef);
+		}
+
+		writeVarint(zigZag(message.getFlag().getFlagValue()));
+		writeString(message.getFieldValue());
+
+		String validValue = message.getValidValue();
+		Integer validRef = validValueDictionary.get(validValue);
+		if (null == validRef) {
+			writeVarint(0);
+			writeString(validValue);
+			validValueDictionary.put(validValue, validValueDictionary.size() + 1);
+		} else {
+			writeVarint(validRef);
+		}
+	}
+
+	/**
+	 * Write any buffered data to the output stream, and flush the stream
+	 * @throws IOException If the data cannot be written
+	 */
+	public void flush() throws IOException {
+		drain();
+		out.flush();
+	}
+
+	/**
+	 * Write a set of column indices as a bit mask
+	 * @param columns The columns
+	 * @throws IOException If the data cannot be written
+	 * @throws MessageException If any of the indices cannot be encoded
+	 */
+	private void writeColumnIndices(ColumnSet columns) throws IOException, MessageException {
+		boolean hasNoColumn = false;
+		int maxIndex = -1;
+
+		for (int i = 0; i < columns.getIndexCount(); i++) {
+			int columnIndex = columns.getIndex(i);
+			if (columnIndex == Message.NO_COLUMN_INDEX) {
+				hasNoColumn = true;
+			} else if (columnIndex < 0) {
+				throw new MessageException("Invalid column index " + columnIndex);
+			} else {
+				maxIndex = Math.max(maxIndex, columnIndex);
+			}
+		}
+
+		int wordCount = (maxIndex / 64) + 1;
+		if (maxIndex == -1) {
+			wordCount = 0;
+		}
+
+		writeVarint(((long) wordCount << 1) | (hasNoColumn ? 1 : 0));
+
+		long[] masks = new long[wordCount];
+		for (int i = 0; i < columns.getIndexCount(); i++) {
+			int columnIndex = columns.getIndex(i);
+			if (columnIndex >= 0) {
+				masks[columnIndex >> 6] |= 1L << (columnIndex & 63);
+			}
+		}
+
+		for (long mask : masks) {
+			writeVarint(mask);
+		}
+	}
+
+	/**
+	 * Write a string as its length followed by its UTF-8 bytes
+	 * @param string The string
+	 * @throws IOException If the data cannot be written
+	 * @throws MessageException If the string is longer than {@link #MAX_STRING_LENGTH} bytes
+	 */
+	private void writeString(String string) throws IOException, MessageException {
+		if (null == string) {
+			writeVarint(0);
+		} else {
+			byte[] bytes = string.getBytes(CHARSET);
+			if (bytes.length > MAX_STRING_LENGTH) {
+				throw new MessageException("String of " + bytes.length + " bytes is too long for a message stream");
+			}
+			writeVarint(bytes.length + 1);
+			for (byte b : bytes) {
+				writeByte(b);
+			}
+		}
+	}
+
+	/**
+	 * Write an unsigned variable length integer
+	 * @param value The value
+	 * @throws IOException If the data cannot be written
+	 */
+	private void writeVarint(long value) throws IOException {
+		if (bufferCount + MAX_VARINT_BYTES > buffer.length) {
+			drain();
+		}
+
+		while ((value & ~0x7FL) != 0) {
+			buffer[bufferCount++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[bufferCount++] = (byte) value;
+	}
+
+	/**
+	 * Write a single byte
+	 * @param b The byte
+	 * @throws IOException If the data cannot be written
+	 */
+	private void writeByte(byte b) throws IOException {
+		if (bufferCount == buffer.length) {
+			drain();
+		}
+		buffer[bufferCount++] = b;
+	}
+
+	/**
+	 * Write the contents of the buffer to the output stream
+	 * @throws IOException If the data cannot be written
+	 */
+	private void drain() throws IOException {
+		if (bufferCount > 0) {
+			out.write(buffer, 0, bufferCount);
+			bufferCount = 0;
+		}
+	}
+
+	/**
+	 * Zig-zag encode a signed value, so that small negative values
+	 * give small varints
+	 * @param value The value
+	 * @return The encoded value
+	 */
+	private static long zigZag(int value) {
+		return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+	}
+}
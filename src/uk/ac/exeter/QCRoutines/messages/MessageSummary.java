@@ -1,7 +1,7 @@
 package uk.ac.exeter.QCRoutines.messages;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -19,15 +19,17 @@ public class MessageSummary {
 	
 	public static List<MessageSummary> getMessageSummaries(List<Message> messages) {
 		
-		Map<MessageKey, MessageSummary> summaryMap = new HashMap<MessageKey, MessageSummary>();
+		Map<MessageKey, MessageSummary> summaryMap = new LinkedHashMap<MessageKey, MessageSummary>();
 		
 		for (Message message : messages) {
 			MessageKey key = message.generateMessageKey();
-			if (!summaryMap.containsKey(key)) {
-				summaryMap.put(key, new MessageSummary(message.getShortMessage()));
+			MessageSummary summary = summaryMap.get(key);
+			if (null == summary) {
+				summary = new MessageSummary(message.getShortMessage());
+				summaryMap.put(key, summary);
 			}
 			
-			summaryMap.get(key).addInstance(message.getFlag());
+			summary.addInstance(message.getFlag());
 		}
 		
 		return new ArrayList<MessageSummary>(summaryMap.values());
@@ -46,9 +48,10 @@ public class MessageSummary {
 	}
 	
 	private void addInstance(Flag flag) {
-		if (flag.equals(Flag.BAD)) {
+		int flagValue = flag.getFlagValue();
+		if (flagValue == Flag.VALUE_BAD) {
 			badCount++;
-		} else if (flag.equals(Flag.QUESTIONABLE)) {
+		} else if (flagValue == Flag.VALUE_QUESTIONABLE) {
 			questionableCount++;
 		}
 	}
@@ -0,0 +1,249 @@
+package uk.ac.exeter.QCRoutines.messages;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A template for the text of a {@link Message}. Templates are parsed once,
+ * and rendered directly into a caller-supplied {@link Appendable} so the
+ * message text is only built when it is needed.
+ *
+ * Templates may contain the following placeholders:
+ * <ul>
+ *   <li>{@code {columns}} - the message's column names, separated by '|'</li>
+ *   <li>{@code {field}} - the message's field value</li>
+ *   <li>{@code {valid}} - the message's valid value</li>
+ *   <li>{@code {line}} - the message's line number</li>
+ * </ul>
+ */
+public class MessageTemplate {
+
+	/**
+	 * Placeholder for the column names
+	 */
+	public static final String COLUMNS = "{columns}";
+
+	/**
+	 * Placeholder for the field value
+	 */
+	public static final String FIELD_VALUE = "{field}";
+
+	/**
+	 * Placeholder for the valid value
+	 */
+	public static final String VALID_VALUE = "{valid}";
+
+	/**
+	 * Placeholder for the line number
+	 */
+	public static final String LINE_NUMBER = "{line}";
+
+	/**
+	 * Part code for literal text
+	 */
+	private static final int PART_LITERAL = 0;
+
+	/**
+	 * Part code for the column names
+	 */
+	private static final int PART_COLUMNS = 1;
+
+	/**
+	 * Part code for the field value
+	 */
+	private static final int PART_FIELD_VALUE = 2;
+
+	/**
+	 * Part code for the valid value
+	 */
+	private static final int PART_VALID_VALUE = 3;
+
+	/**
+	 * Part code for the line number
+	 */
+	private static final int PART_LINE_NUMBER = 4;
+
+	/**
+	 * The original template
+	 */
+	private final String template;
+
+	/**
+	 * The type of each part of the template
+	 */
+	private final int[] partTypes;
+
+	/**
+	 * The text of each literal part of the template. Entries for placeholders are {@code null}.
+	 */
+	private final String[] literals;
+
+	/**
+	 * Parse a message template
+	 * @param template The template
+	 * @throws IllegalArgumentException If the template contains an unrecognised placeholder
+	 */
+	public MessageTemplate(String template) {
+		this.template = template;
+
+		List<Integer> types = new ArrayList<Integer>();
+		List<String> texts = new ArrayList<String>();
+
+		int literalStart = 0;
+		int position = template.indexOf('{');
+		while (position >= 0) {
+			int partType = getPlaceholderType(template, position);
+			int placeholderLength = getPlaceholderLength(partType);
+
+			if (position > literalStart) {
+				types.add(PART_LITERAL);
+				texts.add(template.substring(literalStart, position));
+			}
+
+			types.add(partType);
+			texts.add(null);
+
+			literalStart = position + placeholderLength;
+			position = template.indexOf('{', literalStart);
+		}
+
+		if (literalStart < template.length()) {
+			types.add(PART_LITERAL);
+			texts.add(template.substring(literalStart));
+		}
+
+		partTypes = new int[types.size()];
+		for (int i = 0; i < partTypes.length; i++) {
+			partTypes[i] = types.get(i);
+		}
+		literals = texts.toArray(new String[texts.size()]);
+	}
+
+	/**
+	 * Render the template for a message
+	 * @param message The message
+	 * @return The rendered text
+	 */
+	public String render(Message message) {
+		StringBuilder result = new StringBuilder();
+		render(message, result);
+		return result.toString();
+	}
+
+	/**
+	 * Render the template for a message into a buffer
+	 * @param message The message
+	 * @param out The buffer
+	 */
+	public void render(Message message, StringBuilder out) {
+		try {
+			render(message, (Appendable) out);
+		} catch (IOException e) {
+			// StringBuilders don't throw IOExceptions
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Render the template for a message
+	 * @param message The message
+	 * @param out The destination for the rendered text
+	 * @throws IOException If the text cannot be written
+	 */
+	public void render(Message message, Appendable out) throws IOException {
+		for (int i = 0; i < partTypes.length; i++) {
+			switch (partTypes[i]) {
+			case PART_LITERAL: {
+				out.append(literals[i]);
+				break;
+			}
+			case PART_COLUMNS: {
+				ColumnSet columns = message.getColumns();
+				for (int j = 0; j < columns.getNameCount(); j++) {
+					if (j > 0) {
+						out.append('|');
+					}
+					out.append(columns.getName(j));
+				}
+				break;
+			}
+			case PART_FIELD_VALUE: {
+				out.append(message.getFieldValue());
+				break;
+			}
+			case PART_VALID_VALUE: {
+				out.append(message.getValidValue());
+				break;
+			}
+			case PART_LINE_NUMBER: {
+				out.append(String.valueOf(message.getLineNumber()));
+				break;
+			}
+			default: {
+				// This should never happen!
+				throw new IllegalStateException("Invalid template part");
+			}
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return template;
+	}
+
+	/**
+	 * Identify the placeholder at the specified position in a template
+	 * @param template The template
+	 * @param position The position of the placeholder's opening brace
+	 * @return The part type for the placeholder
+	 * @throws IllegalArgumentException If the placeholder is not recognised
+	 */
+	private static int getPlaceholderType(String template, int position) {
+		int result;
+
+		if (template.startsWith(COLUMNS, position)) {
+			result = PART_COLUMNS;
+		} else if (template.startsWith(FIELD_VALUE, position)) {
+			result = PART_FIELD_VALUE;
+		} else if (template.startsWith(VALID_VALUE, position)) {
+			result = PART_VALID_VALUE;
+		} else if (template.startsWith(LINE_NUMBER, position)) {
+			result = PART_LINE_NUMBER;
+		} else {
+			throw new IllegalArgumentException("Unrecognised placeholder at position " + position + " in message template '" + template + "'");
+		}
+
+		return result;
+	}
+
+	/**
+	 * Get the length of a placeholder
+	 * @param partType The placeholder's part type
+	 * @return The length of the placeholder
+	 */
+	private static int getPlaceholderLength(int partType) {
+		int result;
+
+		switch (partType) {
+		case PART_COLUMNS: {
+			result = COLUMNS.length();
+			break;
+		}
+		case PART_FIELD_VALUE: {
+			result = FIELD_VALUE.length();
+			break;
+		}
+		case PART_VALID_VALUE: {
+			result = VALID_VALUE.length();
+			break;
+		}
+		default: {
+			result = LINE_NUMBER.length();
+		}
+		}
+
+		return result;
+	}
+}
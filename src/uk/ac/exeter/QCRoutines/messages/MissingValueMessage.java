@@ -4,6 +4,10 @@ import java.util.TreeSet;
 
 public class MissingValueMessage extends Message {
 
+	private static final MessageTemplate FULL_MESSAGE = new MessageTemplate("Missing value for column '{columns}' on line {line}");
+
+	private static final MessageTemplate SHORT_MESSAGE = new MessageTemplate("{columns} missing");
+
 	public MissingValueMessage(int lineNumber, TreeSet<Integer> columnIndices, TreeSet<String> columnNames, Flag flag, String fieldValue, String validValue) {
 		super(lineNumber, columnIndices, columnNames, flag, fieldValue, validValue);
 	}
@@ -16,13 +20,17 @@ public class MissingValueMessage extends Message {
 		super(lineNumber, columnIndex, columnNames, flag, null, null);
 	}
 
+	public MissingValueMessage(int lineNumber, ColumnSet columns, Flag flag) {
+		super(lineNumber, columns, flag, null, null);
+	}
+
 	@Override
-	public String getFullMessage() {
-		return "Missing value for column '" + getColumnNamesAsString() + "' on line " + lineNumber;
+	protected MessageTemplate getFullMessageTemplate() {
+		return FULL_MESSAGE;
 	}
 
 	@Override
-	public String getShortMessage() {
-		return getColumnNamesAsString() + " missing";
+	protected MessageTemplate getShortMessageTemplate() {
+		return SHORT_MESSAGE;
 	}
 }
@@ -5,25 +5,30 @@ import java.util.TreeSet;
 import uk.ac.exeter.QCRoutines.data.DataRecord;
 import uk.ac.exeter.QCRoutines.data.NoSuchColumnException;
 import uk.ac.exeter.QCRoutines.messages.Flag;
+import uk.ac.exeter.QCRoutines.messages.MessageTemplate;
 
 public class MissingDateTimeElementMessage extends DateTimeMessage {
 
+	private static final MessageTemplate FULL_MESSAGE = new MessageTemplate("One or more date/time elements are missing");
+
+	private static final MessageTemplate SHORT_MESSAGE = new MessageTemplate("One or more date/time elements missing");
+
 	public MissingDateTimeElementMessage(int lineNumber, TreeSet<Integer> columnIndices, TreeSet<String> columnNames, Flag flag, String fieldValue, String validValue) {
 		super(lineNumber, columnIndices, columnNames, flag, fieldValue, validValue);
 	}
 
 	public MissingDateTimeElementMessage(DataRecord record) throws NoSuchColumnException {
-		super(record.getLineNumber(), record.getDateTimeColumns(), record.getColumnNames(record.getDateTimeColumns()), Flag.BAD, null, null);
+		super(record.getLineNumber(), record.getColumnSet(record.getDateTimeColumns()), Flag.BAD, null, null);
 	}
 
 	@Override
-	public String getFullMessage() {
-		return "One or more date/time elements are missing";
+	protected MessageTemplate getFullMessageTemplate() {
+		return FULL_MESSAGE;
 	}
 
 	@Override
-	public String getShortMessage() {
-		return "One or more date/time elements missing";
+	protected MessageTemplate getShortMessageTemplate() {
+		return SHORT_MESSAGE;
 	}
 
 }
@@ -5,25 +5,30 @@ import java.util.TreeSet;
 import uk.ac.exeter.QCRoutines.data.DataRecord;
 import uk.ac.exeter.QCRoutines.data.NoSuchColumnException;
 import uk.ac.exeter.QCRoutines.messages.Flag;
+import uk.ac.exeter.QCRoutines.messages.MessageTemplate;
 
 public class UnparseableDateMessage extends DateTimeMessage {
 
+	private static final MessageTemplate FULL_MESSAGE = new MessageTemplate("The date and/or time value '{field}' could not be parsed");
+
+	private static final MessageTemplate SHORT_MESSAGE = new MessageTemplate("Unparseable date/time");
+
 	public UnparseableDateMessage(int lineNumber, TreeSet<Integer> columnIndices, TreeSet<String> columnNames, Flag flag, String fieldValue, String validValue) {
 		super(lineNumber, columnIndices, columnNames, flag, fieldValue, validValue);
 	}
 
 	public UnparseableDateMessage(DataRecord record, String fieldValue) throws NoSuchColumnException {
-		super(record.getLineNumber(), record.getDateTimeColumns(), record.getColumnNames(record.getDateTimeColumns()), Flag.BAD, fieldValue, null);
+		super(record.getLineNumber(), record.getColumnSet(record.getDateTimeColumns()), Flag.BAD, fieldValue, null);
 	}
 
 	@Override
-	public String getFullMessage() {
-		return "The date and/or time value '" + fieldValue + "' could not be parsed";
+	protected MessageTemplate getFullMessageTemplate() {
+		return FULL_MESSAGE;
 	}
 
 	@Override
-	public String getShortMessage() {
-		return "Unparseable date/time";
+	protected MessageTemplate getShortMessageTemplate() {
+		return SHORT_MESSAGE;
 	}
 
 }
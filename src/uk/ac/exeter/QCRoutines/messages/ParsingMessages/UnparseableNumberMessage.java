@@ -2,12 +2,18 @@ package uk.ac.exeter.QCRoutines.messages.ParsingMessages;
 
 import java.util.TreeSet;
 
+import uk.ac.exeter.QCRoutines.messages.ColumnSet;
 import uk.ac.exeter.QCRoutines.messages.Flag;
 import uk.ac.exeter.QCRoutines.messages.Message;
 import uk.ac.exeter.QCRoutines.messages.MessageException;
+import uk.ac.exeter.QCRoutines.messages.MessageTemplate;
 
 public class UnparseableNumberMessage extends Message {
 
+	private static final MessageTemplate FULL_MESSAGE = new MessageTemplate("The value '{field}' in column '{columns}' could not be parsed  - it should be numeric");
+
+	private static final MessageTemplate SHORT_MESSAGE = new MessageTemplate("Non-numeric value in column '{columns}'");
+
 	public UnparseableNumberMessage(int lineNumber, TreeSet<Integer> columnIndices, TreeSet<String> columnNames, Flag flag, String fieldValue, String validValue) {
 		super(lineNumber, columnIndices, columnNames, flag, fieldValue, validValue);
 	}
@@ -16,14 +22,18 @@ public class UnparseableNumberMessage extends Message {
 		super(lineNumber, columnIndex, columnName, Flag.BAD, fieldValue, null);
 	}
 
+	public UnparseableNumberMessage(int lineNumber, ColumnSet columns, String fieldValue) {
+		super(lineNumber, columns, Flag.BAD, fieldValue, null);
+	}
+
 	@Override
-	public String getFullMessage() {
-		return "The value '" + fieldValue + "' in column '" + getColumnNamesAsString() + "' could not be parsed  - it should be numeric";
+	protected MessageTemplate getFullMessageTemplate() {
+		return FULL_MESSAGE;
 	}
 
 	@Override
-	public String getShortMessage() {
-		return "Non-numeric value in column '" + getColumnNamesAsString() + "'";
+	protected MessageTemplate getShortMessageTemplate() {
+		return SHORT_MESSAGE;
 	}
 
 }
@@ -1,6 +1,5 @@
 package uk.ac.exeter.QCRoutines.messages;
 
-import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -21,14 +20,25 @@ public class RebuildCode {
 	private static final int CODE_INDEX_FIELD_VALUE = 5;
 	
 	private static final int CODE_INDEX_VALID_VALUE = 6;
-
+	
+	private static final int CODE_FIELD_COUNT = 7;
+	
+	private static final char FIELD_SEPARATOR = '_';
+	
+	private static final char LIST_SEPARATOR = '|';
+	
+	private static final char CODE_SEPARATOR = ';';
+	
+	/**
+	 * The message classes that have been found in rebuild codes
+	 */
+	private static volatile Class<?>[] messageClasses = new Class<?>[0];
+	
 	private Class<? extends Message> messageClass;
 	
 	private int lineNumber;
 	
-	private TreeSet<Integer> columnIndices;
-	
-	private TreeSet<String> columnNames;
+	private ColumnSet columns;
 	
 	private int flagValue;
 	
@@ -39,8 +49,7 @@ public class RebuildCode {
 	public RebuildCode(Message message) throws MessageException {
 		messageClass = message.getClass();
 		lineNumber = message.getLineNumber();
-		columnIndices = message.getColumnIndices();
-		columnNames = message.getColumnNames();
+		columns = message.getColumns();
 		flagValue = message.getFlag().getFlagValue();
 		fieldValue = message.getFieldValue();
 		validValue = message.getValidValue();
@@ -48,105 +57,141 @@ public class RebuildCode {
 		Message.checkBasicConstructor(messageClass);
 	}
 	
-	@SuppressWarnings("unchecked")
 	public RebuildCode(String code) throws RebuildCodeException {
-			
-		String[] codeComponents = code.split("_");
-		if (codeComponents.length != 7) {
-			throw new RebuildCodeException("Incorrect number of elements");
-		} else {
-			
-			try {
-				messageClass = (Class<? extends Message>) Class.forName(codeComponents[CODE_INDEX_CLASS_NAME]);
-			} catch (ClassNotFoundException e) {
-				throw new RebuildCodeException("Cannot find message class '" + codeComponents[0] + "'");
-			}
-			
-			try {
-				lineNumber = Integer.parseInt(codeComponents[CODE_INDEX_LINE_NUMBER]);
-				if (lineNumber < 1) {
-					throw new RebuildCodeException("Invalid line number");
-				}
-			} catch (NumberFormatException e) {
-				throw new RebuildCodeException("Unparseable line number value");
-			}
-			
-			try {
-				columnIndices = new TreeSet<Integer>();
-				
-				String[] indices = codeComponents[CODE_INDEX_COLUMN_INDEX].split("\\|");
-				for (String indexString : indices) {
-					int columnIndex = Integer.parseInt(indexString);
-					if (columnIndex < 0 && columnIndex != Message.NO_COLUMN_INDEX) {
-						throw new RebuildCodeException("Invalid column index value");
-					}
-
-					columnIndices.add(columnIndex);
+		this(code, 0, code.length());
+	}
+	
+	/**
+	 * Parse a rebuild code from part of a character sequence, without splitting
+	 * the sequence into separate strings.
+	 * @param codes The character sequence
+	 * @param start The start of the code
+	 * @param end The end of the code (exclusive)
+	 * @throws RebuildCodeException If the code is invalid
+	 */
+	private RebuildCode(CharSequence codes, int start, int end) throws RebuildCodeException {
+		
+		// Find the field separators
+		int[] fieldEnds = new int[CODE_FIELD_COUNT];
+		int fieldCount = 0;
+		for (int i = start; i < end; i++) {
+			if (codes.charAt(i) == FIELD_SEPARATOR) {
+				if (fieldCount == CODE_FIELD_COUNT - 1) {
+					throw new RebuildCodeException("Incorrect number of elements");
 				}
-				
-			} catch (NumberFormatException e) {
-				throw new RebuildCodeException("Unparseable column index value");
+				fieldEnds[fieldCount] = i;
+				fieldCount++;
 			}
-			
-			if (codeComponents[CODE_INDEX_COLUMN_NAME].length() == 0) {
-				columnNames = new TreeSet<String>();
-				for (int i = 0; i < columnIndices.size(); i++) {
-					columnNames.add("");
-				}	
-			} else {
-				columnNames = new TreeSet<String>(Arrays.asList(codeComponents[CODE_INDEX_COLUMN_NAME].split("\\|")));
-			}
-			
-			try {
-				flagValue = Integer.parseInt(codeComponents[CODE_INDEX_FLAG_VALUE]);
-				if (!Flag.isValidFlagValue(flagValue)) {
-					throw new RebuildCodeException("Invalid flag value");
-				}
-			} catch (NumberFormatException e) {
-				throw new RebuildCodeException("Unparseable flag value");
+		}
+		fieldEnds[fieldCount] = end;
+		fieldCount++;
+		
+		if (fieldCount != CODE_FIELD_COUNT) {
+			throw new RebuildCodeException("Incorrect number of elements");
+		}
+		
+		int classStart = start;
+		int classEnd = fieldEnds[CODE_INDEX_CLASS_NAME];
+		messageClass = getMessageClass(codes, classStart, classEnd);
+		
+		lineNumber = parseInt(codes, fieldEnds[CODE_INDEX_LINE_NUMBER - 1] + 1, fieldEnds[CODE_INDEX_LINE_NUMBER], "Unparseable line number value");
+		if (lineNumber < 1) {
+			throw new RebuildCodeException("Invalid line number");
+		}
+		
+		TreeSet<Integer> columnIndices = new TreeSet<Integer>();
+		int indexStart = fieldEnds[CODE_INDEX_COLUMN_INDEX - 1] + 1;
+		int indicesEnd = fieldEnds[CODE_INDEX_COLUMN_INDEX];
+		do {
+			int indexEnd = indexOf(codes, LIST_SEPARATOR, indexStart, indicesEnd);
+			int columnIndex = parseInt(codes, indexStart, indexEnd, "Unparseable column index value");
+			if (columnIndex < 0 && columnIndex != Message.NO_COLUMN_INDEX) {
+				throw new RebuildCodeException("Invalid column index value");
 			}
 			
-			fieldValue = codeComponents[CODE_INDEX_FIELD_VALUE];
-			validValue = codeComponents[CODE_INDEX_VALID_VALUE];
+			columnIndices.add(columnIndex);
+			indexStart = indexEnd + 1;
+		} while (indexStart <= indicesEnd);
+		
+		TreeSet<String> columnNames = new TreeSet<String>();
+		int nameStart = fieldEnds[CODE_INDEX_COLUMN_NAME - 1] + 1;
+		int namesEnd = fieldEnds[CODE_INDEX_COLUMN_NAME];
+		if (nameStart == namesEnd) {
+			columnNames.add("");
+		} else {
+			do {
+				int nameEnd = indexOf(codes, LIST_SEPARATOR, nameStart, namesEnd);
+				columnNames.add(codes.subSequence(nameStart, nameEnd).toString());
+				nameStart = nameEnd + 1;
+			} while (nameStart <= namesEnd);
+		}
+		
+		columns = ColumnSet.get(columnIndices, columnNames);
+		
+		flagValue = parseInt(codes, fieldEnds[CODE_INDEX_FLAG_VALUE - 1] + 1, fieldEnds[CODE_INDEX_FLAG_VALUE], "Unparseable flag value");
+		if (!Flag.isValidFlagValue(flagValue)) {
+			throw new RebuildCodeException("Invalid flag value");
 		}
+		
+		fieldValue = codes.subSequence(fieldEnds[CODE_INDEX_FIELD_VALUE - 1] + 1, fieldEnds[CODE_INDEX_FIELD_VALUE]).toString();
+		validValue = codes.subSequence(fieldEnds[CODE_INDEX_VALID_VALUE - 1] + 1, fieldEnds[CODE_INDEX_VALID_VALUE]).toString();
 	}
 	
 	public String getCode() {
-		StringBuffer result = new StringBuffer();
+		StringBuilder result = new StringBuilder();
+		appendCode(result);
+		return result.toString();
+	}
+	
+	/**
+	 * Write the rebuild code to a buffer
+	 * @param result The buffer
+	 */
+	public void appendCode(StringBuilder result) {
+		appendCode(result, messageClass, lineNumber, columns, flagValue, fieldValue, validValue);
+	}
+	
+	/**
+	 * Write a rebuild code to a buffer
+	 * @param result The buffer
+	 * @param messageClass The message class
+	 * @param lineNumber The line number
+	 * @param columns The columns
+	 * @param flagValue The flag value
+	 * @param fieldValue The field value
+	 * @param validValue The valid value
+	 */
+	private static void appendCode(StringBuilder result, Class<? extends Message> messageClass, int lineNumber,
+			ColumnSet columns, int flagValue, String fieldValue, String validValue) {
+		
 		result.append(messageClass.getName());
-		result.append('_');
+		result.append(FIELD_SEPARATOR);
 		result.append(lineNumber);
-		result.append('_');
-		
-		int indexCount = 0;
-		for (int columnIndex : columnIndices) {
-			indexCount++;
-			result.append(columnIndex);
-			if (indexCount < columnIndices.size()) {
-				result.append('|');
+		result.append(FIELD_SEPARATOR);
+		
+		for (int i = 0; i < columns.getIndexCount(); i++) {
+			if (i > 0) {
+				result.append(LIST_SEPARATOR);
 			}
+			result.append(columns.getIndex(i));
 		}
 		
-		result.append('_');
+		result.append(FIELD_SEPARATOR);
 
-		int nameCount = 0;
-		for (String columnName : columnNames) {
-			nameCount++;
-			result.append(columnName);
-			if (nameCount < columnNames.size()) {
-				result.append('|');
+		for (int i = 0; i < columns.getNameCount(); i++) {
+			if (i > 0) {
+				result.append(LIST_SEPARATOR);
 			}
+			result.append(columns.getName(i));
 		}
 		
-		result.append('_');
+		result.append(FIELD_SEPARATOR);
 		result.append(flagValue);
-		result.append('_');
+		result.append(FIELD_SEPARATOR);
 		result.append(fieldValue);
-		result.append('_');
+		result.append(FIELD_SEPARATOR);
 		result.append(validValue);
-		result.append(';');
-		
-		return result.toString();
+		result.append(CODE_SEPARATOR);
 	}
 	
 	public String toString() {
@@ -155,8 +200,7 @@ public class RebuildCode {
 	
 	public Message getMessage() throws MessageException {
 		try {
-			Constructor<?> messageConstructor = messageClass.getConstructor(int.class, TreeSet.class, TreeSet.class, Flag.class, String.class, String.class);
-			return (Message) messageConstructor.newInstance(lineNumber, columnIndices, columnNames, new Flag(flagValue), fieldValue, validValue);
+			return Message.createMessage(messageClass, lineNumber, columns.getIndexSet(), columns.getNameSet(), Flag.valueOf(flagValue), fieldValue, validValue);
 		} catch (Exception e) {
 			throw new MessageException("Error while constructing message object from rebuild code", e);
 		}
@@ -167,12 +211,23 @@ public class RebuildCode {
 		List<Message> messages = new ArrayList<Message>();
 
 		if (null != codes) {
-			String codeString = codes.trim();
-			if (codeString.length() > 0) {
-				String[] splitCodes = codeString.split(";");
-				for (int i = 0; i < splitCodes.length; i++) {
-					messages.add(new RebuildCode(splitCodes[i]).getMessage());
+			
+			// Trim the codes without copying them
+			int start = 0;
+			int end = codes.length();
+			while (start < end && codes.charAt(start) <= ' ') {
+				start++;
+			}
+			while (end > start && codes.charAt(end - 1) <= ' ') {
+				end--;
+			}
+
+			while (start < end) {
+				int codeEnd = indexOf(codes, CODE_SEPARATOR, start, end);
+				if (codeEnd > start) {
+					messages.add(new RebuildCode(codes, start, codeEnd).getMessage());
 				}
+				start = codeEnd + 1;
 			}
 		}
 		
@@ -180,11 +235,129 @@ public class RebuildCode {
 	}
 	
 	public static String getRebuildCodes(List<Message> messages) throws MessageException {
-		StringBuffer codes = new StringBuffer();
+		StringBuilder codes = new StringBuilder();
 		for (int i = 0; i < messages.size(); i++) {
-			codes.append(new RebuildCode(messages.get(i)).getCode());
+			Message message = messages.get(i);
+			Message.checkBasicConstructor(message.getClass());
+			appendCode(codes, message.getClass(), message.getLineNumber(), message.getColumns(),
+					message.getFlag().getFlagValue(), message.getFieldValue(), message.getValidValue());
 		}
 		
 		return codes.toString();
 	}
+	
+	/**
+	 * Find the message class named in part of a character sequence. Classes that
+	 * have already been seen are found without creating any objects.
+	 * @param codes The character sequence
+	 * @param start The start of the class name
+	 * @param end The end of the class name (exclusive)
+	 * @return The message class
+	 * @throws RebuildCodeException If the class does not exist or is not a message class
+	 */
+	@SuppressWarnings("unchecked")
+	private static Class<? extends Message> getMessageClass(CharSequence codes, int start, int end) throws RebuildCodeException {
+		
+		int length = end - start;
+		
+		Class<?>[] knownClasses = messageClasses;
+		for (Class<?> knownClass : knownClasses) {
+			String name = knownClass.getName();
+			if (name.length() == length && regionMatches(codes, start, name)) {
+				return (Class<? extends Message>) knownClass;
+			}
+		}
+		
+		String className = codes.subSequence(start, end).toString();
+		Class<?> foundClass;
+		try {
+			// Load the class without initialising it, so no code from a class
+			// named in the codes runs before it is known to be a message class
+			foundClass = Class.forName(className, false, Message.class.getClassLoader());
+		} catch (ClassNotFoundException e) {
+			throw new RebuildCodeException("Cannot find message class '" + className + "'");
+		}
+		
+		if (!Message.class.isAssignableFrom(foundClass)) {
+			throw new RebuildCodeException("Class '" + className + "' is not a message class");
+		}
+		
+		synchronized (RebuildCode.class) {
+			Class<?>[] updatedClasses = Arrays.copyOf(messageClasses, messageClasses.length + 1);
+			updatedClasses[messageClasses.length] = foundClass;
+			messageClasses = updatedClasses;
+		}
+		
+		return (Class<? extends Message>) foundClass;
+	}
+	
+	/**
+	 * Determine whether part of a character sequence matches a string
+	 * @param codes The character sequence
+	 * @param start The position in the sequence to start comparing
+	 * @param string The string
+	 * @return {@code true} if the characters match; {@code false} if they do not
+	 */
+	private static boolean regionMatches(CharSequence codes, int start, String string) {
+		boolean result = true;
+		for (int i = string.length() - 1; result && i >= 0; i--) {
+			if (codes.charAt(start + i) != string.charAt(i)) {
+				result = false;
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Find the next occurrence of a character in part of a character sequence
+	 * @param codes The character sequence
+	 * @param c The character
+	 * @param start The start of the search
+	 * @param end The end of the search (exclusive)
+	 * @return The position of the character, or {@code end} if it is not found
+	 */
+	private static int indexOf(CharSequence codes, char c, int start, int end) {
+		int result = start;
+		while (result < end && codes.charAt(result) != c) {
+			result++;
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Parse an integer from part of a character sequence
+	 * @param codes The character sequence
+	 * @param start The start of the integer
+	 * @param end The end of the integer (exclusive)
+	 * @param error The error message to use if the integer cannot be parsed
+	 * @return The integer
+	 * @throws RebuildCodeException If the integer cannot be parsed
+	 */
+	private static int parseInt(CharSequence codes, int start, int end, String error) throws RebuildCodeException {
+		
+		int pos = start;
+		boolean negative = false;
+		if (pos < end && (codes.charAt(pos) == '-' || codes.charAt(pos) == '+')) {
+			negative = (codes.charAt(pos) == '-');
+			pos++;
+		}
+		
+		// Integers longer than this could overflow
+		if (pos == end || end - pos > 9) {
+			throw new RebuildCodeException(error);
+		}
+		
+		int result = 0;
+		for (; pos < end; pos++) {
+			char c = codes.charAt(pos);
+			if (c < '0' || c > '9') {
+				throw new RebuildCodeException(error);
+			}
+			result = result * 10 + (c - '0');
+		}
+		
+		return (negative ? -result : result);
+	}
 }
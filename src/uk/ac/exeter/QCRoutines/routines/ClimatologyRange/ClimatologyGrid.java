@@ -0,0 +1,266 @@
+package uk.ac.exeter.QCRoutines.routines.ClimatologyRange;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.joda.time.Chronology;
+import org.joda.time.chrono.ISOChronology;
+
+import uk.ac.exeter.QCRoutines.data.DataRecord;
+
+/**
+ * A grid of climatological range limits, memory-mapped from a binary file.
+ *
+ * The file is big-endian, and starts with a 36 byte header:
+ * <pre>
+ *   int    Number of longitude cells
+ *   int    Number of latitude cells
+ *   int    Number of months: 1 for annual limits, or 12 for monthly limits
+ *   double Western edge of the grid (degrees)
+ *   double Southern edge of the grid (degrees)
+ *   double Size of each cell (degrees)
+ * </pre>
+ *
+ * The header is followed by four {@code float}s for each cell: the questionable
+ * minimum and maximum and the bad minimum and maximum. The cells are ordered by
+ * longitude, then latitude, then month. A value is never outside a {@link Float#NaN}
+ * limit, so cells with no climatology (such as land) can be filled with {@code NaN}.
+ *
+ * Longitudes are wrapped around the globe, so grids can start at either -180 or 0.
+ *
+ * Grids are loaded once for each file and shared between routines. Instances are
+ * safe to use from multiple threads.
+ */
+public class ClimatologyGrid {
+
+	/**
+	 * The size of the file header in bytes
+	 */
+	private static final int HEADER_SIZE = 36;
+
+	/**
+	 * The number of values stored for each cell
+	 */
+	private static final int VALUES_PER_CELL = 4;
+
+	/**
+	 * The size of each cell in bytes
+	 */
+	private static final int CELL_SIZE_BYTES = VALUES_PER_CELL * 4;
+
+	/**
+	 * The chronology used to find the month of a record
+	 */
+	private static final Chronology UTC = ISOChronology.getInstanceUTC();
+
+	/**
+	 * The grids that have been loaded, keyed by their canonical file paths
+	 */
+	private static Map<String, ClimatologyGrid> grids = new HashMap<String, ClimatologyGrid>();
+
+	/**
+	 * The mapped file contents
+	 */
+	private final MappedByteBuffer buffer;
+
+	/**
+	 * The number of longitude cells
+	 */
+	private final int lonCount;
+
+	/**
+	 * The number of latitude cells
+	 */
+	private final int latCount;
+
+	/**
+	 * Indicates whether the grid has separate limits for each month
+	 */
+	private final boolean monthly;
+
+	/**
+	 * The western edge of the grid
+	 */
+	private final double lonMin;
+
+	/**
+	 * The southern edge of the grid
+	 */
+	private final double latMin;
+
+	/**
+	 * The size of each cell in degrees
+	 */
+	private final double cellSize;
+
+	/**
+	 * Map and validate a grid file
+	 * @param file The grid file
+	 * @throws IOException If the file cannot be read or is not a valid grid
+	 */
+	private ClimatologyGrid(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long fileSize = channel.size();
+			if (fileSize < HEADER_SIZE) {
+				throw new IOException("Climatology file '" + file + "' is too short");
+			}
+			if (fileSize > Integer.MAX_VALUE) {
+				throw new IOException("Climatology file '" + file + "' is too large");
+			}
+
+			// The mapping remains valid after the channel is closed
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+		} finally {
+			raf.close();
+		}
+
+		lonCount = buffer.getInt(0);
+		latCount = buffer.getInt(4);
+		int monthCount = buffer.getInt(8);
+		lonMin = buffer.getDouble(12);
+		latMin = buffer.getDouble(20);
+		cellSize = buffer.getDouble(28);
+
+		if (lonCount <= 0 || latCount <= 0) {
+			throw new IOException("Climatology file '" + file + "' has an invalid grid size");
+		}
+		if (monthCount != 1 && monthCount != 12) {
+			throw new IOException("Climatology file '" + file + "' must have 1 or 12 months");
+		}
+		if (!(cellSize > 0) || Double.isNaN(lonMin) || Double.isNaN(latMin)) {
+			throw new IOException("Climatology file '" + file + "' has an invalid grid position");
+		}
+
+		long expectedSize = HEADER_SIZE + (long) lonCount * latCount * monthCount * CELL_SIZE_BYTES;
+		if (buffer.capacity() != expectedSize) {
+			throw new IOException("Climatology file '" + file + "' should be " + expectedSize + " bytes long");
+		}
+
+		monthly = (monthCount == 12);
+	}
+
+	/**
+	 * Returns the grid for a file, loading it if it has not already been loaded
+	 * @param filename The grid file
+	 * @return The grid
+	 * @throws IOException If the file cannot be read or is not a valid grid
+	 */
+	public static synchronized ClimatologyGrid getGrid(String filename) throws IOException {
+		File file = new File(filename).getCanonicalFile();
+		String key = file.getPath();
+
+		ClimatologyGrid result = grids.get(key);
+		if (null == result) {
+			result = new ClimatologyGrid(file);
+			grids.put(key, result);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Determines whether the grid has separate limits for each month
+	 * @return {@code true} if the limits are monthly; {@code false} if they are annual
+	 */
+	public boolean isMonthly() {
+		return monthly;
+	}
+
+	/**
+	 * Find the cell containing a position. For monthly grids the time
+	 * is used to select the month; otherwise it is ignored.
+	 * @param lon The longitude
+	 * @param lat The latitude
+	 * @param timeMillis The time in milliseconds since the epoch, or {@link DataRecord#NO_TIME}
+	 * @return The cell index, or {@code -1} if the position is outside the grid
+	 * or the grid is monthly and there is no time
+	 */
+	public int getCell(double lon, double lat, long timeMillis) {
+		int result = -1;
+
+		double lonOffset = (lon - lonMin) % 360.0;
+		if (lonOffset < 0) {
+			lonOffset += 360.0;
+		}
+
+		double latOffset = lat - latMin;
+
+		// Comparisons with NaN are false, so missing positions are outside the grid
+		if (latOffset >= 0 && lonOffset >= 0) {
+			int lonIndex = (int) (lonOffset / cellSize);
+			int latIndex = (int) (latOffset / cellSize);
+
+			// Include positions exactly on the northern edge
+			if (latIndex == latCount && latOffset == latCount * cellSize) {
+				latIndex--;
+			}
+
+			if (lonIndex < lonCount && latIndex < latCount) {
+				result = latIndex * lonCount + lonIndex;
+
+				if (monthly) {
+					if (DataRecord.NO_TIME == timeMillis) {
+						result = -1;
+					} else {
+						int month = UTC.monthOfYear().get(timeMillis) - 1;
+						result += month * lonCount * latCount;
+					}
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the questionable minimum for a cell
+	 * @param cell The cell index
+	 * @return The questionable minimum
+	 */
+	public float getQuestionableMin(int cell) {
+		return buffer.getFloat(getOffset(cell));
+	}
+
+	/**
+	 * Returns the questionable maximum for a cell
+	 * @param cell The cell index
+	 * @return The questionable maximum
+	 */
+	public float getQuestionableMax(int cell) {
+		return buffer.getFloat(getOffset(cell) + 4);
+	}
+
+	/**
+	 * Returns the bad minimum for a cell
+	 * @param cell The cell index
+	 * @return The bad minimum
+	 */
+	public float getBadMin(int cell) {
+		return buffer.getFloat(getOffset(cell) + 8);
+	}
+
+	/**
+	 * Returns the bad maximum for a cell
+	 * @param cell The cell index
+	 * @return The bad maximum
+	 */
+	public float getBadMax(int cell) {
+		return buffer.getFloat(getOffset(cell) + 12);
+	}
+
+	/**
+	 * Returns the position of a cell's values in the file
+	 * @param cell The cell index
+	 * @return The byte offset of the cell
+	 */
+	private int getOffset(int cell) {
+		return HEADER_SIZE + cell * CELL_SIZE_BYTES;
+	}
+}
@@ -0,0 +1,65 @@
+package uk.ac.exeter.QCRoutines.routines.ClimatologyRange;
+
+import java.util.TreeSet;
+
+import uk.ac.exeter.QCRoutines.data.DataColumn;
+import uk.ac.exeter.QCRoutines.messages.Flag;
+import uk.ac.exeter.QCRoutines.messages.Message;
+import uk.ac.exeter.QCRoutines.messages.MessageException;
+import uk.ac.exeter.QCRoutines.messages.MessageTemplate;
+
+/**
+ * Message for values outside the climatological range for their position
+ */
+public class ClimatologyRangeMessage extends Message {
+
+	private static final MessageTemplate FULL_MESSAGE = new MessageTemplate("{columns} value is {field}: should be in the climatological range {valid} for the position");
+
+	private static final MessageTemplate SHORT_MESSAGE = new MessageTemplate("{columns} is outside climatological range");
+
+	/**
+	 * The value that is out of range
+	 */
+	private double value;
+
+	/**
+	 * The minimum of the range
+	 */
+	private float rangeMin;
+
+	/**
+	 * The maximum of the range
+	 */
+	private float rangeMax;
+
+	public ClimatologyRangeMessage(int lineNumber, TreeSet<Integer> columnIndices, TreeSet<String> columnNames, Flag flag, String fieldValue, String validValue) {
+		super(lineNumber, columnIndices, columnNames, flag, fieldValue, validValue);
+	}
+
+	public ClimatologyRangeMessage(int lineNumber, DataColumn dataColumn, Flag flag, double fieldValue, float rangeMin, float rangeMax) throws MessageException {
+		super(lineNumber, dataColumn, flag);
+		this.value = fieldValue;
+		this.rangeMin = rangeMin;
+		this.rangeMax = rangeMax;
+	}
+
+	@Override
+	protected String formatFieldValue() {
+		return String.valueOf(value);
+	}
+
+	@Override
+	protected String formatValidValue() {
+		return rangeMin + " - " + rangeMax;
+	}
+
+	@Override
+	protected MessageTemplate getFullMessageTemplate() {
+		return FULL_MESSAGE;
+	}
+
+	@Override
+	protected MessageTemplate getShortMessageTemplate() {
+		return SHORT_MESSAGE;
+	}
+}
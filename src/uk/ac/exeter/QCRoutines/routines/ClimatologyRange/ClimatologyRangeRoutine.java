@@ -0,0 +1,165 @@
+package uk.ac.exeter.QCRoutines.routines.ClimatologyRange;
+
+import java.io.IOException;
+import java.util.List;
+
+import uk.ac.exeter.QCRoutines.config.ColumnConfig;
+import uk.ac.exeter.QCRoutines.config.ColumnConfigItem;
+import uk.ac.exeter.QCRoutines.data.ColumnarRecordSet;
+import uk.ac.exeter.QCRoutines.data.DataRecord;
+import uk.ac.exeter.QCRoutines.data.DataRecordException;
+import uk.ac.exeter.QCRoutines.data.NoSuchColumnException;
+import uk.ac.exeter.QCRoutines.messages.Flag;
+import uk.ac.exeter.QCRoutines.messages.MessageException;
+import uk.ac.exeter.QCRoutines.routines.RoutineException;
+import uk.ac.exeter.QCRoutines.routines.StreamingRoutine;
+
+/**
+ * QC Routine to check that a column's values are inside the climatological
+ * range for the record's position, and optionally its month. The ranges are
+ * read from a {@link ClimatologyGrid}.
+ * 
+ * Records whose position is outside the grid, or whose grid cell has no
+ * limits, are not checked.
+ */
+public class ClimatologyRangeRoutine extends StreamingRoutine {
+
+	/**
+	 * The name of the column to be checked
+	 */
+	private String columnName;
+	
+	/**
+	 * The index of the column to be checked
+	 */
+	private int columnIndex;
+	
+	/**
+	 * The climatology grid
+	 */
+	private ClimatologyGrid grid;
+	
+	@Override
+	public void initialise(List<String> parameters, ColumnConfig columnConfig) throws RoutineException {
+		if (parameters.size() != 2) {
+			throw new RoutineException("Incorrect number of parameters. Must be <columnName>,<climatologyFile>");
+		}
+		
+		columnName = parameters.get(0);
+		if (!columnConfig.hasColumn(columnName)) {
+			throw new RoutineException("Column '" + columnName + "' does not exist");
+		}
+		columnIndex = columnConfig.getColumnIndex(columnName);
+		
+		ColumnConfigItem column = columnConfig.getColumnConfig(columnName);
+		if (!column.isNumeric()) {
+			throw new RoutineException("Column '" + columnName + "' must be numeric");
+		}
+		
+		try {
+			grid = ClimatologyGrid.getGrid(parameters.get(1).trim());
+		} catch (IOException e) {
+			throw new RoutineException("Could not load climatology file '" + parameters.get(1).trim() + "'", e);
+		}
+	}
+	
+	/**
+	 * Check all the records. If the records are a view of a {@link ColumnarRecordSet}
+	 * the values and positions are read directly from the record set, and records
+	 * are only retrieved for values outside their ranges. Otherwise each record
+	 * is passed to {@link #accept(DataRecord)}.
+	 */
+	@Override
+	public void processRecords(List<DataRecord> records) throws RoutineException {
+		ColumnarRecordSet recordSet = ColumnarRecordSet.getRecordSet(records);
+		if (null == recordSet) {
+			super.processRecords(records);
+		} else {
+			try {
+				int count = recordSet.size();
+				double[] values = recordSet.getNumericColumn(columnIndex);
+				boolean monthly = grid.isMonthly();
+				
+				for (int row = 0; row < count; row++) {
+					double value = values[row];
+					if (!Double.isNaN(value)) {
+						long time = (monthly ? recordSet.getTimeMillis(row) : DataRecord.NO_TIME);
+						int cell = grid.getCell(recordSet.getLongitude(row), recordSet.getLatitude(row), time);
+						if (cell >= 0 && null != getFlag(cell, value)) {
+							DataRecord record = recordSet.getRecord(row);
+							addRangeMessage(record, cell, value);
+						}
+					}
+				}
+			} catch (NoSuchColumnException e) {
+				throw new RoutineException("Could not find column '" + columnName + "' in record", e);
+			} catch (DataRecordException e) {
+				throw new RoutineException("Error while checking record", e);
+			} catch (MessageException e) {
+				throw new RoutineException("Error while generating QC message", e);
+			}
+		}
+	}
+	
+	@Override
+	public void accept(DataRecord record) throws RoutineException {
+		try {
+			double value = record.getDoubleValue(columnIndex);
+			
+			if (!Double.isNaN(value)) {
+				long time = (grid.isMonthly() ? record.getTimeMillis() : DataRecord.NO_TIME);
+				int cell = grid.getCell(record.getCachedLongitude(), record.getCachedLatitude(), time);
+				if (cell >= 0) {
+					addRangeMessage(record, cell, value);
+				}
+			}
+		} catch (NoSuchColumnException e) {
+			throw new RoutineException("Could not find column '" + columnName + "' in record", e);
+		} catch (DataRecordException e) {
+			throw new RoutineException("Error while checking record", e);
+		} catch (MessageException e) {
+			throw new RoutineException("Error while generating QC message", e);
+		}
+	}
+	
+	@Override
+	public void flush() throws RoutineException {
+		// Each record is checked on its own, so there is nothing to do
+	}
+	
+	/**
+	 * Determine the flag for a value in a grid cell
+	 * @param cell The cell index
+	 * @param value The value
+	 * @return The flag, or {@code null} if the value is inside the cell's ranges
+	 */
+	private Flag getFlag(int cell, double value) {
+		Flag result = null;
+		
+		// Comparisons with NaN limits are always false, so missing limits are never exceeded
+		if (value < grid.getBadMin(cell) || value > grid.getBadMax(cell)) {
+			result = Flag.BAD;
+		} else if (value < grid.getQuestionableMin(cell) || value > grid.getQuestionableMax(cell)) {
+			result = Flag.QUESTIONABLE;
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Add a message to a record if its value is outside the ranges for its grid cell
+	 * @param record The record
+	 * @param cell The cell index
+	 * @param value The value
+	 * @throws DataRecordException If the message cannot be added to the record
+	 * @throws MessageException If the message cannot be created
+	 */
+	private void addRangeMessage(DataRecord record, int cell, double value) throws DataRecordException, MessageException {
+		Flag flag = getFlag(cell, value);
+		if (Flag.BAD.equals(flag)) {
+			addMessage(new ClimatologyRangeMessage(record.getLineNumber(), record.getColumn(columnIndex), Flag.BAD, value, grid.getBadMin(cell), grid.getBadMax(cell)), record);
+		} else if (Flag.QUESTIONABLE.equals(flag)) {
+			addMessage(new ClimatologyRangeMessage(record.getLineNumber(), record.getColumn(columnIndex), Flag.QUESTIONABLE, value, grid.getQuestionableMin(cell), grid.getQuestionableMax(cell)), record);
+		}
+	}
+}
@@ -6,25 +6,52 @@ import uk.ac.exeter.QCRoutines.data.DataColumn;
 import uk.ac.exeter.QCRoutines.messages.Flag;
 import uk.ac.exeter.QCRoutines.messages.Message;
 import uk.ac.exeter.QCRoutines.messages.MessageException;
+import uk.ac.exeter.QCRoutines.messages.MessageTemplate;
 
 public class ConstantValueMessage extends Message {
 
+	private static final MessageTemplate FULL_MESSAGE = new MessageTemplate("{columns} is constant for {field} minutes - limit is {valid} minutes");
+
+	private static final MessageTemplate SHORT_MESSAGE = new MessageTemplate("{columns} constant for too long");
+
+	/**
+	 * The time for which the value was constant
+	 */
+	private double constantTime;
+
+	/**
+	 * The maximum time for which the value may be constant
+	 */
+	private double maxConstantTime;
+
 	public ConstantValueMessage(int lineNumber, TreeSet<Integer> columnIndices, TreeSet<String> columnNames, Flag flag, String fieldValue, String validValue) {
 		super(lineNumber, columnIndices, columnNames, flag, fieldValue, validValue);
 	}
 
 	public ConstantValueMessage(int lineNumber, DataColumn dataColumn, double constantTime, double maxConstantTime) throws MessageException {
-		super(lineNumber, dataColumn, Flag.BAD, String.valueOf(constantTime), String.valueOf(constantTime));
+		super(lineNumber, dataColumn, Flag.BAD);
+		this.constantTime = constantTime;
+		this.maxConstantTime = maxConstantTime;
+	}
+
+	@Override
+	protected String formatFieldValue() {
+		return String.valueOf(constantTime);
+	}
+
+	@Override
+	protected String formatValidValue() {
+		return String.valueOf(maxConstantTime);
 	}
 
 	@Override
-	public String getFullMessage() {
-		return getColumnNamesAsString() + " is constant for " + fieldValue + " minutes - limit is " + validValue + " minutes";
+	protected MessageTemplate getFullMessageTemplate() {
+		return FULL_MESSAGE;
 	}
 
 	@Override
-	public String getShortMessage() {
-		return getColumnNamesAsString() + " constant for too long";
+	protected MessageTemplate getShortMessageTemplate() {
+		return SHORT_MESSAGE;
 	}
 
 }
@@ -3,15 +3,13 @@ package uk.ac.exeter.QCRoutines.routines.ConstantValue;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.joda.time.Seconds;
-
 import uk.ac.exeter.QCRoutines.config.ColumnConfig;
 import uk.ac.exeter.QCRoutines.config.ColumnConfigItem;
 import uk.ac.exeter.QCRoutines.data.DataRecord;
 import uk.ac.exeter.QCRoutines.data.DataRecordException;
 import uk.ac.exeter.QCRoutines.data.NoSuchColumnException;
 import uk.ac.exeter.QCRoutines.messages.MessageException;
-import uk.ac.exeter.QCRoutines.routines.Routine;
+import uk.ac.exeter.QCRoutines.routines.StreamingRoutine;
 import uk.ac.exeter.QCRoutines.routines.RoutineException;
 
 /**
@@ -24,18 +22,28 @@ import uk.ac.exeter.QCRoutines.routines.RoutineException;
  * @author zuj007
  *
  */
-public class ConstantValueRoutine extends Routine {
+public class ConstantValueRoutine extends StreamingRoutine {
 
 	/**
 	 * The name of the column to be checked
 	 */
 	private String columnName;
 	
+	/**
+	 * The index of the column to be checked
+	 */
+	private int columnIndex;
+	
 	/**
 	 * The maximum time that a value can remain constant (in minutes)
 	 */
 	private double maxDuration;
 	
+	/**
+	 * The records in the current run of constant values
+	 */
+	private List<DataRecord> recordCollection = new ArrayList<DataRecord>();
+	
 	@Override
 	public void initialise(List<String> parameters, ColumnConfig columnConfig) throws RoutineException {
 		if (parameters.size() != 2) {
@@ -46,6 +54,7 @@ public class ConstantValueRoutine extends Routine {
 		if (!columnConfig.hasColumn(columnName)) {
 			throw new RoutineException("Column '" + columnName + "' does not exist");
 		}
+		columnIndex = columnConfig.getColumnIndex(columnName);
 		
 		ColumnConfigItem column = columnConfig.getColumnConfig(columnName);
 		if (!column.isNumeric()) {
@@ -64,33 +73,39 @@ public class ConstantValueRoutine extends Routine {
 	}
 
 	@Override
-	public void processRecords(List<DataRecord> records) throws RoutineException {
-
-		List<DataRecord> recordCollection = new ArrayList<DataRecord>();
-		
-		
-		for (DataRecord record : records) {
-			// If there's no record stored, this is the first of a new constant value
-			if (recordCollection.size() == 0) {
+	public void accept(DataRecord record) throws RoutineException {
+		// If there's no record stored, this is the first of a new constant value
+		if (recordCollection.size() == 0) {
+			recordCollection.add(record);
+		} else {
+			if (equalsConstant(record, recordCollection.get(0))) {
+				// If it equals the value in the first record, then it's still a constant value
 				recordCollection.add(record);
 			} else {
-				if (equalsConstant(record, recordCollection.get(0))) {
-					// If it equals the value in the first record, then it's still a constant value
-					recordCollection.add(record);
-				} else {
-					// The value is no longer constant.
-					// See how long it was constant for
-					doDurationCheck(recordCollection);
+				// The value is no longer constant.
+				// See how long it was constant for
+				doDurationCheck(recordCollection);
 
-					// Clear the list of constant records and start again
-					recordCollection.clear();
-					recordCollection.add(record);
-				}
-				
+				// Clear the list of constant records and start again
+				recordCollection.clear();
+				recordCollection.add(record);
 			}
+			
 		}
 	}
 	
+	@Override
+	public void flush() throws RoutineException {
+		// Check the run of values that was in progress at the end of the data
+		doDurationCheck(recordCollection);
+		reset();
+	}
+	
+	@Override
+	public void reset() {
+		recordCollection.clear();
+	}
+	
 	/**
 	 * Determines whether or not the value in the passed record is identical to that
 	 * in the list of constant records. Null values always return a 'not constant' result.
@@ -103,18 +118,12 @@ public class ConstantValueRoutine extends Routine {
 		boolean result = false;
 		
 		try {
-			String firstRecordStringValue = firstRecord.getValue(columnName);
-			String recordStringValue = record.getValue(columnName);
+			double currentValue = firstRecord.getDoubleValue(columnIndex);
+			double recordValue = record.getDoubleValue(columnIndex);
 			
-			// Any null values are treated as not constant, so we skip the check
-			if (null != firstRecordStringValue && null != recordStringValue) {
-				double currentValue = Double.parseDouble(firstRecordStringValue);
-				double recordValue = Double.parseDouble(recordStringValue);
-				
-				result = (currentValue == recordValue);
-			}
-		} catch (NumberFormatException e) {
-			throw new RoutineException("Cannot compare non-numeric values", e);
+			// Null values are held as NaN, which never equals anything,
+			// so they are always treated as not constant
+			result = (currentValue == recordValue);
 		} catch (NoSuchColumnException e) {
 			throw new RoutineException("Could not find column '" + columnName + "' in record", e);
 		}
@@ -138,13 +147,15 @@ public class ConstantValueRoutine extends Routine {
 		if (constantRecords.size() > 2) {
 		
 			try {
-				double secondsDifference = Seconds.secondsBetween(constantRecords.get(0).getTime(), constantRecords.get(constantRecords.size() - 1).getTime()).getSeconds();
+				long firstTime = constantRecords.get(0).getTimeMillis();
+				long lastTime = constantRecords.get(constantRecords.size() - 1).getTimeMillis();
+				double secondsDifference = (lastTime - firstTime) / 1000;
 				double minutesDifference = secondsDifference / 60.0;
 				
 				
 				if (minutesDifference > maxDuration) {
 					for (DataRecord record : constantRecords) {
-						addMessage(new ConstantValueMessage(record.getLineNumber(), record.getColumn(columnName), minutesDifference, maxDuration), record);
+						addMessage(new ConstantValueMessage(record.getLineNumber(), record.getColumn(columnIndex), minutesDifference, maxDuration), record);
 					}
 				}
 			} catch (DataRecordException e) {
@@ -5,9 +5,14 @@ import java.util.TreeSet;
 import uk.ac.exeter.QCRoutines.messages.Flag;
 import uk.ac.exeter.QCRoutines.messages.Message;
 import uk.ac.exeter.QCRoutines.messages.MessageException;
+import uk.ac.exeter.QCRoutines.messages.MessageTemplate;
 
 public class DummyMessage extends Message {
 
+	private static final MessageTemplate FULL_MESSAGE = new MessageTemplate("This is a dummy message for column '{columns}' on line {line}");
+
+	private static final MessageTemplate SHORT_MESSAGE = new MessageTemplate("Dummy message");
+
 	public DummyMessage(int lineNumber, TreeSet<Integer> columnIndices, TreeSet<String> columnNames, Flag flag, String fieldValue, String validValue) {
 		super(lineNumber, columnIndices, columnNames, flag, fieldValue, validValue);
 	}
@@ -17,12 +22,12 @@ public class DummyMessage extends Message {
 	}
 
 	@Override
-	public String getFullMessage() {
-		return "This is a dummy message for column '" + getColumnNamesAsString() + "' on line " + lineNumber;
+	protected MessageTemplate getFullMessageTemplate() {
+		return FULL_MESSAGE;
 	}
 
 	@Override
-	public String getShortMessage() {
-		return "Dummy message";
+	protected MessageTemplate getShortMessageTemplate() {
+		return SHORT_MESSAGE;
 	}
 }
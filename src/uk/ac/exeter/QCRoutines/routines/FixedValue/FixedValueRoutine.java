@@ -9,16 +9,28 @@ import uk.ac.exeter.QCRoutines.data.DataRecordException;
 import uk.ac.exeter.QCRoutines.data.NoSuchColumnException;
 import uk.ac.exeter.QCRoutines.messages.Flag;
 import uk.ac.exeter.QCRoutines.messages.MessageException;
-import uk.ac.exeter.QCRoutines.routines.Routine;
+import uk.ac.exeter.QCRoutines.routines.StreamingRoutine;
 import uk.ac.exeter.QCRoutines.routines.RoutineException;
 import uk.ac.exeter.QCRoutines.util.RoutineUtils;
 
-public class FixedValueRoutine extends Routine {
+public class FixedValueRoutine extends StreamingRoutine {
 
 	private String columnName;
 	
+	private int columnIndex;
+	
 	private boolean ignoreMissing = false;
 	
+	/**
+	 * Indicates whether the fixed value has been found
+	 */
+	private boolean hasFirstValue = false;
+	
+	/**
+	 * The value that all records must match
+	 */
+	private String firstValue = null;
+	
 	@Override
 	public void initialise(List<String> parameters, ColumnConfig columnConfig) throws RoutineException {
 		if (parameters.size() != 2) {
@@ -29,6 +41,7 @@ public class FixedValueRoutine extends Routine {
 		if (!columnConfig.hasColumn(columnName)) {
 			throw new RoutineException("Column '" + columnName + "' does not exist");
 		}
+		columnIndex = columnConfig.getColumnIndex(columnName);
 
 		try {
 			ignoreMissing = RoutineUtils.parseBoolean(parameters.get(1));
@@ -39,45 +52,39 @@ public class FixedValueRoutine extends Routine {
 	}
 
 	@Override
-	public void processRecords(List<DataRecord> records) throws RoutineException {
+	public void accept(DataRecord record) throws RoutineException {
 		
 		try {
-			String firstValue = records.get(0).getValue(columnName);
-			int firstRecord = 0;
-			
-			
-			if (ignoreMissing) {
-				while (RoutineUtils.isEmpty(firstValue) && firstRecord < records.size()) {
-					firstRecord++;
-					firstValue = records.get(firstRecord).getValue(columnName);
-				}
-			}
-			
-			for (int recordIndex = firstRecord + 1; recordIndex < records.size(); recordIndex++) {
-				DataRecord record = records.get(recordIndex);
-				String recordValue = record.getValue(columnName);
+			// Missing values are skipped if required, without retrieving the value
+			if (!(ignoreMissing && record.isMissingValue(columnIndex))) {
+				String recordValue = record.getValue(columnIndex);
 				
-				if (!(ignoreMissing && RoutineUtils.isEmpty(recordValue))) {
-					if (!recordValue.equals(firstValue)) {
-						try {
-							addMessage(new ValueNotFixedMessage(record.getLineNumber(), record.getColumn(columnName), Flag.BAD, firstValue), record);
-						} catch (DataRecordException e) {
-							throw new RoutineException("Error while adding message", e);
-						} catch (MessageException e) {
-							throw new RoutineException("Error while generating QC message", e);
-						}
+				if (!hasFirstValue) {
+					firstValue = recordValue;
+					hasFirstValue = true;
+				} else if (null == recordValue ? null != firstValue : !recordValue.equals(firstValue)) {
+					try {
+						addMessage(new ValueNotFixedMessage(record.getLineNumber(), record.getColumn(columnIndex), Flag.BAD, firstValue), record);
+					} catch (DataRecordException e) {
+						throw new RoutineException("Error while adding message", e);
+					} catch (MessageException e) {
+						throw new RoutineException("Error while generating QC message", e);
 					}
 				}
 			}
-			
-			
-			
 		} catch (NoSuchColumnException e) {
 			throw new RoutineException("Could not find column '" + columnName + "' in record", e);
 		}
-		
-		
-		
 	}
-
+	
+	@Override
+	public void flush() throws RoutineException {
+		reset();
+	}
+	
+	@Override
+	public void reset() {
+		hasFirstValue = false;
+		firstValue = null;
+	}
 }
@@ -6,9 +6,14 @@ import uk.ac.exeter.QCRoutines.data.DataColumn;
 import uk.ac.exeter.QCRoutines.messages.Flag;
 import uk.ac.exeter.QCRoutines.messages.Message;
 import uk.ac.exeter.QCRoutines.messages.MessageException;
+import uk.ac.exeter.QCRoutines.messages.MessageTemplate;
 
 public class ValueNotFixedMessage extends Message {
 
+	private static final MessageTemplate FULL_MESSAGE = new MessageTemplate("{columns} value is '{field}' - should be fixed as '{valid}'");
+
+	private static final MessageTemplate SHORT_MESSAGE = new MessageTemplate("{columns} value should be fixed");
+
 	public ValueNotFixedMessage(int lineNumber, TreeSet<Integer> columnIndices, TreeSet<String> columnNames, Flag flag, String fieldValue, String validValue) {
 		super(lineNumber, columnIndices, columnNames, flag, fieldValue, validValue);
 	}
@@ -18,13 +23,13 @@ public class ValueNotFixedMessage extends Message {
 	}
 
 	@Override
-	public String getFullMessage() {
-		return getColumnNamesAsString() + " value is '" + fieldValue + "' - should be fixed as '" + validValue + "'";
+	protected MessageTemplate getFullMessageTemplate() {
+		return FULL_MESSAGE;
 	}
 
 	@Override
-	public String getShortMessage() {
-		return getColumnNamesAsString() + " value should be fixed";
+	protected MessageTemplate getShortMessageTemplate() {
+		return SHORT_MESSAGE;
 	}
 
 }
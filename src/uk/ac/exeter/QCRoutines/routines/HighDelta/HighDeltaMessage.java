@@ -6,25 +6,52 @@ import uk.ac.exeter.QCRoutines.data.DataColumn;
 import uk.ac.exeter.QCRoutines.messages.Flag;
 import uk.ac.exeter.QCRoutines.messages.Message;
 import uk.ac.exeter.QCRoutines.messages.MessageException;
+import uk.ac.exeter.QCRoutines.messages.MessageTemplate;
 
 public class HighDeltaMessage extends Message {
 
+	private static final MessageTemplate FULL_MESSAGE = new MessageTemplate("{columns} changed by {field} per minute - max is {valid} per minute");
+
+	private static final MessageTemplate SHORT_MESSAGE = new MessageTemplate("{columns} changes too quickly");
+
+	/**
+	 * The change per minute for this record
+	 */
+	private double recordDelta;
+
+	/**
+	 * The maximum allowed change per minute
+	 */
+	private double maxDelta;
+
 	public HighDeltaMessage(int lineNumber, TreeSet<Integer> columnIndices, TreeSet<String> columnNames, Flag flag, String fieldValue, String validValue) {
 		super(lineNumber, columnIndices, columnNames, flag, fieldValue, validValue);
 	}
 
 	public HighDeltaMessage(int lineNumber, DataColumn dataColumn, double recordDelta, double maxDelta) throws MessageException {
-		super(lineNumber, dataColumn, Flag.BAD, String.valueOf(recordDelta), String.valueOf(maxDelta));
+		super(lineNumber, dataColumn, Flag.BAD);
+		this.recordDelta = recordDelta;
+		this.maxDelta = maxDelta;
+	}
+
+	@Override
+	protected String formatFieldValue() {
+		return String.valueOf(recordDelta);
+	}
+
+	@Override
+	protected String formatValidValue() {
+		return String.valueOf(maxDelta);
 	}
 
 	@Override
-	public String getFullMessage() {
-		return getColumnNamesAsString() + " changed by " + fieldValue + " per minute - max is " + validValue + " per minute";
+	protected MessageTemplate getFullMessageTemplate() {
+		return FULL_MESSAGE;
 	}
 
 	@Override
-	public String getShortMessage() {
-		return getColumnNamesAsString() + " changes too quickly";
+	protected MessageTemplate getShortMessageTemplate() {
+		return SHORT_MESSAGE;
 	}
 
 }
@@ -2,26 +2,33 @@ package uk.ac.exeter.QCRoutines.routines.HighDelta;
 
 import java.util.List;
 
-import org.joda.time.DateTime;
-import org.joda.time.Seconds;
-
 import uk.ac.exeter.QCRoutines.config.ColumnConfig;
 import uk.ac.exeter.QCRoutines.config.ColumnConfigItem;
 import uk.ac.exeter.QCRoutines.data.DataRecord;
 import uk.ac.exeter.QCRoutines.data.DataRecordException;
 import uk.ac.exeter.QCRoutines.data.NoSuchColumnException;
 import uk.ac.exeter.QCRoutines.messages.MessageException;
-import uk.ac.exeter.QCRoutines.routines.Routine;
+import uk.ac.exeter.QCRoutines.routines.StreamingRoutine;
 import uk.ac.exeter.QCRoutines.routines.RoutineException;
 
-public class HighDeltaRoutine extends Routine {
-
-	private static final double NO_VALUE = -99999.9;
+public class HighDeltaRoutine extends StreamingRoutine {
 
 	private String columnName;
 	
+	private int columnIndex;
+	
 	private double maxDelta;
 	
+	/**
+	 * The last value seen in the column
+	 */
+	private double lastValue = Double.NaN;
+	
+	/**
+	 * The time of the last value seen in the column, in milliseconds
+	 */
+	private long lastTime = DataRecord.NO_TIME;
+	
 	@Override
 	public void initialise(List<String> parameters, ColumnConfig columnConfig) throws RoutineException {
 
@@ -33,6 +40,7 @@ public class HighDeltaRoutine extends Routine {
 		if (!columnConfig.hasColumn(columnName)) {
 			throw new RoutineException("Column '" + columnName + "' does not exist");
 		}
+		columnIndex = columnConfig.getColumnIndex(columnName);
 
 		ColumnConfigItem column = columnConfig.getColumnConfig(columnName);
 		if (!column.isNumeric()) {
@@ -51,53 +59,56 @@ public class HighDeltaRoutine extends Routine {
 	}
 
 	@Override
-	public void processRecords(List<DataRecord> records) throws RoutineException {
-		double lastValue = NO_VALUE;
-		DateTime lastTime = null;
-		
-		for (DataRecord record : records) {
-		
-			try {
-				if (lastValue == NO_VALUE) {
-					String lastValueString = record.getValue(columnName);
-					if (null != lastValueString) {
-						lastValue = Double.parseDouble(lastValueString);
-						lastTime = record.getTime();
-					}
-				} else {
-					
-					// Calculate the change between this record and the previous one
-					String thisStringValue = record.getValue(columnName);
-					if (null != thisStringValue) {
-						double thisValue = Double.parseDouble(thisStringValue);
-						DateTime thisTime = record.getTime();
-						
-						double minutesDifference = Seconds.secondsBetween(lastTime, thisTime).getSeconds() / 60.0;
-						double valueDelta = Math.abs(thisValue - lastValue);
-						
-						double deltaPerMinute = valueDelta / minutesDifference;
-						if (deltaPerMinute > maxDelta) {
-							try {
-								addMessage(new HighDeltaMessage(record.getLineNumber(), record.getColumn(columnName), deltaPerMinute, maxDelta), record);
-							} catch (DataRecordException e) {
-								throw new RoutineException ("Error while adding message", e);
-							}
-						}
+	public void accept(DataRecord record) throws RoutineException {
+		try {
+			// Missing values are held as NaN, and are skipped
+			if (Double.isNaN(lastValue)) {
+				lastValue = record.getDoubleValue(columnIndex);
+				if (!Double.isNaN(lastValue)) {
+					lastTime = record.getTimeMillis();
+				}
+			} else {
+				
+				// Calculate the change between this record and the previous one
+				double thisValue = record.getDoubleValue(columnIndex);
+				if (!Double.isNaN(thisValue)) {
+					long thisTime = record.getTimeMillis();
 					
+					// Whole seconds, as the time difference has always been measured
+					double minutesDifference = ((thisTime - lastTime) / 1000) / 60.0;
+					double valueDelta = Math.abs(thisValue - lastValue);
 					
-						lastValue = thisValue;
-						lastTime = thisTime;
+					double deltaPerMinute = valueDelta / minutesDifference;
+					if (deltaPerMinute > maxDelta) {
+						try {
+							addMessage(new HighDeltaMessage(record.getLineNumber(), record.getColumn(columnIndex), deltaPerMinute, maxDelta), record);
+						} catch (DataRecordException e) {
+							throw new RoutineException ("Error while adding message", e);
+						}
 					}
+				
+				
+					lastValue = thisValue;
+					lastTime = thisTime;
 				}
-			} catch (NumberFormatException e) {
-				throw new RoutineException("Cannot check non-numeric values", e);
-			} catch (NoSuchColumnException e) {
-				throw new RoutineException("Could not find column '" + columnName + "' in record", e);
-			} catch (DataRecordException e) {
-				throw new RoutineException("Error while retrieving data", e);
-			} catch (MessageException e) {
-				throw new RoutineException("Error while generating QC message", e);
 			}
+		} catch (NoSuchColumnException e) {
+			throw new RoutineException("Could not find column '" + columnName + "' in record", e);
+		} catch (DataRecordException e) {
+			throw new RoutineException("Error while retrieving data", e);
+		} catch (MessageException e) {
+			throw new RoutineException("Error while generating QC message", e);
 		}
 	}
+	
+	@Override
+	public void flush() throws RoutineException {
+		reset();
+	}
+	
+	@Override
+	public void reset() {
+		lastValue = Double.NaN;
+		lastTime = DataRecord.NO_TIME;
+	}
 }
@@ -6,25 +6,52 @@ import uk.ac.exeter.QCRoutines.data.DataColumn;
 import uk.ac.exeter.QCRoutines.messages.Flag;
 import uk.ac.exeter.QCRoutines.messages.Message;
 import uk.ac.exeter.QCRoutines.messages.MessageException;
+import uk.ac.exeter.QCRoutines.messages.MessageTemplate;
 
 public class OutlierMessage extends Message {
 
+	private static final MessageTemplate FULL_MESSAGE = new MessageTemplate("{columns} standard deviation is {field} - limit is {valid}");
+
+	private static final MessageTemplate SHORT_MESSAGE = new MessageTemplate("{columns} standard deviation is too large");
+
+	/**
+	 * The number of standard deviations for this record
+	 */
+	private double recordStdev;
+
+	/**
+	 * The standard deviation limit
+	 */
+	private double stdevLimit;
+
 	public OutlierMessage(int lineNumber, TreeSet<Integer> columnIndices, TreeSet<String> columnNames, Flag flag, String fieldValue, String validValue) {
 		super(lineNumber, columnIndices, columnNames, flag, fieldValue, validValue);
 	}
 
 	public OutlierMessage(int lineNumber, DataColumn dataColumn, double recordStdev, double stdevLimit) throws MessageException {
-		super(lineNumber, dataColumn, Flag.BAD, String.valueOf(recordStdev), String.valueOf(stdevLimit));
+		super(lineNumber, dataColumn, Flag.BAD);
+		this.recordStdev = recordStdev;
+		this.stdevLimit = stdevLimit;
+	}
+
+	@Override
+	protected String formatFieldValue() {
+		return String.valueOf(recordStdev);
+	}
+
+	@Override
+	protected String formatValidValue() {
+		return String.valueOf(stdevLimit);
 	}
 
 	@Override
-	public String getFullMessage() {
-		return getColumnNamesAsString() + " standard deviation is " + fieldValue + " - limit is " + validValue;
+	protected MessageTemplate getFullMessageTemplate() {
+		return FULL_MESSAGE;
 	}
 
 	@Override
-	public String getShortMessage() {
-		return getColumnNamesAsString() + " standard deviation is too large";
+	protected MessageTemplate getShortMessageTemplate() {
+		return SHORT_MESSAGE;
 	}
 
 }
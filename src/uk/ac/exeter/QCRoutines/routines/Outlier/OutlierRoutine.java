@@ -1,5 +1,6 @@
 package uk.ac.exeter.QCRoutines.routines.Outlier;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -11,23 +12,72 @@ import uk.ac.exeter.QCRoutines.data.NoSuchColumnException;
 import uk.ac.exeter.QCRoutines.messages.MessageException;
 import uk.ac.exeter.QCRoutines.routines.Routine;
 import uk.ac.exeter.QCRoutines.routines.RoutineException;
+import uk.ac.exeter.QCRoutines.util.IndexableSkipList;
 
+/**
+ * QC Routine to find values that are too far from the other values in a column.
+ * 
+ * With two parameters, the mean and standard deviation of the whole data set
+ * are used. With a third parameter, giving a window length in minutes, each value
+ * is instead compared with the median of the values in a window centred on the
+ * record's time. The spread is measured by the median absolute deviation (MAD),
+ * scaled by {@link #MAD_SCALE} so that it estimates the standard deviation
+ * of normally distributed values. Values are not checked when the MAD is zero.
+ * 
+ * The windowed mode works in a single pass over the records, and only keeps the
+ * records in the current window. It ignores records without a time, and restarts
+ * the window if the time goes backwards.
+ */
 public class OutlierRoutine extends Routine {
 
+	/**
+	 * The factor that converts the MAD to an estimate of the standard deviation
+	 */
+	private static final double MAD_SCALE = 1.4826;
+	
 	String columnName;
 	
+	int columnIndex;
+	
 	double stdevLimit;
 	
+	/**
+	 * Indicates whether the rolling median/MAD mode is being used
+	 */
+	private boolean windowed = false;
+	
+	/**
+	 * Half of the window length in milliseconds
+	 */
+	private long halfWindow;
+	
+	/**
+	 * The sorted values in the current window
+	 */
+	private IndexableSkipList windowValues = new IndexableSkipList();
+	
+	/**
+	 * The entries in the current window, in time order
+	 */
+	private ArrayDeque<WindowEntry> window = new ArrayDeque<WindowEntry>();
+	
+	/**
+	 * The entries that have not yet been checked, in time order.
+	 * These are always the newest entries in {@link #window}.
+	 */
+	private ArrayDeque<WindowEntry> pending = new ArrayDeque<WindowEntry>();
+	
 	@Override
 	public void initialise(List<String> parameters, ColumnConfig columnConfig) throws RoutineException {
-		if (parameters.size() != 2) {
-			throw new RoutineException("Incorrect number of parameters. Must be <columnName>,<stdevLimit>");
+		if (parameters.size() != 2 && parameters.size() != 3) {
+			throw new RoutineException("Incorrect number of parameters. Must be <columnName>,<stdevLimit>[,<windowMinutes>]");
 		}
 		
 		columnName = parameters.get(0);
 		if (!columnConfig.hasColumn(columnName)) {
 			throw new RoutineException("Column '" + columnName + "' does not exist");
 		}
+		columnIndex = columnConfig.getColumnIndex(columnName);
 		
 		ColumnConfigItem column = columnConfig.getColumnConfig(columnName);
 		if (!column.isNumeric()) {
@@ -44,10 +94,217 @@ public class OutlierRoutine extends Routine {
 			throw new RoutineException("Standard deviation limit must be greater than zero");
 		}
 		
+		if (parameters.size() == 3) {
+			double windowMinutes;
+			try {
+				windowMinutes = Double.parseDouble(parameters.get(2));
+			} catch (NumberFormatException e) {
+				throw new RoutineException("Window length parameter must be numeric");
+			}
+			
+			if (!(windowMinutes > 0)) {
+				throw new RoutineException("Window length must be greater than zero");
+			}
+			
+			windowed = true;
+			halfWindow = (long) (windowMinutes * 30000.0);
+		}
 	}
 
 	@Override
 	public void processRecords(List<DataRecord> records) throws RoutineException {
+		if (windowed) {
+			boolean complete = false;
+			
+			try {
+				for (DataRecord record : records) {
+					accept(record);
+				}
+				flush();
+				complete = true;
+			} finally {
+				if (!complete) {
+					reset();
+				}
+			}
+		} else {
+			checkGlobal(records);
+		}
+	}
+	
+	@Override
+	public void accept(DataRecord record) throws RoutineException {
+		if (!windowed) {
+			super.accept(record);
+		} else {
+			try {
+				double value = record.getDoubleValue(columnIndex);
+				long time = record.getTimeMillis();
+				
+				if (!Double.isNaN(value) && DataRecord.NO_TIME != time) {
+					
+					if (!window.isEmpty() && time < window.peekLast().time) {
+						// Time has gone backwards, so start again
+						checkPending(Long.MAX_VALUE);
+						clearWindow();
+					}
+					
+					// Check the records whose windows end before this record
+					checkPending(time);
+					
+					WindowEntry entry = new WindowEntry(record, time, value);
+					window.addLast(entry);
+					pending.addLast(entry);
+					windowValues.add(value);
+				}
+			} catch (NoSuchColumnException e) {
+				throw new RoutineException("Could not find column '" + columnName + "' in record", e);
+			} catch (DataRecordException e) {
+				throw new RoutineException("Error while getting record time", e);
+			}
+		}
+	}
+	
+	@Override
+	public void flush() throws RoutineException {
+		if (!windowed) {
+			super.flush();
+		} else {
+			checkPending(Long.MAX_VALUE);
+			clearWindow();
+		}
+	}
+	
+	/**
+	 * Check the pending entries whose windows end before a time. The window
+	 * must contain all the values up to that time.
+	 * @param time The time
+	 * @throws RoutineException If a message cannot be added
+	 */
+	private void checkPending(long time) throws RoutineException {
+		while (!pending.isEmpty() && pending.peekFirst().time + halfWindow < time) {
+			WindowEntry entry = pending.removeFirst();
+			
+			// Remove the values before the start of this entry's window
+			while (window.peekFirst().time < entry.time - halfWindow) {
+				windowValues.remove(window.removeFirst().value);
+			}
+			
+			checkWindowed(entry);
+		}
+	}
+	
+	/**
+	 * Check an entry against the median and MAD of the current window
+	 * @param entry The entry
+	 * @throws RoutineException If a message cannot be added
+	 */
+	private void checkWindowed(WindowEntry entry) throws RoutineException {
+		int count = windowValues.size();
+		double median = (windowValues.get((count - 1) / 2) + windowValues.get(count / 2)) / 2.0;
+		
+		// The deviations from the median form two sorted sequences: the values below
+		// the median in descending order, and the remaining values in ascending order
+		int split = windowValues.rank(median);
+		double mad = (selectDeviation(median, split, (count - 1) / 2) + selectDeviation(median, split, count / 2)) / 2.0;
+		
+		if (mad > 0) {
+			double robustStdev = MAD_SCALE * mad;
+			double deviations = Math.abs(entry.value - median) / robustStdev;
+			
+			if (deviations > stdevLimit) {
+				try {
+					DataRecord record = entry.record;
+					addMessage(new OutlierMessage(record.getLineNumber(), record.getColumn(columnIndex), deviations, stdevLimit), record);
+				} catch (DataRecordException e) {
+					throw new RoutineException ("Error while adding message", e);
+				} catch (MessageException e) {
+					throw new RoutineException("Error while generating QC message", e);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Find the k-th smallest absolute deviation from the median in the current window,
+	 * by binary searching the two sorted sequences of deviations
+	 * @param median The median
+	 * @param split The number of values below the median
+	 * @param k The 0-based position of the deviation
+	 * @return The deviation
+	 */
+	private double selectDeviation(double median, int split, int k) {
+		int belowCount = split;
+		int aboveCount = windowValues.size() - split;
+		
+		// Find how many of the k + 1 smallest deviations come from below the median
+		int low = Math.max(0, k + 1 - aboveCount);
+		int high = Math.min(k + 1, belowCount);
+		while (low < high) {
+			int fromBelow = (low + high) >>> 1;
+			int fromAbove = k + 1 - fromBelow;
+			if (belowDeviation(median, split, fromBelow) < aboveDeviation(median, split, fromAbove - 1)) {
+				low = fromBelow + 1;
+			} else {
+				high = fromBelow;
+			}
+		}
+		
+		int fromAbove = k + 1 - low;
+		double result = 0.0;
+		if (low > 0) {
+			result = belowDeviation(median, split, low - 1);
+		}
+		if (fromAbove > 0) {
+			result = Math.max(result, aboveDeviation(median, split, fromAbove - 1));
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Returns the i-th smallest deviation of the values below the median
+	 * @param median The median
+	 * @param split The number of values below the median
+	 * @param i The 0-based position
+	 * @return The deviation
+	 */
+	private double belowDeviation(double median, int split, int i) {
+		return median - windowValues.get(split - 1 - i);
+	}
+	
+	/**
+	 * Returns the i-th smallest deviation of the values at or above the median
+	 * @param median The median
+	 * @param split The number of values below the median
+	 * @param i The 0-based position
+	 * @return The deviation
+	 */
+	private double aboveDeviation(double median, int split, int i) {
+		return windowValues.get(split + i) - median;
+	}
+	
+	@Override
+	public void reset() {
+		super.reset();
+		clearWindow();
+	}
+	
+	/**
+	 * Remove all entries from the window
+	 */
+	private void clearWindow() {
+		window.clear();
+		pending.clear();
+		windowValues.clear();
+	}
+	
+	/**
+	 * Check the records against the mean and standard deviation of the whole data set
+	 * @param records The records
+	 * @throws RoutineException If the records cannot be checked
+	 */
+	private void checkGlobal(List<DataRecord> records) throws RoutineException {
 		
 		int valueCount = 0;
 		List<RecordValue> recordValues = new ArrayList<RecordValue>();
@@ -56,24 +313,19 @@ public class OutlierRoutine extends Routine {
 		
 		for (DataRecord record : records) {
 			try {
-				String valueString = record.getValue(columnName);
-				if (null != valueString) {
-					double value = Double.parseDouble(valueString);
-					if (!Double.isNaN(value)) {
-						valueCount++;
-						recordValues.add(new RecordValue(record, value));
-						
-						if (valueCount == 1) {
-							mean = value;
-						} else {
-							double d = value - mean;
-							stdev += (valueCount - 1)*d*d/valueCount;
-							mean += d/valueCount;
-						}
+				double value = record.getDoubleValue(columnIndex);
+				if (!Double.isNaN(value)) {
+					valueCount++;
+					recordValues.add(new RecordValue(record, value));
+					
+					if (valueCount == 1) {
+						mean = value;
+					} else {
+						double d = value - mean;
+						stdev += (valueCount - 1)*d*d/valueCount;
+						mean += d/valueCount;
 					}
 				}
-			} catch(NumberFormatException e) {
-				throw new RoutineException("All record values must be numeric", e);
 			} catch (NoSuchColumnException e) {
 				throw new RoutineException("Could not find column '" + columnName + "' in record", e);
 			}
@@ -89,7 +341,7 @@ public class OutlierRoutine extends Routine {
 			if (diffFromMean > (stdev * stdevLimit)) {
 				try {
 					DataRecord record = recordValue.record;
-					addMessage(new OutlierMessage(record.getLineNumber(), record.getColumn(columnName), stdev, stdevLimit), record);
+					addMessage(new OutlierMessage(record.getLineNumber(), record.getColumn(columnIndex), stdev, stdevLimit), record);
 				} catch (DataRecordException e) {
 					throw new RoutineException ("Error while adding message", e);
 				} catch (MessageException e) {
@@ -100,6 +352,21 @@ public class OutlierRoutine extends Routine {
 
 	}
 	
+	/**
+	 * A record in the rolling window, with its time and column value
+	 */
+	private static class WindowEntry {
+		private DataRecord record;
+		private long time;
+		private double value;
+		
+		private WindowEntry(DataRecord record, long time, double value) {
+			this.record = record;
+			this.time = time;
+			this.value = value;
+		}
+	}
+	
 	/**
 	 * A simple object to store each record and its column value, to simplify
 	 * checking after the mean and stdev have been calculated.
@@ -0,0 +1,72 @@
+package uk.ac.exeter.QCRoutines.routines.RangeCheck;
+
+/**
+ * Finds the values in a numeric column that lie outside a range.
+ *
+ * The results are returned as bit masks, with one bit per value packed
+ * into {@code long} words in the same layout as {@link java.util.BitSet#toLongArray()}.
+ * Each word is filled from a block of 64 values in a plain loop over the
+ * array, so the records themselves only need to be visited for the values
+ * that are outside the range.
+ *
+ * {@link Double#NaN} values are never outside a range, so {@code null}
+ * values are never reported.
+ */
+final class RangeCheckKernel {
+
+	/**
+	 * The number of values held in each word of a bit mask
+	 */
+	static final int BITS_PER_WORD = 64;
+
+	/**
+	 * This class only has static methods
+	 */
+	private RangeCheckKernel() {
+	}
+
+	/**
+	 * Returns the number of words needed for a bit mask
+	 * @param count The number of values
+	 * @return The number of words
+	 */
+	static int getWordCount(int count) {
+		return (count + BITS_PER_WORD - 1) / BITS_PER_WORD;
+	}
+
+	/**
+	 * Set the bits for all values that are less than {@code min} or greater than {@code max}.
+	 * Bits for values inside the range are cleared.
+	 * @param values The values
+	 * @param count The number of values to check
+	 * @param min The minimum of the range
+	 * @param max The maximum of the range
+	 * @param hits The bit mask, which must have at least {@link #getWordCount(int)} words
+	 */
+	static void findOutsideRange(double[] values, int count, double min, double max, long[] hits) {
+		int fullWords = count / BITS_PER_WORD;
+
+		for (int word = 0; word < fullWords; word++) {
+			int offset = word * BITS_PER_WORD;
+			long bits = 0L;
+			for (int i = 0; i < BITS_PER_WORD; i++) {
+				double value = values[offset + i];
+				long outside = (value < min | value > max) ? 1L : 0L;
+				bits |= outside << i;
+			}
+			hits[word] = bits;
+		}
+
+		// The last, partly filled word
+		if (fullWords * BITS_PER_WORD < count) {
+			int offset = fullWords * BITS_PER_WORD;
+			long bits = 0L;
+			for (int i = 0; offset + i < count; i++) {
+				double value = values[offset + i];
+				long outside = (value < min | value > max) ? 1L : 0L;
+				bits |= outside << i;
+			}
+			hits[fullWords] = bits;
+		}
+	}
+}
@@ -6,24 +6,57 @@ import uk.ac.exeter.QCRoutines.data.DataColumn;
 import uk.ac.exeter.QCRoutines.messages.Flag;
 import uk.ac.exeter.QCRoutines.messages.Message;
 import uk.ac.exeter.QCRoutines.messages.MessageException;
+import uk.ac.exeter.QCRoutines.messages.MessageTemplate;
 
 public class RangeCheckMessage extends Message {
 
+	private static final MessageTemplate FULL_MESSAGE = new MessageTemplate("{columns} value is {field}: should be in the range {valid}");
+
+	private static final MessageTemplate SHORT_MESSAGE = new MessageTemplate("{columns} is out of range");
+
+	/**
+	 * The value that is out of range
+	 */
+	private double value;
+
+	/**
+	 * The minimum of the range
+	 */
+	private double rangeMin;
+
+	/**
+	 * The maximum of the range
+	 */
+	private double rangeMax;
+
 	public RangeCheckMessage(int lineNumber, TreeSet<Integer> columnIndices, TreeSet<String> columnNames, Flag flag, String fieldValue, String validValue) {
 		super(lineNumber, columnIndices, columnNames, flag, fieldValue, validValue);
 	}
 
 	public RangeCheckMessage(int lineNumber, DataColumn dataColumn, Flag flag, double fieldValue, double rangeMin, double rangeMax) throws MessageException {
-		super(lineNumber, dataColumn, flag, String.valueOf(fieldValue), rangeMin + " - " + rangeMax);
+		super(lineNumber, dataColumn, flag);
+		this.value = fieldValue;
+		this.rangeMin = rangeMin;
+		this.rangeMax = rangeMax;
+	}
+
+	@Override
+	protected String formatFieldValue() {
+		return String.valueOf(value);
+	}
+
+	@Override
+	protected String formatValidValue() {
+		return rangeMin + " - " + rangeMax;
 	}
 
 	@Override
-	public String getFullMessage() {
-		return getColumnNamesAsString() + " value is " + fieldValue + ": should be in the range " + validValue;
+	protected MessageTemplate getFullMessageTemplate() {
+		return FULL_MESSAGE;
 	}
 
 	@Override
-	public String getShortMessage() {
-		return getColumnNamesAsString() + " is out of range";
+	protected MessageTemplate getShortMessageTemplate() {
+		return SHORT_MESSAGE;
 	}
 }
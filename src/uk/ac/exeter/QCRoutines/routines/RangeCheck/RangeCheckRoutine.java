@@ -4,17 +4,20 @@ import java.util.List;
 
 import uk.ac.exeter.QCRoutines.config.ColumnConfig;
 import uk.ac.exeter.QCRoutines.config.ColumnConfigItem;
+import uk.ac.exeter.QCRoutines.data.ColumnarRecordSet;
 import uk.ac.exeter.QCRoutines.data.DataRecord;
 import uk.ac.exeter.QCRoutines.data.DataRecordException;
 import uk.ac.exeter.QCRoutines.data.NoSuchColumnException;
 import uk.ac.exeter.QCRoutines.messages.Flag;
 import uk.ac.exeter.QCRoutines.messages.MessageException;
-import uk.ac.exeter.QCRoutines.routines.Routine;
+import uk.ac.exeter.QCRoutines.routines.StreamingRoutine;
 import uk.ac.exeter.QCRoutines.routines.RoutineException;
 
-public class RangeCheckRoutine extends Routine {
+public class RangeCheckRoutine extends StreamingRoutine {
 
 	String columnName;
+	
+	int columnIndex;
 
 	double questionableMin = 0.0;
 	
@@ -38,6 +41,7 @@ public class RangeCheckRoutine extends Routine {
 		if (!columnConfig.hasColumn(columnName)) {
 			throw new RoutineException("Column '" + columnName + "' does not exist");
 		}
+		columnIndex = columnConfig.getColumnIndex(columnName);
 		
 		ColumnConfigItem column = columnConfig.getColumnConfig(columnName);
 		if (!column.isNumeric()) {
@@ -71,25 +75,48 @@ public class RangeCheckRoutine extends Routine {
 		}
 	}
 
+	/**
+	 * Check all the records. If the records are a view of a {@link ColumnarRecordSet}
+	 * the whole column is checked at once by {@link RangeCheckKernel}, and records
+	 * are only retrieved for values outside the ranges. Otherwise each record
+	 * is passed to {@link #accept(DataRecord)}.
+	 */
 	@Override
 	public void processRecords(List<DataRecord> records) throws RoutineException {
+		ColumnarRecordSet recordSet = ColumnarRecordSet.getRecordSet(records);
+		if (null == recordSet) {
+			super.processRecords(records);
+		} else {
+			int count = recordSet.size();
+			double[] values = recordSet.getNumericColumn(columnIndex);
+
+			long[] badHits = new long[RangeCheckKernel.getWordCount(count)];
+			if (hasBadRange) {
+				RangeCheckKernel.findOutsideRange(values, count, badMin, badMax, badHits);
+			}
+
+			long[] questionableHits = new long[badHits.length];
+			if (hasQuestionableRange) {
+				RangeCheckKernel.findOutsideRange(values, count, questionableMin, questionableMax, questionableHits);
+			}
 
-		for (DataRecord record : records) {
 			try {
-				String valueString = record.getValue(columnName);
-				
-				if (null != valueString) {
-					double value = Double.parseDouble(valueString);
-					if (!Double.isNaN(value)) {
-						if (hasBadRange && (value < badMin || value > badMax)) {
-							addMessage(new RangeCheckMessage(record.getLineNumber(), record.getColumn(columnName), Flag.BAD, value, badMin, badMax), record);
-						} else if (hasQuestionableRange && (value < questionableMin || value > questionableMax)) {
-							addMessage(new RangeCheckMessage(record.getLineNumber(), record.getColumn(columnName), Flag.QUESTIONABLE, value, questionableMin, questionableMax), record);
+				for (int word = 0; word < badHits.length; word++) {
+					long hits = badHits[word] | questionableHits[word];
+					while (hits != 0) {
+						int bit = Long.numberOfTrailingZeros(hits);
+						long mask = 1L << bit;
+						hits &= ~mask;
+
+						DataRecord record = recordSet.getRecord(word * RangeCheckKernel.BITS_PER_WORD + bit);
+						double value = values[word * RangeCheckKernel.BITS_PER_WORD + bit];
+						if ((badHits[word] & mask) != 0) {
+							addMessage(new RangeCheckMessage(record.getLineNumber(), record.getColumn(columnIndex), Flag.BAD, value, badMin, badMax), record);
+						} else {
+							addMessage(new RangeCheckMessage(record.getLineNumber(), record.getColumn(columnIndex), Flag.QUESTIONABLE, value, questionableMin, questionableMax), record);
 						}
 					}
 				}
-			} catch(NumberFormatException e) {
-				throw new RoutineException("All record values must be numeric", e);
 			} catch (NoSuchColumnException e) {
 				throw new RoutineException("Could not find column '" + columnName + "' in record", e);
 			} catch (DataRecordException e) {
@@ -99,4 +126,30 @@ public class RangeCheckRoutine extends Routine {
 			}
 		}
 	}
+
+	@Override
+	public void accept(DataRecord record) throws RoutineException {
+		try {
+			double value = record.getDoubleValue(columnIndex);
+			
+			if (!Double.isNaN(value)) {
+				if (hasBadRange && (value < badMin || value > badMax)) {
+					addMessage(new RangeCheckMessage(record.getLineNumber(), record.getColumn(columnIndex), Flag.BAD, value, badMin, badMax), record);
+				} else if (hasQuestionableRange && (value < questionableMin || value > questionableMax)) {
+					addMessage(new RangeCheckMessage(record.getLineNumber(), record.getColumn(columnIndex), Flag.QUESTIONABLE, value, questionableMin, questionableMax), record);
+				}
+			}
+		} catch (NoSuchColumnException e) {
+			throw new RoutineException("Could not find column '" + columnName + "' in record", e);
+		} catch (DataRecordException e) {
+			throw new RoutineException ("Error while adding message", e);
+		} catch (MessageException e) {
+			throw new RoutineException("Error while generating QC message", e);
+		}
+	}
+	
+	@Override
+	public void flush() throws RoutineException {
+		// Each record is checked on its own, so there is nothing to do
+	}
 }
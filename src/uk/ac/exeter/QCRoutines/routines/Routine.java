@@ -20,6 +20,18 @@ public abstract class Routine {
 	 */
 	protected List<Message> messages;
 	
+	/**
+	 * Messages that have not yet been added to their records.
+	 * This is {@code null} unless record updates are being deferred.
+	 */
+	private List<DeferredMessage> deferredMessages = null;
+	
+	/**
+	 * The records passed to {@link #accept(DataRecord)} that are waiting
+	 * to be processed
+	 */
+	private List<DataRecord> acceptedRecords = null;
+	
 	/**
 	 * Base constructor - initialises message list
 	 */
@@ -43,6 +55,49 @@ public abstract class Routine {
 	 */
 	public abstract void processRecords(List<DataRecord> records) throws RoutineException;
 	
+	/**
+	 * Passes a single record to the routine. This allows records to be checked
+	 * as they arrive, instead of collecting the complete data set and calling
+	 * {@link #processRecords(List)}. Records must be passed in order, and
+	 * {@link #flush()} must be called after the last record.
+	 * 
+	 * By default the records are held until {@link #flush()} is called, and are then
+	 * passed to {@link #processRecords(List)}. Routines that only need a limited amount
+	 * of state to check each record should extend {@link StreamingRoutine} instead.
+	 * 
+	 * @param record The record
+	 * @throws RoutineException If the record cannot be checked
+	 */
+	public void accept(DataRecord record) throws RoutineException {
+		if (null == acceptedRecords) {
+			acceptedRecords = new ArrayList<DataRecord>();
+		}
+		
+		acceptedRecords.add(record);
+	}
+	
+	/**
+	 * Completes the checks for all records passed to {@link #accept(DataRecord)}.
+	 * After this the routine is ready to accept the records from a new data set.
+	 * @throws RoutineException If the records cannot be checked
+	 */
+	public void flush() throws RoutineException {
+		if (null != acceptedRecords) {
+			List<DataRecord> records = acceptedRecords;
+			acceptedRecords = null;
+			processRecords(records);
+		}
+	}
+	
+	/**
+	 * Discards any records or state held from the records passed to {@link #accept(DataRecord)},
+	 * without checking them. This is used when a check fails part way through a data set,
+	 * so that the routine is ready to accept the records from a new data set.
+	 */
+	public void reset() {
+		acceptedRecords = null;
+	}
+	
 	/**
 	 * Returns the list of messages generated by this checker
 	 * @return The list of messages generated by this checker
@@ -53,6 +108,77 @@ public abstract class Routine {
 	
 	public void addMessage(Message message, DataRecord record) throws DataRecordException {
 		messages.add(message);
-		record.addMessage(message);
+		if (null != deferredMessages) {
+			deferredMessages.add(new DeferredMessage(message, record));
+		} else {
+			record.addMessage(message);
+		}
+	}
+	
+	/**
+	 * Hold back all messages added from now on, instead of adding them
+	 * to their records immediately. This allows the routine to run
+	 * alongside other routines without updating the same records.
+	 * The messages are added to their records by {@link #applyDeferredMessages()}.
+	 */
+	void deferRecordUpdates() {
+		deferredMessages = new ArrayList<DeferredMessage>();
+	}
+	
+	/**
+	 * Check that all deferred messages can be added to their records,
+	 * without changing the records
+	 * @throws DataRecordException If a message refers to a column that its record does not have
+	 */
+	void checkDeferredMessages() throws DataRecordException {
+		if (null != deferredMessages) {
+			for (DeferredMessage deferred : deferredMessages) {
+				deferred.record.checkMessageColumns(deferred.message);
+			}
+		}
+	}
+	
+	/**
+	 * Add all deferred messages to their records, in the order in which
+	 * they were generated, and stop deferring messages.
+	 * @throws DataRecordException If a message cannot be added to its record
+	 */
+	void applyDeferredMessages() throws DataRecordException {
+		if (null != deferredMessages) {
+			List<DeferredMessage> toApply = deferredMessages;
+			deferredMessages = null;
+			
+			for (DeferredMessage deferred : toApply) {
+				deferred.record.addMessage(deferred.message);
+			}
+		}
+	}
+	
+	/**
+	 * Discard all deferred messages without adding them to their records
+	 */
+	void discardDeferredMessages() {
+		deferredMessages = null;
+	}
+	
+	/**
+	 * A message that is waiting to be added to its record
+	 */
+	private static class DeferredMessage {
+		
+		/**
+		 * The message
+		 */
+		private Message message;
+		
+		/**
+		 * The record that the message belongs to
+		 */
+		private DataRecord record;
+		
+		private DeferredMessage(Message message, DataRecord record) {
+			this.message = message;
+			this.record = record;
+		}
 	}
 }
@@ -0,0 +1,241 @@
+package uk.ac.exeter.QCRoutines.routines;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import uk.ac.exeter.QCRoutines.data.DataRecord;
+import uk.ac.exeter.QCRoutines.data.DataRecordException;
+import uk.ac.exeter.QCRoutines.messages.Message;
+
+/**
+ * Runs a set of routines, such as those from
+ * {@link uk.ac.exeter.QCRoutines.config.RoutinesConfig#getRoutines()},
+ * over a set of records.
+ * 
+ * The routines can be run one after another, or concurrently. When they are
+ * run concurrently each routine holds its messages back until all the routines
+ * have finished, and the messages are then added to the records in routine order.
+ * The records therefore end up with exactly the same messages and flags
+ * whichever way the routines are run.
+ */
+public class RoutineRunner {
+
+	/**
+	 * The routines to be run
+	 */
+	private List<Routine> routines;
+	
+	/**
+	 * Create a runner for a set of routines
+	 * @param routines The routines
+	 */
+	public RoutineRunner(List<Routine> routines) {
+		this.routines = routines;
+	}
+	
+	/**
+	 * Run each routine in turn over the records
+	 * @param records The records
+	 * @throws RoutineException If any routine fails
+	 */
+	public void run(List<DataRecord> records) throws RoutineException {
+		for (Routine routine : routines) {
+			routine.processRecords(records);
+		}
+	}
+	
+	/**
+	 * Run the routines concurrently over the records, using a thread pool
+	 * with one thread per routine up to the number of available processors.
+	 * @param records The records
+	 * @throws RoutineException If any routine fails
+	 */
+	public void runParallel(List<DataRecord> records) throws RoutineException {
+		int threads = Math.max(1, Math.min(routines.size(), Runtime.getRuntime().availableProcessors()));
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			runParallel(records, executor);
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	/**
+	 * Run the routines concurrently over the records using the supplied executor.
+	 * The routines must not read the flags or messages of the records, since
+	 * these are only updated once all the routines have finished.
+	 * 
+	 * If any routines fail, the messages from the routines before the first
+	 * failed routine are still added to the records, as they would be if the
+	 * routines were run in turn. A routine with a message that cannot be added
+	 * to its record is treated as failed, and none of its messages are added.
+	 * 
+	 * @param records The records
+	 * @param executor The executor
+	 * @throws RoutineException If any routine fails
+	 */
+	public void runParallel(final List<DataRecord> records, ExecutorService executor) throws RoutineException {
+		
+		List<Future<Void>> results = new ArrayList<Future<Void>>(routines.size());
+		
+		for (final Routine routine : routines) {
+			routine.deferRecordUpdates();
+			results.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws RoutineException {
+					routine.processRecords(records);
+					return null;
+				}
+			}));
+		}
+		
+		// Wait for every routine, and find the first one that failed
+		RoutineException failure = null;
+		int failedRoutine = routines.size();
+		
+		for (int i = 0; i < routines.size(); i++) {
+			try {
+				results.get(i).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				if (null == failure) {
+					failure = new RoutineException("Interrupted while waiting for routines", e);
+					failedRoutine = i;
+				}
+			} catch (ExecutionException e) {
+				if (null == failure) {
+					if (e.getCause() instanceof RoutineException) {
+						failure = (RoutineException) e.getCause();
+					} else {
+						failure = new RoutineException("Error while running routine", e.getCause());
+					}
+					failedRoutine = i;
+				}
+			}
+		}
+		
+		// A routine whose messages cannot all be added counts as failed,
+		// so no routine's messages are only partly added
+		for (int i = 0; i < failedRoutine; i++) {
+			try {
+				routines.get(i).checkDeferredMessages();
+			} catch (DataRecordException e) {
+				failure = new RoutineException("Error while adding message", e);
+				failedRoutine = i;
+			}
+		}
+		
+		// Apply the messages in routine order
+		for (int i = 0; i < routines.size(); i++) {
+			Routine routine = routines.get(i);
+			if (i < failedRoutine) {
+				try {
+					routine.applyDeferredMessages();
+				} catch (DataRecordException e) {
+					throw new RoutineException("Error while adding message", e);
+				}
+			} else {
+				routine.discardDeferredMessages();
+			}
+		}
+		
+		if (null != failure) {
+			throw failure;
+		}
+	}
+	
+	/**
+	 * Run the routines over the records in a single pass. Each record is passed
+	 * to every {@link StreamingRoutine} in turn before moving on to the next record,
+	 * so the records are only read once however many routines there are.
+	 * Any other routines are then run over the records one after another.
+	 *
+	 * As with {@link #runParallel(List, ExecutorService)}, the routines must not read
+	 * the flags or messages of the records. The messages are held back until all the
+	 * routines have finished, and are then added to the records in routine order, so
+	 * the records end up with exactly the same messages and flags as they would with
+	 * {@link #run(List)}. If any routine fails, or any message refers to a column
+	 * that its record does not have, no messages are added to the records
+	 * and every routine is {@link Routine#reset()}, so no state is carried over to
+	 * the next data set.
+	 *
+	 * @param records The records
+	 * @throws RoutineException If any routine fails
+	 */
+	public void runFused(List<DataRecord> records) throws RoutineException {
+
+		List<StreamingRoutine> streamingRoutines = new ArrayList<StreamingRoutine>(routines.size());
+		List<Routine> otherRoutines = new ArrayList<Routine>();
+
+		for (Routine routine : routines) {
+			routine.deferRecordUpdates();
+			if (routine instanceof StreamingRoutine) {
+				streamingRoutines.add((StreamingRoutine) routine);
+			} else {
+				otherRoutines.add(routine);
+			}
+		}
+
+		// An array avoids creating an iterator for every record
+		StreamingRoutine[] fused = streamingRoutines.toArray(new StreamingRoutine[streamingRoutines.size()]);
+
+		boolean complete = false;
+
+		try {
+			if (fused.length > 0) {
+				for (DataRecord record : records) {
+					for (int i = 0; i < fused.length; i++) {
+						fused[i].accept(record);
+					}
+				}
+
+				for (int i = 0; i < fused.length; i++) {
+					fused[i].flush();
+				}
+			}
+
+			for (Routine routine : otherRoutines) {
+				routine.processRecords(records);
+			}
+
+			// Check every message before adding any, so a failure
+			// cannot leave the records partly updated
+			for (Routine routine : routines) {
+				routine.checkDeferredMessages();
+			}
+
+			for (Routine routine : routines) {
+				routine.applyDeferredMessages();
+			}
+
+			complete = true;
+		} catch (DataRecordException e) {
+			throw new RoutineException("Error while adding message", e);
+		} finally {
+			if (!complete) {
+				for (Routine routine : routines) {
+					routine.discardDeferredMessages();
+					routine.reset();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns all the messages generated by the routines, in routine order
+	 * @return The messages
+	 */
+	public List<Message> getMessages() {
+		List<Message> result = new ArrayList<Message>();
+		for (Routine routine : routines) {
+			result.addAll(routine.getMessages());
+		}
+		
+		return result;
+	}
+}
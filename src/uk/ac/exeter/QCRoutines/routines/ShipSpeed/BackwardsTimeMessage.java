@@ -6,25 +6,30 @@ import uk.ac.exeter.QCRoutines.data.DataRecord;
 import uk.ac.exeter.QCRoutines.data.NoSuchColumnException;
 import uk.ac.exeter.QCRoutines.messages.Flag;
 import uk.ac.exeter.QCRoutines.messages.Message;
+import uk.ac.exeter.QCRoutines.messages.MessageTemplate;
 
 public class BackwardsTimeMessage extends Message {
 
+	private static final MessageTemplate FULL_MESSAGE = new MessageTemplate("This record is either at the same time as or before the previous record");
+
+	private static final MessageTemplate SHORT_MESSAGE = new MessageTemplate("Record time goes backwards");
+
 	public BackwardsTimeMessage(int lineNumber, TreeSet<Integer> columnIndices, TreeSet<String> columnNames, Flag flag, String fieldValue, String validValue) {
 		super(lineNumber, columnIndices, columnNames, flag, fieldValue, validValue);
 	}
 
 	public BackwardsTimeMessage(DataRecord record) throws NoSuchColumnException {
-		super(record.getLineNumber(), record.getDateTimeColumns(), record.getColumnNames(record.getDateTimeColumns()), Flag.BAD, null, null);
+		super(record.getLineNumber(), record.getColumnSet(record.getDateTimeColumns()), Flag.BAD, null, null);
 	}
 
 	@Override
-	public String getFullMessage() {
-		return "This record is either at the same time as or before the previous record";
+	protected MessageTemplate getFullMessageTemplate() {
+		return FULL_MESSAGE;
 	}
 
 	@Override
-	public String getShortMessage() {
-		return "Record time goes backwards";
+	protected MessageTemplate getShortMessageTemplate() {
+		return SHORT_MESSAGE;
 	}
 
 }
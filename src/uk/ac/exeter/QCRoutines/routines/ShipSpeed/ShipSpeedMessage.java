@@ -4,42 +4,72 @@ import java.util.TreeSet;
 
 import uk.ac.exeter.QCRoutines.data.DataRecord;
 import uk.ac.exeter.QCRoutines.data.NoSuchColumnException;
+import uk.ac.exeter.QCRoutines.messages.ColumnSet;
 import uk.ac.exeter.QCRoutines.messages.Flag;
 import uk.ac.exeter.QCRoutines.messages.Message;
+import uk.ac.exeter.QCRoutines.messages.MessageTemplate;
 
 public class ShipSpeedMessage extends Message {
 
+	private static final MessageTemplate FULL_MESSAGE = new MessageTemplate("Ship speed between this measurement and the last is too high. Was {field}km/h, threshold is {valid}km/h");
+
+	private static final MessageTemplate SHORT_MESSAGE = new MessageTemplate("Ship speed too high");
+
+	/**
+	 * The ship speed
+	 */
+	private double speed;
+
+	/**
+	 * The speed limit that has been exceeded
+	 */
+	private double speedLimit;
+
 	public ShipSpeedMessage(int lineNumber, TreeSet<Integer> columnIndices, TreeSet<String> columnNames, Flag flag, String fieldValue, String validValue) {
 		super(lineNumber, columnIndices, columnNames, flag, fieldValue, validValue);
 	}
 
 	public ShipSpeedMessage(DataRecord record, Flag flag, String fieldValue, String validValue) throws NoSuchColumnException {
-		super(record.getLineNumber(), getShipSpeedColumnIndices(record), record.getColumnNames(getShipSpeedColumnIndices(record)), flag, fieldValue, validValue);
+		super(record.getLineNumber(), getShipSpeedColumns(record), flag, fieldValue, validValue);
+	}
+
+	public ShipSpeedMessage(DataRecord record, Flag flag, double speed, double speedLimit) throws NoSuchColumnException {
+		super(record.getLineNumber(), getShipSpeedColumns(record), flag);
+		this.speed = speed;
+		this.speedLimit = speedLimit;
+	}
+
+	@Override
+	protected String formatFieldValue() {
+		return String.valueOf(speed);
+	}
+
+	@Override
+	protected String formatValidValue() {
+		return String.valueOf(speedLimit);
 	}
 
 	@Override
-	public String getFullMessage() {
-		StringBuffer message = new StringBuffer();
-		message.append("Ship speed between this measurement and the last is too high. Was ");
-		message.append(fieldValue);
-		message.append("km/h, threshold is ");
-		message.append(validValue);
-		message.append("km/h");
-		
-		return message.toString();
+	protected MessageTemplate getFullMessageTemplate() {
+		return FULL_MESSAGE;
 	}
 
 	@Override
-	public String getShortMessage() {
-		return "Ship speed too high";
+	protected MessageTemplate getShortMessageTemplate() {
+		return SHORT_MESSAGE;
 	}
 	
-	private static TreeSet<Integer> getShipSpeedColumnIndices(DataRecord record) {
-		@SuppressWarnings("unchecked")
-		TreeSet<Integer> columnIndices = (TreeSet<Integer>) record.getDateTimeColumns().clone();
-		columnIndices.add(record.getLongitudeColumn());
-		columnIndices.add(record.getLatitudeColumn());
-		return columnIndices;
+	private static ColumnSet getShipSpeedColumns(DataRecord record) throws NoSuchColumnException {
+		TreeSet<Integer> dateTimeColumns = record.getDateTimeColumns();
+		int[] columnIndices = new int[dateTimeColumns.size() + 2];
+		int i = 0;
+		for (int columnIndex : dateTimeColumns) {
+			columnIndices[i] = columnIndex;
+			i++;
+		}
+		columnIndices[i] = record.getLongitudeColumn();
+		columnIndices[i + 1] = record.getLatitudeColumn();
+		return record.getColumnSet(columnIndices);
 	}
 
 }
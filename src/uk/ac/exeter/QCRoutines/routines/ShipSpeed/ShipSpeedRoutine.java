@@ -2,26 +2,51 @@ package uk.ac.exeter.QCRoutines.routines.ShipSpeed;
 
 import java.util.List;
 
-import org.joda.time.DateTime;
-
 import uk.ac.exeter.QCRoutines.config.ColumnConfig;
+import uk.ac.exeter.QCRoutines.data.ColumnarRecordSet;
 import uk.ac.exeter.QCRoutines.data.DataRecord;
 import uk.ac.exeter.QCRoutines.data.DataRecordException;
 import uk.ac.exeter.QCRoutines.messages.Flag;
-import uk.ac.exeter.QCRoutines.routines.Routine;
+import uk.ac.exeter.QCRoutines.routines.StreamingRoutine;
 import uk.ac.exeter.QCRoutines.routines.RoutineException;
 
-public class ShipSpeedRoutine extends Routine {
+public class ShipSpeedRoutine extends StreamingRoutine {
 
 	/**
-	 * The radius of the earth in kilometres
+	 * Returned by {@link #checkPoint(double, double, long)} when a point needs no message
+	 */
+	private static final double SPEED_OK = Double.NaN;
+	
+	/**
+	 * Returned by {@link #checkPoint(double, double, long)} when time goes backwards
 	 */
-	private static final double EARTH_RADIUS = 6367.5;
+	private static final double BACKWARDS_TIME = Double.NEGATIVE_INFINITY;
 	
 	private double badSpeedLimit = 0;
 	
 	private double questionableSpeedLimit = 0;
 	
+	/**
+	 * Indicates whether a previous record has been seen
+	 */
+	private boolean hasLastRecord = false;
+	
+	/**
+	 * The position of the previous record, as a unit vector
+	 * @see TrackKernel#toUnitVector(double, double, double[])
+	 */
+	private double[] lastPosition = new double[3];
+	
+	/**
+	 * The position of the current record, as a unit vector
+	 */
+	private double[] thisPosition = new double[3];
+	
+	/**
+	 * The time of the previous record in milliseconds
+	 */
+	private long lastTime = DataRecord.NO_TIME;
+	
 	@Override
 	public void initialise(List<String> parameters, ColumnConfig columnConfig) throws RoutineException {
 		if (parameters.size() < 2) {
@@ -40,101 +65,144 @@ public class ShipSpeedRoutine extends Routine {
 			throw new RoutineException("Bad speed limit must be >= Questionable speed limit"); 
 		}
 	}
-
+	
+	/**
+	 * Check all the records. If the records are a view of a {@link ColumnarRecordSet}
+	 * the positions and times are read directly from the record set, and records
+	 * are only retrieved when a message is needed. Otherwise each record
+	 * is passed to {@link #accept(DataRecord)}.
+	 */
 	@Override
 	public void processRecords(List<DataRecord> records) throws RoutineException {
-		
-		try {
-			DataRecord lastRecord = null;
+		ColumnarRecordSet recordSet = ColumnarRecordSet.getRecordSet(records);
+		if (null == recordSet) {
+			super.processRecords(records);
+		} else {
+			boolean complete = false;
 			
-			for (DataRecord currentRecord : records) {
-				if (null != lastRecord) {
-					double lastLon = lastRecord.getLongitude();
-					double lastLat = lastRecord.getLatitude();
-					DateTime lastTime = lastRecord.getTime();
-					
-					double thisLon = currentRecord.getLongitude();
-					double thisLat = currentRecord.getLatitude();
-					DateTime thisTime = currentRecord.getTime();
-					
-					if (null != lastTime && null != thisTime) {
-					
-						double distance = calcDistance(lastLon, lastLat, thisLon, thisLat);
-						double hourDiff = calcHourDiff(lastTime, thisTime);
-						
-						if (hourDiff <= 0.0) {
-							addMessage(new BackwardsTimeMessage(currentRecord), currentRecord);
-						} else if (calcSecondsDiff(lastTime, thisTime) > 1) {
-							double speed = distance / hourDiff;
-							if (speed > badSpeedLimit) {
-								addMessage(new ShipSpeedMessage(currentRecord, Flag.BAD, String.valueOf(speed), String.valueOf(badSpeedLimit)), currentRecord);
-							} else if (speed > questionableSpeedLimit) {
-								addMessage(new ShipSpeedMessage(currentRecord, Flag.QUESTIONABLE, String.valueOf(speed), String.valueOf(questionableSpeedLimit)), currentRecord);
-							}
-						}
+			try {
+				int count = recordSet.size();
+				for (int row = 0; row < count; row++) {
+					double speed = checkPoint(recordSet.getLongitude(row), recordSet.getLatitude(row), recordSet.getTimeMillis(row));
+					if (!Double.isNaN(speed)) {
+						addSpeedMessage(recordSet.getRecord(row), speed);
 					}
 				}
 				
-				lastRecord = currentRecord;
+				flush();
+				complete = true;
+			} catch (DataRecordException e) {
+				throw new RoutineException("Error while setting record message", e);
+			} finally {
+				if (!complete) {
+					reset();
+				}
+			}
+		}
+	}
+
+	@Override
+	public void accept(DataRecord currentRecord) throws RoutineException {
+		
+		try {
+			double speed = checkPoint(currentRecord.getCachedLongitude(), currentRecord.getCachedLatitude(), currentRecord.getTimeMillis());
+			if (!Double.isNaN(speed)) {
+				addSpeedMessage(currentRecord, speed);
 			}
 		} catch (DataRecordException e) {
 			throw new RoutineException("Error while setting record message", e);
 		}
 		
 	}
-
+	
+	@Override
+	public void flush() throws RoutineException {
+		reset();
+	}
+	
+	@Override
+	public void reset() {
+		hasLastRecord = false;
+		lastTime = DataRecord.NO_TIME;
+	}
+	
 	/**
-	 * Calculate the distance between two points in kilometres
-	 * @param lon1 The longitude of the first point
-	 * @param lat1 The latitude of the first point
-	 * @param lon2 The longitude of the second point
-	 * @param lat2 The latitude of the second point
-	 * @return The distance between the two points
+	 * Check the speed between the previous point and this one, and make this
+	 * the previous point for the next check.
+	 * @param thisLon The longitude
+	 * @param thisLat The latitude
+	 * @param thisTime The time in milliseconds
+	 * @return The speed if it exceeds the questionable limit, {@link #BACKWARDS_TIME}
+	 * if the time is not after the previous time, or {@link #SPEED_OK} otherwise
 	 */
-	private double calcDistance(double lon1, double lat1, double lon2, double lat2) {
+	private double checkPoint(double thisLon, double thisLat, long thisTime) {
+		double result = SPEED_OK;
 		
-		double lon1Rad = calcRadians(lon1);
-		double lat1Rad = calcRadians(lat1);
-		double lon2Rad = calcRadians(lon2);
-		double lat2Rad = calcRadians(lat2);
+		TrackKernel.toUnitVector(thisLon, thisLat, thisPosition);
 		
-		double deltaLon = lon2Rad - lon1Rad;
-		double deltaLat = lat2Rad - lat2Rad;
+		if (hasLastRecord && DataRecord.NO_TIME != lastTime && DataRecord.NO_TIME != thisTime) {
+			
+			double hourDiff = calcHourDiff(lastTime, thisTime);
+			
+			if (hourDiff <= 0.0) {
+				result = BACKWARDS_TIME;
+			} else if (calcSecondsDiff(lastTime, thisTime) > 1) {
+				double chordSquared = TrackKernel.chordSquared(lastPosition, thisPosition);
+				
+				// Most points are well within the limit, so avoid calculating their exact distance
+				if (TrackKernel.mayExceed(chordSquared, questionableSpeedLimit * hourDiff)) {
+					double speed = TrackKernel.distance(chordSquared) / hourDiff;
+					if (speed > questionableSpeedLimit) {
+						result = speed;
+					}
+				}
+			}
+		}
 		
-		double a = Math.pow(Math.sin(deltaLat / 2), 2) + Math.cos(lat1Rad) * Math.cos(lat2Rad) * Math.pow(Math.sin(deltaLon / 2), 2);
-		double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+		hasLastRecord = true;
+		double[] swap = lastPosition;
+		lastPosition = thisPosition;
+		thisPosition = swap;
+		lastTime = thisTime;
 		
-		return c * EARTH_RADIUS;
+		return result;
 	}
 	
 	/**
-	 * Convert degrees to radians
-	 * @param degrees The degrees value to be converted
-	 * @return The radians value
+	 * Add the message for the result of {@link #checkPoint(double, double, long)} to a record
+	 * @param record The record
+	 * @param speed The result of the check
+	 * @throws DataRecordException If the message cannot be added
 	 */
-	private double calcRadians(double degrees) {
-		return degrees * (Math.PI / 180);
+	private void addSpeedMessage(DataRecord record, double speed) throws DataRecordException {
+		if (speed == BACKWARDS_TIME) {
+			addMessage(new BackwardsTimeMessage(record), record);
+		} else if (speed > badSpeedLimit) {
+			addMessage(new ShipSpeedMessage(record, Flag.BAD, speed, badSpeedLimit), record);
+		} else {
+			addMessage(new ShipSpeedMessage(record, Flag.QUESTIONABLE, speed, questionableSpeedLimit), record);
+		}
 	}
 	
 	/**
 	 * Calculate the difference between two times in hours
-	 * @param time1 The first time
-	 * @param time2 The second time
+	 * @param time1 The first time in milliseconds
+	 * @param time2 The second time in milliseconds
 	 * @return The difference between the two times
 	 */
-	private double calcHourDiff(DateTime time1, DateTime time2) {
-		long difference = time2.getMillis() - time1.getMillis();
+	private double calcHourDiff(long time1, long time2) {
+		long difference = time2 - time1;
 		return (double) difference / 3600000.0;
 	}
 	
 	/**
 	 * Calculate the difference between two times in seconds
-	 * @param time1 The first time
-	 * @param time2 The second time
+	 * @param time1 The first time in milliseconds
+	 * @param time2 The second time in milliseconds
 	 * @return The difference between the two times
 	 */
-	private double calcSecondsDiff(DateTime time1, DateTime time2) {
-		long difference = time2.getMillis() - time1.getMillis();
+	private double calcSecondsDiff(long time1, long time2) {
+		long difference = time2 - time1;
 		return (double) difference / 1000.0;
 	}
 }
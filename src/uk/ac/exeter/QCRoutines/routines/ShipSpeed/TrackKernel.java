@@ -0,0 +1,87 @@
+package uk.ac.exeter.QCRoutines.routines.ShipSpeed;
+
+/**
+ * Great circle calculations for consecutive points on a track.
+ *
+ * Each point is converted once to a unit vector on the sphere. The straight
+ * line (chord) between two vectors then needs no further trigonometry, and the
+ * great circle distance is {@code 2R asin(c/2)} for a chord of length {@code c}.
+ * This is the same distance as the haversine formula, and is just as accurate
+ * for the very short distances between points on high frequency tracks.
+ *
+ * Since {@code asin(x) <= x / sqrt(1 - x^2)}, the distance is never more than
+ * {@code Rc / sqrt(1 - c^2/4)}. {@link #mayExceed(double, double)} uses this
+ * bound to reject most pairs of points without calculating the exact distance.
+ */
+final class TrackKernel {
+
+	/**
+	 * The radius of the earth in kilometres
+	 */
+	static final double EARTH_RADIUS = 6367.5;
+
+	/**
+	 * The factor for converting degrees to radians
+	 */
+	private static final double RADIANS_PER_DEGREE = Math.PI / 180.0;
+
+	/**
+	 * This class only has static methods
+	 */
+	private TrackKernel() {
+	}
+
+	/**
+	 * Convert a position to a unit vector
+	 * @param lon The longitude in degrees
+	 * @param lat The latitude in degrees
+	 * @param vector The array to hold the x, y and z components of the vector
+	 */
+	static void toUnitVector(double lon, double lat, double[] vector) {
+		double lonRad = lon * RADIANS_PER_DEGREE;
+		double latRad = lat * RADIANS_PER_DEGREE;
+		double cosLat = Math.cos(latRad);
+
+		vector[0] = cosLat * Math.cos(lonRad);
+		vector[1] = cosLat * Math.sin(lonRad);
+		vector[2] = Math.sin(latRad);
+	}
+
+	/**
+	 * Calculate the square of the chord length between two unit vectors
+	 * @param vector1 The first vector
+	 * @param vector2 The second vector
+	 * @return The squared chord length
+	 */
+	static double chordSquared(double[] vector1, double[] vector2) {
+		double dx = vector2[0] - vector1[0];
+		double dy = vector2[1] - vector1[1];
+		double dz = vector2[2] - vector1[2];
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * Determines whether the distance for a chord could be greater than a limit.
+	 * This is a conservative test: if it returns {@code false}, the distance
+	 * is definitely no greater than the limit.
+	 * @param chordSquared The squared chord length
+	 * @param limit The distance limit in kilometres
+	 * @return {@code true} if the distance may exceed the limit; {@code false} if it cannot
+	 */
+	static boolean mayExceed(double chordSquared, double limit) {
+		// R^2 c^2 / (1 - c^2/4) <= limit^2, rearranged to avoid division
+		// and square roots. NaN values give false here, so are never rejected.
+		return limit < 0 || !(EARTH_RADIUS * EARTH_RADIUS * chordSquared <= limit * limit * (1.0 - chordSquared / 4.0));
+	}
+
+	/**
+	 * Calculate the great circle distance for a chord
+	 * @param chordSquared The squared chord length
+	 * @return The distance in kilometres
+	 */
+	static double distance(double chordSquared) {
+		// Rounding can make the chord fractionally longer than the diameter
+		double halfChord = Math.min(1.0, Math.sqrt(chordSquared) / 2.0);
+		return 2.0 * EARTH_RADIUS * Math.asin(halfChord);
+	}
+}
@@ -0,0 +1,52 @@
+package uk.ac.exeter.QCRoutines.routines;
+
+import java.util.List;
+
+import uk.ac.exeter.QCRoutines.data.DataRecord;
+
+/**
+ * The base class for QC routines that check each record as it arrives.
+ * These routines keep only the state they need from previous records,
+ * so the memory they use does not depend on the number of records.
+ * 
+ * {@link #processRecords(List)} simply passes each record to
+ * {@link #accept(DataRecord)} and then calls {@link #flush()}.
+ * If a record cannot be checked the routine is {@link #reset()},
+ * so no state is carried over to the next data set.
+ *
+ * Routines that keep state from previous records must override
+ * {@link #reset()} to clear it.
+ */
+public abstract class StreamingRoutine extends Routine {
+
+	/**
+	 * Base constructor
+	 */
+	public StreamingRoutine() {
+		super();
+	}
+	
+	@Override
+	public void processRecords(List<DataRecord> records) throws RoutineException {
+		boolean complete = false;
+		
+		try {
+			for (DataRecord record : records) {
+				accept(record);
+			}
+			
+			flush();
+			complete = true;
+		} finally {
+			if (!complete) {
+				reset();
+			}
+		}
+	}
+	
+	@Override
+	public abstract void accept(DataRecord record) throws RoutineException;
+	
+	@Override
+	public abstract void flush() throws RoutineException;
+}
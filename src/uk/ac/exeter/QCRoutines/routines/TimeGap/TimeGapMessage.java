@@ -6,25 +6,52 @@ import uk.ac.exeter.QCRoutines.data.DataRecord;
 import uk.ac.exeter.QCRoutines.data.NoSuchColumnException;
 import uk.ac.exeter.QCRoutines.messages.Flag;
 import uk.ac.exeter.QCRoutines.messages.Message;
+import uk.ac.exeter.QCRoutines.messages.MessageTemplate;
 
 public class TimeGapMessage extends Message {
 
+	private static final MessageTemplate FULL_MESSAGE = new MessageTemplate("Gap between measurements is {field} days - limit is {valid} days");
+
+	private static final MessageTemplate SHORT_MESSAGE = new MessageTemplate("Too much time between measurements");
+
+	/**
+	 * The gap between this record and the previous one
+	 */
+	private double gap;
+
+	/**
+	 * The maximum allowed gap
+	 */
+	private double gapLimit;
+
 	public TimeGapMessage(int lineNumber, TreeSet<Integer> columnIndices, TreeSet<String> columnNames, Flag flag, String fieldValue, String validValue) {
 		super(lineNumber, columnIndices, columnNames, flag, fieldValue, validValue);
 	}
 
 	public TimeGapMessage(DataRecord record, double gap, double gapLimit) throws NoSuchColumnException {
-		super(record.getLineNumber(), record.getDateTimeColumns(), record.getColumnNames(record.getDateTimeColumns()), Flag.BAD, String.valueOf(gap), String.valueOf(gapLimit));
+		super(record.getLineNumber(), record.getColumnSet(record.getDateTimeColumns()), Flag.BAD);
+		this.gap = gap;
+		this.gapLimit = gapLimit;
+	}
+
+	@Override
+	protected String formatFieldValue() {
+		return String.valueOf(gap);
+	}
+
+	@Override
+	protected String formatValidValue() {
+		return String.valueOf(gapLimit);
 	}
 
 	@Override
-	public String getFullMessage() {
-		return "Gap between measurements is " + fieldValue + " days - limit is " + validValue + " days";
+	protected MessageTemplate getFullMessageTemplate() {
+		return FULL_MESSAGE;
 	}
 
 	@Override
-	public String getShortMessage() {
-		return "Too much time between measurements";
+	protected MessageTemplate getShortMessageTemplate() {
+		return SHORT_MESSAGE;
 	}
 
 }
@@ -2,17 +2,20 @@ package uk.ac.exeter.QCRoutines.routines.TimeGap;
 
 import java.util.List;
 
-import org.joda.time.DateTime;
-
 import uk.ac.exeter.QCRoutines.config.ColumnConfig;
 import uk.ac.exeter.QCRoutines.data.DataRecord;
 import uk.ac.exeter.QCRoutines.data.DataRecordException;
-import uk.ac.exeter.QCRoutines.routines.Routine;
+import uk.ac.exeter.QCRoutines.routines.StreamingRoutine;
 import uk.ac.exeter.QCRoutines.routines.RoutineException;
 
-public class TimeGapRoutine extends Routine {
+public class TimeGapRoutine extends StreamingRoutine {
 
 	private int gapLimit;
+	
+	/**
+	 * The time of the previous record in milliseconds
+	 */
+	private long lastTime = DataRecord.NO_TIME;
 
 	@Override
 	public void initialise(List<String> parameters, ColumnConfig columnConfig) throws RoutineException {
@@ -32,42 +35,47 @@ public class TimeGapRoutine extends Routine {
 	}
 
 	@Override
-	public void processRecords(List<DataRecord> records) throws RoutineException {
-		DateTime lastTime = null;
-		
+	public void accept(DataRecord record) throws RoutineException {
 		try {
-			for (DataRecord record : records) {
-				if (null != lastTime) {
-					DateTime recordTime = record.getTime();
-					if (null != recordTime) {
-						double gap = calcDayDiff(lastTime, recordTime);
-						
-						if (gap > gapLimit) {
-							try {
-								addMessage(new TimeGapMessage(record, gap, gapLimit), record);
-							} catch (DataRecordException e) {
-								throw new RoutineException("Error while adding message", e);
-							}
-						}
+			long recordTime = record.getTimeMillis();
+			
+			if (DataRecord.NO_TIME != lastTime && DataRecord.NO_TIME != recordTime) {
+				double gap = calcDayDiff(lastTime, recordTime);
+				
+				if (gap > gapLimit) {
+					try {
+						addMessage(new TimeGapMessage(record, gap, gapLimit), record);
+					} catch (DataRecordException e) {
+						throw new RoutineException("Error while adding message", e);
 					}
 				}
-			
-				// Record date ready for next record
-				lastTime = record.getTime();
 			}
+		
+			// Record date ready for next record
+			lastTime = recordTime;
 		} catch (DataRecordException e) {
 			throw new RoutineException("Error while retrieving data", e);
 		}
 	}
 	
+	@Override
+	public void flush() throws RoutineException {
+		reset();
+	}
+	
+	@Override
+	public void reset() {
+		lastTime = DataRecord.NO_TIME;
+	}
+	
 	/**
 	 * Calculate the difference between two times in days
-	 * @param time1 The first time
-	 * @param time2 The second time
+	 * @param time1 The first time in milliseconds
+	 * @param time2 The second time in milliseconds
 	 * @return The difference between the two times
 	 */
-	private double calcDayDiff(DateTime time1, DateTime time2) {
-		long difference = time2.getMillis() - time1.getMillis();
+	private double calcDayDiff(long time1, long time2) {
+		long difference = time2 - time1;
 		return (double) (difference / 3600000.0) / 24;
 	}
 }
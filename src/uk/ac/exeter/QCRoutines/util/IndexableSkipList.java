@@ -0,0 +1,247 @@
+package uk.ac.exeter.QCRoutines.util;
+
+/**
+ * A sorted multiset of {@code double} values that supports adding, removing
+ * and retrieving values by their position in sorted order, all in O(log n)
+ * expected time. This makes it suitable for order statistics, such as the
+ * median, over a sliding window of values.
+ *
+ * Each link in the skip list records how many values it skips over,
+ * so positions can be found without walking the bottom level.
+ *
+ * {@link Double#NaN} values must not be added. This class is not thread safe.
+ */
+public class IndexableSkipList {
+
+	/**
+	 * The maximum number of levels in the list, which allows
+	 * for far more values than could be held in memory
+	 */
+	private static final int MAX_LEVEL = 32;
+
+	/**
+	 * The head of the list. This holds no value.
+	 */
+	private Node head;
+
+	/**
+	 * The number of levels currently in use
+	 */
+	private int level;
+
+	/**
+	 * The number of values in the list
+	 */
+	private int size;
+
+	/**
+	 * The state of the random number generator used to choose node levels
+	 */
+	private long randomState = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * The predecessor of the node being added or removed at each level
+	 */
+	private Node[] chain = new Node[MAX_LEVEL];
+
+	/**
+	 * The position of each node in {@link #chain}
+	 */
+	private int[] chainPositions = new int[MAX_LEVEL];
+
+	/**
+	 * Create an empty list
+	 */
+	public IndexableSkipList() {
+		clear();
+	}
+
+	/**
+	 * Remove all values from the list
+	 */
+	public void clear() {
+		head = new Node(Double.NaN, MAX_LEVEL);
+		level = 1;
+		size = 0;
+	}
+
+	/**
+	 * Returns the number of values in the list
+	 * @return The number of values
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Add a value to the list
+	 * @param value The value
+	 */
+	public void add(double value) {
+		findPredecessors(value);
+
+		int nodeLevel = randomLevel();
+		if (nodeLevel > level) {
+			for (int i = level; i < nodeLevel; i++) {
+				chain[i] = head;
+				chainPositions[i] = -1;
+			}
+			level = nodeLevel;
+		}
+
+		Node node = new Node(value, nodeLevel);
+		int position = chainPositions[0] + 1;
+
+		for (int i = 0; i < nodeLevel; i++) {
+			Node previous = chain[i];
+			node.next[i] = previous.next[i];
+			node.width[i] = chainPositions[i] + previous.width[i] + 1 - position;
+			previous.next[i] = node;
+			previous.width[i] = position - chainPositions[i];
+		}
+
+		// Links above the new node now skip over one more value
+		for (int i = nodeLevel; i < level; i++) {
+			chain[i].width[i]++;
+		}
+
+		size++;
+	}
+
+	/**
+	 * Remove one occurrence of a value from the list
+	 * @param value The value
+	 * @return {@code true} if the value was found and removed; {@code false} if it was not in the list
+	 */
+	public boolean remove(double value) {
+		boolean result = false;
+
+		findPredecessors(value);
+		Node node = chain[0].next[0];
+
+		if (null != node && node.value == value) {
+			for (int i = 0; i < level; i++) {
+				Node previous = chain[i];
+				if (previous.next[i] == node) {
+					previous.width[i] += node.width[i] - 1;
+					previous.next[i] = node.next[i];
+				} else {
+					previous.width[i]--;
+				}
+			}
+
+			while (level > 1 && null == head.next[level - 1]) {
+				level--;
+			}
+
+			size--;
+			result = true;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the value at a position in sorted order
+	 * @param index The 0-based position
+	 * @return The value
+	 * @throws IndexOutOfBoundsException If the position is outside the list
+	 */
+	public double get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " is outside list of size " + size);
+		}
+
+		Node node = head;
+		int position = -1;
+		for (int i = level - 1; i >= 0; i--) {
+			while (null != node.next[i] && position + node.width[i] <= index) {
+				position += node.width[i];
+				node = node.next[i];
+			}
+		}
+
+		return node.value;
+	}
+
+	/**
+	 * Returns the number of values in the list that are less than a value
+	 * @param value The value
+	 * @return The number of smaller values
+	 */
+	public int rank(double value) {
+		Node node = head;
+		int position = -1;
+		for (int i = level - 1; i >= 0; i--) {
+			while (null != node.next[i] && node.next[i].value < value) {
+				position += node.width[i];
+				node = node.next[i];
+			}
+		}
+
+		return position + 1;
+	}
+
+	/**
+	 * Find the last node before a value at each level, and store them
+	 * and their positions in {@link #chain} and {@link #chainPositions}
+	 * @param value The value
+	 */
+	private void findPredecessors(double value) {
+		Node node = head;
+		int position = -1;
+		for (int i = level - 1; i >= 0; i--) {
+			while (null != node.next[i] && node.next[i].value < value) {
+				position += node.width[i];
+				node = node.next[i];
+			}
+			chain[i] = node;
+			chainPositions[i] = position;
+		}
+	}
+
+	/**
+	 * Choose the level for a new node. Each level is half as likely as the one below.
+	 * @return The level
+	 */
+	private int randomLevel() {
+		// xorshift64
+		randomState ^= randomState << 13;
+		randomState ^= randomState >>> 7;
+		randomState ^= randomState << 17;
+
+		return Math.min(MAX_LEVEL, Long.numberOfTrailingZeros(randomState) + 1);
+	}
+
+	/**
+	 * A node in the list
+	 */
+	private static class Node {
+
+		/**
+		 * The value
+		 */
+		private final double value;
+
+		/**
+		 * The next node at each level
+		 */
+		private final Node[] next;
+
+		/**
+		 * The number of positions between this node and the next node at each level
+		 */
+		private final int[] width;
+
+		/**
+		 * Create a node
+		 * @param value The value
+		 * @param level The number of levels in the node
+		 */
+		private Node(double value, int level) {
+			this.value = value;
+			this.next = new Node[level];
+			this.width = new int[level];
+		}
+	}
+}
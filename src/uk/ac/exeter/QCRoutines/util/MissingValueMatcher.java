@@ -0,0 +1,129 @@
+package uk.ac.exeter.QCRoutines.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Matches values against a set of missing value strings.
+ *
+ * Values are trimmed and compared case-insensitively, in the same way as
+ * {@code missingValues.contains(value.trim().toLowerCase())}, but the comparison
+ * is made in place so no objects are created. {@code null} values and empty
+ * strings are always treated as missing.
+ *
+ * Instances are immutable.
+ */
+public class MissingValueMatcher {
+
+	/**
+	 * Matcher for the {@link RoutineUtils#DEFAULT_MISSING_VALUE_STRINGS}
+	 */
+	public static final MissingValueMatcher DEFAULT = new MissingValueMatcher(RoutineUtils.DEFAULT_MISSING_VALUE_STRINGS);
+
+	/**
+	 * The trimmed, lower case missing values
+	 */
+	private final Set<String> missingValues;
+
+	/**
+	 * The characters of the missing values, grouped by the length of the value
+	 */
+	private final char[][][] valuesByLength;
+
+	/**
+	 * Create a matcher for a set of missing values. The values are
+	 * trimmed and converted to lower case.
+	 * @param missingValues The missing values
+	 */
+	public MissingValueMatcher(Collection<String> missingValues) {
+		TreeSet<String> values = new TreeSet<String>();
+		values.add("");
+		for (String missingValue : missingValues) {
+			values.add(missingValue.trim().toLowerCase());
+		}
+
+		int maxLength = 0;
+		for (String value : values) {
+			maxLength = Math.max(maxLength, value.length());
+		}
+
+		List<List<char[]>> byLength = new ArrayList<List<char[]>>(maxLength + 1);
+		for (int i = 0; i <= maxLength; i++) {
+			byLength.add(new ArrayList<char[]>());
+		}
+		for (String value : values) {
+			byLength.get(value.length()).add(value.toCharArray());
+		}
+
+		valuesByLength = new char[maxLength + 1][][];
+		for (int i = 0; i <= maxLength; i++) {
+			valuesByLength[i] = byLength.get(i).toArray(new char[byLength.get(i).size()][]);
+		}
+
+		this.missingValues = Collections.unmodifiableSet(values);
+	}
+
+	/**
+	 * Determines whether a value is missing
+	 * @param value The value
+	 * @return {@code true} if the value is {@code null} or one of the missing values; {@code false} otherwise
+	 */
+	public boolean matches(CharSequence value) {
+		boolean result = true;
+
+		if (null != value) {
+			// Trim in the same way as String.trim()
+			int start = 0;
+			int end = value.length();
+			while (start < end && value.charAt(start) <= ' ') {
+				start++;
+			}
+			while (end > start && value.charAt(end - 1) <= ' ') {
+				end--;
+			}
+
+			int length = end - start;
+			if (length >= valuesByLength.length) {
+				result = false;
+			} else {
+				result = false;
+				char[][] candidates = valuesByLength[length];
+				for (int i = 0; !result && i < candidates.length; i++) {
+					result = regionMatches(value, start, candidates[i]);
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the missing values, trimmed and in lower case
+	 * @return The missing values
+	 */
+	public Set<String> getMissingValues() {
+		return missingValues;
+	}
+
+	/**
+	 * Compare part of a value with a lower case missing value, ignoring case
+	 * @param value The value
+	 * @param start The start of the part of the value to compare
+	 * @param missingValue The missing value
+	 * @return {@code true} if the part of the value matches the missing value; {@code false} if it does not
+	 */
+	private static boolean regionMatches(CharSequence value, int start, char[] missingValue) {
+		boolean result = true;
+
+		for (int i = 0; result && i < missingValue.length; i++) {
+			char c = value.charAt(start + i);
+			result = (c == missingValue[i] || Character.toLowerCase(c) == missingValue[i]);
+		}
+
+		return result;
+	}
+}
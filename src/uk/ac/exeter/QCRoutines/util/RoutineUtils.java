@@ -2,7 +2,6 @@ package uk.ac.exeter.QCRoutines.util;
 
 import java.text.ParseException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -34,6 +33,35 @@ public class RoutineUtils {
 		DEFAULT_MISSING_VALUE_STRINGS = Collections.unmodifiableSet(defaultsSet);
 	}
 
+	/**
+	 * The bit pattern of the NaN value used internally to indicate that a value is not numeric.
+	 * This is never produced by parsing a number, which gives the canonical NaN.
+	 */
+	private static final long INVALID_NUMBER_BITS = 0x7ff8000000000badL;
+	
+	/**
+	 * The NaN value used internally to indicate that a value is not numeric
+	 */
+	private static final double INVALID_NUMBER = Double.longBitsToDouble(INVALID_NUMBER_BITS);
+	
+	/**
+	 * The maximum number of significant digits that can be parsed directly
+	 */
+	private static final int MAX_FAST_DIGITS = 15;
+	
+	/**
+	 * The cap applied to exponents while parsing them
+	 */
+	private static final int MAX_EXPONENT = 100000;
+	
+	/**
+	 * The powers of ten that can be represented exactly as {@code double}s
+	 */
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
 	/**
 	 * Processes all items in a list of strings, trimming them and converting them
 	 * to lower case
@@ -148,17 +176,277 @@ public class RoutineUtils {
 	 * @return {@code true} if the value is numeric; {@code false} otherwise.
 	 */
 	public static boolean isNumeric(String value) {
-		boolean result = true;
+		return isNumeric((CharSequence) value);
+	}
+	
+	/**
+	 * Determines whether or not a character sequence contains a number.
+	 * Exactly the same values are accepted as {@link Double#parseDouble(String)},
+	 * but no exceptions are thrown or objects created when checking the value.
+	 * @param value The value to be checked
+	 * @return {@code true} if the value is numeric; {@code false} otherwise.
+	 */
+	public static boolean isNumeric(CharSequence value) {
+		return null != value && Double.doubleToRawLongBits(scanNumber(value)) != INVALID_NUMBER_BITS;
+	}
+	
+	/**
+	 * Parse a character sequence into a {@code double} value. The result is identical to
+	 * that of {@link Double#parseDouble(String)}, but common values are parsed without
+	 * creating any objects. Values should be checked with {@link #isNumeric(CharSequence)} first.
+	 * @param value The value to be parsed
+	 * @return The parsed value
+	 * @throws NumberFormatException If the value is not numeric
+	 */
+	public static double parseNumeric(CharSequence value) {
+		if (null == value) {
+			throw new NumberFormatException("null");
+		}
 		
-		try {
-			Double.parseDouble(value);
-		} catch (Exception e) {
-			result = false;
+		double result = scanNumber(value);
+		if (Double.doubleToRawLongBits(result) == INVALID_NUMBER_BITS) {
+			throw new NumberFormatException("For input string: \"" + value + "\"");
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Scan and parse a numeric value, following the syntax accepted by {@link Double#parseDouble(String)}.
+	 * 
+	 * Decimal values with up to {@link #MAX_FAST_DIGITS} significant digits and a small exponent
+	 * are calculated directly, which gives a correctly rounded result because both the
+	 * digits and the power of ten are exact {@code double}s. All other valid values are
+	 * passed to {@link Double#parseDouble(String)}.
+	 * 
+	 * @param value The value to be parsed
+	 * @return The parsed value, or a NaN with the bit pattern {@link #INVALID_NUMBER_BITS} if the value is not numeric
+	 */
+	private static double scanNumber(CharSequence value) {
+		
+		// Trim leading and trailing whitespace in the same way as String.trim()
+		int start = 0;
+		int end = value.length();
+		while (start < end && value.charAt(start) <= ' ') {
+			start++;
+		}
+		while (end > start && value.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		
+		if (start == end) {
+			return INVALID_NUMBER;
+		}
+		
+		int pos = start;
+		boolean negative = false;
+		char c = value.charAt(pos);
+		if (c == '-' || c == '+') {
+			negative = (c == '-');
+			pos++;
+			if (pos == end) {
+				return INVALID_NUMBER;
+			}
+			c = value.charAt(pos);
+		}
+		
+		if (c == 'N') {
+			return (matchesWord(value, pos, end, "NaN") ? Double.NaN : INVALID_NUMBER);
+		} else if (c == 'I') {
+			if (!matchesWord(value, pos, end, "Infinity")) {
+				return INVALID_NUMBER;
+			}
+			return (negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY);
+		} else if (c == '0' && pos + 1 < end && (value.charAt(pos + 1) == 'x' || value.charAt(pos + 1) == 'X')) {
+			// Hexadecimal values are rare, so leave the conversion to the JDK
+			return (isHexNumber(value, pos + 2, end) ? Double.parseDouble(value.toString()) : INVALID_NUMBER);
+		}
+		
+		long mantissa = 0;
+		int significantDigits = 0;
+		int exponent = 0;
+		boolean hasDigits = false;
+		boolean exact = true;
+		
+		// Integer part
+		while (pos < end && (c = value.charAt(pos)) >= '0' && c <= '9') {
+			hasDigits = true;
+			int digit = c - '0';
+			if (mantissa == 0 && digit == 0) {
+				// Leading zero - ignore it
+			} else if (significantDigits < MAX_FAST_DIGITS) {
+				mantissa = mantissa * 10 + digit;
+				significantDigits++;
+			} else {
+				exponent++;
+				if (digit != 0) {
+					exact = false;
+				}
+			}
+			pos++;
+		}
+		
+		// Fractional part
+		if (pos < end && value.charAt(pos) == '.') {
+			pos++;
+			while (pos < end && (c = value.charAt(pos)) >= '0' && c <= '9') {
+				hasDigits = true;
+				int digit = c - '0';
+				if (mantissa == 0 && digit == 0) {
+					exponent--;
+				} else if (significantDigits < MAX_FAST_DIGITS) {
+					mantissa = mantissa * 10 + digit;
+					significantDigits++;
+					exponent--;
+				} else if (digit != 0) {
+					exact = false;
+				}
+				pos++;
+			}
+		}
+		
+		if (!hasDigits) {
+			return INVALID_NUMBER;
+		}
+		
+		// Exponent
+		if (pos < end && (value.charAt(pos) == 'e' || value.charAt(pos) == 'E')) {
+			pos++;
+			boolean negativeExponent = false;
+			if (pos < end && (value.charAt(pos) == '-' || value.charAt(pos) == '+')) {
+				negativeExponent = (value.charAt(pos) == '-');
+				pos++;
+			}
+			
+			int exponentValue = 0;
+			int exponentDigits = 0;
+			while (pos < end && (c = value.charAt(pos)) >= '0' && c <= '9') {
+				// Cap the exponent to prevent overflow. The fast path won't be used anyway.
+				if (exponentValue < MAX_EXPONENT) {
+					exponentValue = exponentValue * 10 + (c - '0');
+				}
+				exponentDigits++;
+				pos++;
+			}
+			
+			if (exponentDigits == 0) {
+				return INVALID_NUMBER;
+			}
+			
+			exponent += (negativeExponent ? -exponentValue : exponentValue);
+		}
+		
+		// Optional type suffix, which must be the last character
+		if (pos < end) {
+			c = value.charAt(pos);
+			if (pos == end - 1 && (c == 'f' || c == 'F' || c == 'd' || c == 'D')) {
+				pos++;
+			} else {
+				return INVALID_NUMBER;
+			}
+		}
+		
+		double result;
+		
+		if (mantissa == 0) {
+			result = 0.0;
+		} else if (exact && exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+			result = mantissa * POWERS_OF_TEN[exponent];
+		} else if (exact && exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+			result = mantissa / POWERS_OF_TEN[-exponent];
+		} else {
+			return Double.parseDouble(value.toString());
+		}
+		
+		return (negative ? -result : result);
+	}
+	
+	/**
+	 * Determines whether the characters from a given position to the end
+	 * of a sequence exactly match a word
+	 * @param value The character sequence
+	 * @param pos The start position
+	 * @param end The end of the sequence
+	 * @param word The word
+	 * @return {@code true} if the characters match the word; {@code false} otherwise
+	 */
+	private static boolean matchesWord(CharSequence value, int pos, int end, String word) {
+		boolean result = (end - pos == word.length());
+		
+		for (int i = 0; result && i < word.length(); i++) {
+			if (value.charAt(pos + i) != word.charAt(i)) {
+				result = false;
+			}
 		}
 		
 		return result;
 	}
 	
+	/**
+	 * Determines whether a character is an ASCII hexadecimal digit. Unlike
+	 * {@link Character#digit(char, int)}, this does not accept non-ASCII digits,
+	 * which {@link Double#parseDouble(String)} rejects.
+	 * @param c The character
+	 * @return {@code true} if the character is a hex digit; {@code false} otherwise
+	 */
+	private static boolean isHexDigit(char c) {
+		return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+	}
+	
+	/**
+	 * Check the syntax of a hexadecimal floating point value after its {@code 0x} prefix.
+	 * The value must have hex digits with an optional point, a binary exponent,
+	 * and an optional type suffix.
+	 * @param value The character sequence
+	 * @param pos The position after the {@code 0x} prefix
+	 * @param end The end of the sequence
+	 * @return {@code true} if the value is valid; {@code false} otherwise
+	 */
+	private static boolean isHexNumber(CharSequence value, int pos, int end) {
+		boolean hasDigits = false;
+		
+		while (pos < end && isHexDigit(value.charAt(pos))) {
+			hasDigits = true;
+			pos++;
+		}
+		
+		if (pos < end && value.charAt(pos) == '.') {
+			pos++;
+			while (pos < end && isHexDigit(value.charAt(pos))) {
+				hasDigits = true;
+				pos++;
+			}
+		}
+		
+		if (!hasDigits || pos == end || (value.charAt(pos) != 'p' && value.charAt(pos) != 'P')) {
+			return false;
+		}
+		pos++;
+		
+		if (pos < end && (value.charAt(pos) == '-' || value.charAt(pos) == '+')) {
+			pos++;
+		}
+		
+		int exponentDigits = 0;
+		while (pos < end && value.charAt(pos) >= '0' && value.charAt(pos) <= '9') {
+			exponentDigits++;
+			pos++;
+		}
+		
+		if (exponentDigits == 0) {
+			return false;
+		}
+		
+		if (pos == end - 1) {
+			char c = value.charAt(pos);
+			if (c == 'f' || c == 'F' || c == 'd' || c == 'D') {
+				pos++;
+			}
+		}
+		
+		return pos == end;
+	}
+	
 	/**
 	 * Determines whether or not all of a list of string values is empty.  
 	 * A null or default missing value is considered empty.
@@ -168,11 +456,8 @@ public class RoutineUtils {
 	public static boolean isEmpty(List<String> values) {
 		boolean result = true;
 
-		for (String value: values) {
-			if ( (null != value) && 
-				 ! DEFAULT_MISSING_VALUE_STRINGS.contains(value.trim().toLowerCase()) ) {
-				result = false;
-			}
+		for (int i = 0; result && i < values.size(); i++) {
+			result = MissingValueMatcher.DEFAULT.matches(values.get(i));
 		}
 
 		return result;
@@ -185,6 +470,22 @@ public class RoutineUtils {
 	 * @return {@code true} if the values are all empty; {@code false} otherwise.
 	 */
 	public static boolean isEmpty(String... values) {
-		return isEmpty(Arrays.asList(values));
+		boolean result = true;
+
+		for (int i = 0; result && i < values.length; i++) {
+			result = MissingValueMatcher.DEFAULT.matches(values[i]);
+		}
+
+		return result;
+	}
+	
+	/**
+	 * Determines whether or not a single value is empty.
+	 * A null or default missing value is considered empty.
+	 * @param value The value to be checked.
+	 * @return {@code true} if the value is empty; {@code false} otherwise.
+	 */
+	public static boolean isEmpty(String value) {
+		return MissingValueMatcher.DEFAULT.matches(value);
 	}
 }